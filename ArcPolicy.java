@@ -0,0 +1,181 @@
+// Adaptive Replacement Cache (Megiddo & Modha). Resident slots live in T1 (seen
+// once) or T2 (seen at least twice); B1 and B2 remember keys recently evicted
+// from each list, and hits on those ghosts move the target size p of T1.
+// Resident nodes are the slot numbers, ghost nodes are drawn from a fixed pool.
+public class ArcPolicy implements ReplacementPolicy {
+    private final int capacity;
+    private final SlotDeque t1, t2, b1, b2;
+    private final long[] nodeKey;
+    private final int[] freeGhosts;
+    private int freeGhostCount;
+    private final LongIntHashMap ghostOf;
+    private int p = 0;
+    // key whose ghost hit or case IV bookkeeping already ran in selectVictim
+    private long pendingKey = -1;
+
+    public ArcPolicy(int capacity) {
+        this.capacity = capacity;
+        int nodes = 2 * capacity + 1;
+        t1 = new SlotDeque(nodes);
+        t2 = new SlotDeque(nodes);
+        b1 = new SlotDeque(nodes);
+        b2 = new SlotDeque(nodes);
+        nodeKey = new long[nodes];
+        freeGhosts = new int[capacity + 1];
+        for (int i = 0; i <= capacity; i++) {
+            freeGhosts[freeGhostCount++] = nodes - 1 - i;
+        }
+        ghostOf = new LongIntHashMap(capacity + 1);
+    }
+
+    @Override
+    public void recordAccess(int slot, long key) {
+        t1.remove(slot);
+        if (t2.contains(slot)) {
+            t2.moveToLast(slot);
+        } else {
+            t2.addLast(slot);
+        }
+    }
+
+    @Override
+    public void recordInsert(int slot, long key) {
+        int ghost = ghostOf.get(key);
+        boolean handled = pendingKey == key;
+        pendingKey = -1;
+        if (ghost != -1) {
+            if (!handled) {
+                adapt(b1.contains(ghost));
+            }
+            dropGhost(ghost);
+            nodeKey[slot] = key;
+            t2.addLast(slot);
+            return;
+        }
+        if (!handled) {
+            trimGhosts();
+        }
+        nodeKey[slot] = key;
+        t1.addLast(slot);
+    }
+
+    @Override
+    public void recordRemove(int slot) {
+        t1.remove(slot);
+        t2.remove(slot);
+    }
+
+    @Override
+    public int selectVictim(long key) {
+        pendingKey = key;
+        int ghost = ghostOf.get(key);
+        boolean inB2 = ghost != -1 && b2.contains(ghost);
+        if (ghost != -1) {
+            adapt(!inB2);
+        } else if (t1.size() + b1.size() >= capacity && b1.isEmpty()) {
+            // case IV.A with an empty B1: drop the LRU page of T1 outright
+            return t1.removeFirst();
+        } else {
+            trimGhosts();
+        }
+        return replace(inB2);
+    }
+
+    // selectVictim without the ghost bookkeeping, which never touches T1 or T2
+    @Override
+    public int peekVictim(long key) {
+        int ghost = ghostOf.get(key);
+        boolean inB2 = ghost != -1 && b2.contains(ghost);
+        int target = p;
+        if (ghost != -1) {
+            target = adapted(!inB2);
+        } else if (t1.size() + b1.size() >= capacity && b1.isEmpty()) {
+            return t1.peekFirst();
+        }
+        return fromT1(inB2, target) ? t1.peekFirst() : t2.peekFirst();
+    }
+
+    private void adapt(boolean hitInB1) {
+        p = adapted(hitInB1);
+    }
+
+    private int adapted(boolean hitInB1) {
+        if (hitInB1) {
+            return Math.min(capacity, p + Math.max(b2.size() / b1.size(), 1));
+        }
+        return Math.max(0, p - Math.max(b1.size() / b2.size(), 1));
+    }
+
+    // case IV ghost bookkeeping keeps |T1|+|B1| <= c and the directory <= 2c
+    private void trimGhosts() {
+        int l1 = t1.size() + b1.size();
+        int total = l1 + t2.size() + b2.size();
+        if (l1 >= capacity && !b1.isEmpty()) {
+            dropGhost(b1.peekFirst());
+        } else if (total >= 2 * capacity && !b2.isEmpty()) {
+            dropGhost(b2.peekFirst());
+        }
+    }
+
+    private boolean fromT1(boolean keyInB2, int target) {
+        return !t1.isEmpty() && (t1.size() > target || (keyInB2 && t1.size() == target) || t2.isEmpty());
+    }
+
+    private int replace(boolean keyInB2) {
+        int victim;
+        if (fromT1(keyInB2, p)) {
+            victim = t1.removeFirst();
+            addGhost(b1, nodeKey[victim]);
+        } else {
+            victim = t2.removeFirst();
+            addGhost(b2, nodeKey[victim]);
+        }
+        return victim;
+    }
+
+    private void addGhost(SlotDeque list, long key) {
+        if (freeGhostCount == 0) {
+            // the pool is sized for the ARC invariants; reclaim the oldest ghost if violated
+            dropGhost(!b1.isEmpty() ? b1.peekFirst() : b2.peekFirst());
+        }
+        int ghost = freeGhosts[--freeGhostCount];
+        nodeKey[ghost] = key;
+        list.addLast(ghost);
+        ghostOf.put(key, ghost);
+    }
+
+    @Override
+    public void save(Checkpoint out) {
+        t1.save(out);
+        t2.save(out);
+        b1.save(out);
+        b2.save(out);
+        out.putLongs(nodeKey);
+        out.putInts(freeGhosts);
+        out.putInt(freeGhostCount);
+        ghostOf.save(out);
+        out.putInt(p);
+        out.putLong(pendingKey);
+    }
+
+    @Override
+    public void restore(Checkpoint in) {
+        t1.restore(in);
+        t2.restore(in);
+        b1.restore(in);
+        b2.restore(in);
+        in.getLongs(nodeKey);
+        in.getInts(freeGhosts);
+        freeGhostCount = in.getInt();
+        ghostOf.restore(in);
+        p = in.getInt();
+        pendingKey = in.getLong();
+    }
+
+    private void dropGhost(int ghost) {
+        b1.remove(ghost);
+        b2.remove(ghost);
+        ghostOf.remove(nodeKey[ghost]);
+        freeGhosts[freeGhostCount++] = ghost;
+    }
+}
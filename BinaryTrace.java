@@ -0,0 +1,209 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Compact binary reference traces, written by TraceRecorder.
+//
+// Layout: the 8-byte MAGIC, then blocks of
+//   int recordCount, int rawLength, int compressedLength, deflated payload
+// The payload holds one record per reference: a varint whose low bit says whether
+// the process changed since the previous record, whose next bit marks a write and
+// whose remaining bits are the zigzag-encoded delta from the last page of that
+// process in this block, followed by the process id as a varint when it changed.
+// Process ids are below VirtualMemory.SHARED_PAGES, the limit the simulator has.
+// Delta state restarts at every block, so blocks decode on their own.
+//
+// The reader maps the file and inflates each block straight from the mapping
+// into one reused buffer; decoding a record allocates nothing.
+public class BinaryTrace {
+    static final byte[] MAGIC = {'V', 'M', 'T', 'R', 'A', 'C', 'E', 1};
+    static final int MAX_VARINT_BYTES = 10;
+    static final int MAX_PID_VARINT_BYTES = 5;
+    private static final long MAP_WINDOW = 256L * 1024 * 1024;
+    private static final int BLOCK_HEADER = 12;
+
+    private byte[] raw = new byte[1 << 18];
+    private long[] lastPage = new long[64];
+    private int[] lastEpoch = new int[64];
+    private int epoch = 0;
+
+    static int writeVarint(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    public static boolean isBinary(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < MAGIC.length) {
+                return false;
+            }
+            byte[] header = new byte[MAGIC.length];
+            channel.map(FileChannel.MapMode.READ_ONLY, 0, MAGIC.length).get(header);
+            return Arrays.equals(header, MAGIC);
+        }
+    }
+
+    public void replay(Path file, TraceReplay.Sink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            byte[] header = new byte[MAGIC.length];
+            if (channel.size() >= MAGIC.length) {
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, MAGIC.length).get(header);
+            }
+            if (!Arrays.equals(header, MAGIC)) {
+                throw new IOException(file + " is not a binary trace");
+            }
+            replay(channel, sink);
+        }
+    }
+
+    private void replay(FileChannel channel, TraceReplay.Sink sink) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            long size = channel.size();
+            long position = MAGIC.length;
+            MappedByteBuffer window = null;
+            long windowStart = 0;
+            while (position < size) {
+                if (position + BLOCK_HEADER > size) {
+                    throw new IOException("Truncated block header at offset " + position);
+                }
+                if (window == null || position + BLOCK_HEADER > windowStart + window.limit()) {
+                    windowStart = position;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, size - position));
+                }
+                int offset = (int) (position - windowStart);
+                int records = window.getInt(offset);
+                int rawLength = window.getInt(offset + 4);
+                int compressedLength = window.getInt(offset + 8);
+                long end = position + BLOCK_HEADER + compressedLength;
+                if (records < 0 || rawLength < 0 || compressedLength < 0 || end > size) {
+                    throw new IOException("Corrupt block at offset " + position);
+                }
+                // remap so the whole block lies inside the current window
+                if (end > windowStart + window.limit()) {
+                    windowStart = position;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                                         Math.max(Math.min(MAP_WINDOW, size - position), end - position));
+                    offset = 0;
+                }
+                inflate(inflater, window.slice(offset + BLOCK_HEADER, compressedLength), rawLength, position);
+                decode(records, rawLength, sink, position);
+                position = end;
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private void inflate(Inflater inflater, ByteBuffer input, int rawLength, long position)
+            throws IOException {
+        if (raw.length < rawLength) {
+            raw = new byte[Math.max(rawLength, raw.length * 2)];
+        }
+        inflater.reset();
+        inflater.setInput(input);
+        try {
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, length, rawLength - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != rawLength) {
+                throw new IOException("Block at offset " + position + " inflated to " + length
+                                      + " bytes, expected " + rawLength);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block at offset " + position, e);
+        }
+    }
+
+    private void decode(int records, int rawLength, TraceReplay.Sink sink, long position) throws IOException {
+        epoch++;
+        int processId = -1;
+        int p = 0;
+        for (int r = 0; r < records; r++) {
+            long header = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (p >= rawLength || shift >= 7 * MAX_VARINT_BYTES) {
+                    throw new IOException("Block at offset " + position + " ends early");
+                }
+                b = raw[p++];
+                header |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            if ((header & 1) != 0) {
+                long id = 0;
+                shift = 0;
+                do {
+                    if (p >= rawLength || shift >= 7 * MAX_PID_VARINT_BYTES) {
+                        throw new IOException("Block at offset " + position + " ends early");
+                    }
+                    b = raw[p++];
+                    id |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                if (id >= VirtualMemory.SHARED_PAGES) {
+                    throw new IOException("Block at offset " + position + " has process id " + id
+                        + ", the limit is " + (VirtualMemory.SHARED_PAGES - 1));
+                }
+                processId = (int) id;
+                if (processId >= lastPage.length) {
+                    int length = Math.max(processId + 1, lastPage.length * 2);
+                    lastPage = Arrays.copyOf(lastPage, length);
+                    lastEpoch = Arrays.copyOf(lastEpoch, length);
+                }
+            } else if (processId < 0) {
+                throw new IOException("Block at offset " + position + " does not start with a process id");
+            }
+            boolean write = (header & 2) != 0;
+            long zigzag = header >>> 2;
+            long delta = (zigzag >>> 1) ^ -(zigzag & 1);
+            long page = (lastEpoch[processId] == epoch ? lastPage[processId] : 0) + delta;
+            lastPage[processId] = page;
+            lastEpoch[processId] = epoch;
+            sink.reference(page, processId, write);
+        }
+        if (p != rawLength) {
+            throw new IOException("Block at offset " + position + " has " + (rawLength - p)
+                                  + " bytes after its last record");
+        }
+    }
+
+    // Converts a text trace or a generated workload into the binary format
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java BinaryTrace <traceFile|workload:SPEC> <output> [--pages=N]"
+                + " [--references=N] [--processes=N] [--quantum=Q] [--seed=S]");
+            System.exit(1);
+        }
+        Map<String, String> options = TraceReplay.parseOptions(args, 2);
+        long pages = Long.parseLong(options.getOrDefault("pages", String.valueOf(1L << VirtualMemory.MAX_PAGE_BITS)));
+        Path output = Paths.get(args[1]);
+        long start = System.nanoTime();
+        long records;
+        try (TraceRecorder recorder = new TraceRecorder(output)) {
+            TraceReplay.feed(args[0], pages, options, recorder);
+            records = recorder.getRecords();
+        }
+        System.err.printf("%d references, %d bytes (%.2f bytes/reference) in %.3f s%n", records,
+                          output.toFile().length(), records == 0 ? 0 : (double) output.toFile().length() / records,
+                          (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,238 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Binary snapshot of simulator state, written by VirtualMemory.saveCheckpoint.
+//
+// Layout: the 8-byte MAGIC, then untagged little-endian values in the order the
+// components wrote them. Arrays are an int length followed by the elements and
+// booleans take a byte each. A section is an int byte count followed by its
+// contents, so a reader that cannot use a component's state (another policy, a
+// TLB level it does not have) skips over it.
+//
+// A checkpoint is built in memory. commit() writes it with one FileChannel write
+// to FILE.tmp, forces it to disk and renames it over FILE, so a crash or an error
+// while saving leaves the previous checkpoint intact; closing without a commit
+// discards it. Reading maps the file and copies whole arrays out of the mapping.
+public class Checkpoint implements Closeable {
+    static final byte[] MAGIC = {'V', 'M', 'C', 'K', 'P', 'T', 0, 2};
+
+    private final Path file;
+    private final boolean writing;
+    private ByteBuffer buffer;
+
+    private Checkpoint(Path file, ByteBuffer buffer, boolean writing) {
+        this.file = file;
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.writing = writing;
+    }
+
+    public static Checkpoint create(Path file) {
+        Checkpoint checkpoint = new Checkpoint(file, ByteBuffer.allocate(1 << 16), true);
+        checkpoint.buffer.put(MAGIC);
+        return checkpoint;
+    }
+
+    public static Checkpoint open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large to be a checkpoint");
+            }
+            ByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            byte[] header = new byte[MAGIC.length];
+            if (size >= MAGIC.length) {
+                mapping.get(header);
+            }
+            if (!Arrays.equals(header, MAGIC)) {
+                throw new IOException(file + " is not a checkpoint");
+            }
+            // the mapping stays valid after the channel is closed
+            return new Checkpoint(file, mapping, false);
+        }
+    }
+
+    private void ensure(long bytes) {
+        if (buffer.remaining() < bytes) {
+            long needed = buffer.position() + bytes;
+            if (needed > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Checkpoint exceeds 2 GiB");
+            }
+            ByteBuffer grown = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE,
+                                                   Math.max(needed, 2L * buffer.capacity())));
+            buffer.flip();
+            buffer = grown.order(ByteOrder.LITTLE_ENDIAN).put(buffer);
+        }
+    }
+
+    public void putInt(int value) { ensure(4); buffer.putInt(value); }
+    public void putLong(long value) { ensure(8); buffer.putLong(value); }
+    public void putDouble(double value) { ensure(8); buffer.putDouble(value); }
+    public void putBoolean(boolean value) { ensure(1); buffer.put((byte) (value ? 1 : 0)); }
+
+    public void putString(String value) {
+        putBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void putInts(int[] values) {
+        ensure(4 + 4L * values.length);
+        buffer.putInt(values.length);
+        buffer.asIntBuffer().put(values);
+        buffer.position(buffer.position() + 4 * values.length);
+    }
+
+    public void putLongs(long[] values) {
+        ensure(4 + 8L * values.length);
+        buffer.putInt(values.length);
+        buffer.asLongBuffer().put(values);
+        buffer.position(buffer.position() + 8 * values.length);
+    }
+
+    public void putBytes(byte[] values) {
+        ensure(4 + values.length);
+        buffer.putInt(values.length);
+        buffer.put(values);
+    }
+
+    public void putBooleans(boolean[] values) {
+        ensure(4 + values.length);
+        buffer.putInt(values.length);
+        for (boolean value : values) {
+            buffer.put((byte) (value ? 1 : 0));
+        }
+    }
+
+    // reserves the byte count of a section; pass the result to endSection
+    public int startSection() {
+        putInt(0);
+        return buffer.position();
+    }
+
+    public void endSection(int start) {
+        buffer.putInt(start - 4, buffer.position() - start);
+    }
+
+    public int getInt() { return buffer.getInt(); }
+    public long getLong() { return buffer.getLong(); }
+    public double getDouble() { return buffer.getDouble(); }
+    public boolean getBoolean() { return buffer.get() != 0; }
+
+    public String getString() {
+        return new String(getBytes(), StandardCharsets.UTF_8);
+    }
+
+    private int getLength() {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return length;
+    }
+
+    public int[] getInts() {
+        int[] values = new int[getLength()];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * values.length);
+        return values;
+    }
+
+    public long[] getLongs() {
+        long[] values = new long[getLength()];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + 8 * values.length);
+        return values;
+    }
+
+    public byte[] getBytes() {
+        byte[] values = new byte[getLength()];
+        buffer.get(values);
+        return values;
+    }
+
+    public boolean[] getBooleans() {
+        boolean[] values = new boolean[getLength()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = buffer.get() != 0;
+        }
+        return values;
+    }
+
+    // Reads an array into one of a fixed size, e.g. a component's preallocated state
+    public void getInts(int[] into) {
+        expect(into.length);
+        buffer.asIntBuffer().get(into);
+        buffer.position(buffer.position() + 4 * into.length);
+    }
+
+    public void getLongs(long[] into) {
+        expect(into.length);
+        buffer.asLongBuffer().get(into);
+        buffer.position(buffer.position() + 8 * into.length);
+    }
+
+    public void getBytes(byte[] into) {
+        expect(into.length);
+        buffer.get(into);
+    }
+
+    public void getBooleans(boolean[] into) {
+        expect(into.length);
+        for (int i = 0; i < into.length; i++) {
+            into[i] = buffer.get() != 0;
+        }
+    }
+
+    private void expect(int length) {
+        int saved = getLength();
+        if (saved != length) {
+            throw new IllegalArgumentException("Checkpoint holds " + saved + " values where " + length
+                                               + " are expected");
+        }
+    }
+
+    // the section's contents follow
+    public void enterSection() {
+        getLength();
+    }
+
+    public void skipSection() {
+        int length = getLength();
+        buffer.position(buffer.position() + length);
+    }
+
+    // writes the checkpoint and puts it in place of any previous one
+    public void commit() throws IOException {
+        if (!writing) {
+            throw new IllegalStateException("Checkpoint was opened for reading");
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        buffer = null;
+    }
+
+    // drops an uncommitted checkpoint; nothing was written yet
+    @Override
+    public void close() {
+        buffer = null;
+    }
+}
@@ -0,0 +1,105 @@
+// Clock / second chance: a hand sweeps the slots, clearing reference bits, and
+// evicts the first resident slot whose bit is already clear.
+//
+// peekVictim cannot clear bits, so it remembers how far past the hand it has
+// looked: until the hand moves, the slots it passed over stay skippable (accesses
+// and inserts only set bits), and the next peek resumes where the last one stopped.
+public class ClockPolicy implements ReplacementPolicy {
+    private final boolean[] referenced;
+    private final boolean[] resident;
+    private int hand = 0;
+    private int scanned = 0;               // slots from the hand already passed over by peekVictim
+    private int scannedFirstResident = -1; // first resident slot among them
+
+    public ClockPolicy(int capacity) {
+        referenced = new boolean[capacity];
+        resident = new boolean[capacity];
+    }
+
+    @Override
+    public void recordAccess(int slot, long key) { referenced[slot] = true; }
+
+    @Override
+    public void recordInsert(int slot, long key) {
+        resident[slot] = true;
+        referenced[slot] = true;
+        int distance = distance(slot);
+        if (distance < scanned && (scannedFirstResident == -1 || distance < distance(scannedFirstResident))) {
+            scannedFirstResident = slot;
+        }
+    }
+
+    @Override
+    public void recordRemove(int slot) {
+        resident[slot] = false;
+        referenced[slot] = false;
+        if (slot == scannedFirstResident) {
+            resetScan();
+        }
+    }
+
+    private int distance(int slot) {
+        int distance = slot - hand;
+        return distance < 0 ? distance + resident.length : distance;
+    }
+
+    private void resetScan() {
+        scanned = 0;
+        scannedFirstResident = -1;
+    }
+
+    @Override
+    public int selectVictim(long key) {
+        resetScan();
+        while (true) {
+            int slot = hand;
+            hand = (hand + 1) % resident.length;
+            if (!resident[slot]) {
+                continue;
+            }
+            if (referenced[slot]) {
+                referenced[slot] = false;
+            } else {
+                resident[slot] = false;
+                return slot;
+            }
+        }
+    }
+
+    // the first resident slot from the hand with a clear bit; if every bit is set
+    // the sweep clears them all and comes back to the first resident slot
+    @Override
+    public int peekVictim(long key) {
+        for (; scanned < resident.length; scanned++) {
+            int slot = hand + scanned;
+            if (slot >= resident.length) {
+                slot -= resident.length;
+            }
+            if (!resident[slot]) {
+                continue;
+            }
+            if (!referenced[slot]) {
+                return slot;
+            }
+            if (scannedFirstResident == -1) {
+                scannedFirstResident = slot;
+            }
+        }
+        return scannedFirstResident;
+    }
+
+    @Override
+    public void save(Checkpoint out) {
+        out.putBooleans(referenced);
+        out.putBooleans(resident);
+        out.putInt(hand);
+    }
+
+    @Override
+    public void restore(Checkpoint in) {
+        in.getBooleans(referenced);
+        in.getBooleans(resident);
+        hand = in.getInt();
+        resetScan();
+    }
+}
@@ -0,0 +1,355 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Compressed in-memory tier between the frames and the disk, like zswap: an
+// evicted page is compressed into a pool of bounded size instead of going to
+// disk, and a fault on it decompresses it back into a frame, taking it out of the
+// pool. When the pool is full its own eviction policy drops entries to make room;
+// an entry newer than the page's copy on disk is written back to swap then.
+//
+// With page data the pages are compressed with Deflater at its fastest level and
+// one that does not shrink is rejected, going to disk as before. Without data
+// every page is modelled to shrink by the same ratio. Sizes are rounded up to
+// ALIGN bytes, the pool allocator's granularity.
+public class CompressedSwap {
+    static final int ALIGN = 16;
+
+    public enum Eviction {
+        OLDEST,    // the page that entered the pool first, i.e. the least recently evicted
+        LARGEST;   // the least compressible page, which frees the most room per write
+
+        public static Eviction parse(String name) {
+            return valueOf(name.trim().toUpperCase());
+        }
+    }
+
+    private final long capacity;          // bytes
+    private final int pageSize;
+    private final Eviction eviction;
+    private final double ratio;           // modelled compression ratio when pages carry no data
+    private final SwapFile swapFile;      // null without page data
+
+    private final LongIntHashMap slotOf = new LongIntHashMap(1024);
+    private long[] keyOf = new long[0];   // slot -> key of the page it holds
+    private int[] sizeOf = new int[0];    // slot -> bytes taken in the pool
+    private boolean[] dirty = new boolean[0];   // slot -> newer than the page's copy on disk
+    private byte[][] data = new byte[0][];
+    private SlotHeap order = new SlotHeap(0);
+    private int[] freeSlots = new int[0];
+    private int freeSlotCount = 0;
+    private int slots = 0;                // slots handed out so far
+    private long stamp = 0;               // insertion counter, orders OLDEST and breaks ties
+
+    private final Deflater deflater;
+    private final Inflater inflater;
+    private final byte[] compressed;
+    private final ByteBuffer scratch;     // a decompressed page on its way to swap
+
+    private long used = 0;
+    private long peakUsed = 0;
+    private long uncompressedBytes = 0;   // original size of the pages held
+    private long stores = 0;
+    private long rejected = 0;
+    private long loads = 0;
+    private long faults = 0;              // page faults the pool served, a subset of the loads
+    private long evictions = 0;
+    private long writeBacks = 0;
+    private long compressNanos = 0;
+    private long decompressNanos = 0;
+
+    // swapFile is the data store's swap file, or null to model the page contents
+    public CompressedSwap(long capacity, int pageSize, Eviction eviction, double ratio, SwapFile swapFile) {
+        if (capacity < ALIGN) {
+            throw new IllegalArgumentException("Compressed pool needs at least " + ALIGN + " bytes");
+        }
+        if (swapFile == null && !(ratio > 1)) {
+            throw new IllegalArgumentException("Compression ratio must be greater than 1");
+        }
+        this.capacity = capacity;
+        this.pageSize = pageSize;
+        this.eviction = eviction;
+        this.ratio = ratio;
+        this.swapFile = swapFile;
+        if (swapFile != null) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+            inflater = new Inflater();
+            compressed = new byte[pageSize];
+            scratch = ByteBuffer.allocateDirect(pageSize);
+        } else {
+            deflater = null;
+            inflater = null;
+            compressed = null;
+            scratch = null;
+        }
+    }
+
+    public boolean contains(long key) {
+        return slotOf.get(key) != -1;
+    }
+
+    // Compresses an evicted page into the pool; frame is its contents, or null
+    // without page data. Returns the number of pages written to disk to make
+    // room, or -1 if the page was rejected and must take the disk path.
+    public int store(long key, ByteBuffer frame, boolean pageDirty) {
+        int size;
+        byte[] bytes = null;
+        if (frame != null) {
+            long start = System.nanoTime();
+            deflater.reset();
+            deflater.setInput(frame);
+            deflater.finish();
+            int length = deflater.deflate(compressed);
+            compressNanos += System.nanoTime() - start;
+            if (!deflater.finished()) {
+                rejected++;
+                return -1;
+            }
+            bytes = Arrays.copyOf(compressed, length);
+            size = align(length);
+        } else {
+            size = align((int) Math.ceil(pageSize / ratio));
+        }
+        if (size >= pageSize || size > capacity) {
+            rejected++;
+            return -1;
+        }
+        // a page still in the pool is replaced
+        int old = slotOf.get(key);
+        if (old != -1) {
+            pageDirty |= dirty[old];
+            release(old);
+        }
+        int written = 0;
+        while (used + size > capacity) {
+            written += evictOne();
+        }
+        int slot = allocate();
+        slotOf.put(key, slot);
+        keyOf[slot] = key;
+        sizeOf[slot] = size;
+        dirty[slot] = pageDirty;
+        data[slot] = bytes;
+        order.update(slot, eviction == Eviction.LARGEST ? -size : stamp, stamp);
+        stamp++;
+        used += size;
+        peakUsed = Math.max(peakUsed, used);
+        uncompressedBytes += pageSize;
+        stores++;
+        return written;
+    }
+
+    // Decompresses the page into frame (null without page data) and drops it from
+    // the pool; returns whether it is newer than its copy on disk
+    public boolean load(long key, ByteBuffer frame) {
+        int slot = slotOf.get(key);
+        if (slot == -1) {
+            throw new IllegalStateException("Page " + key + " is not in the compressed pool");
+        }
+        if (frame != null) {
+            inflate(slot, frame);
+        }
+        boolean newer = dirty[slot];
+        release(slot);
+        loads++;
+        return newer;
+    }
+
+    // the load just made served a page fault rather than a prefetch or promotion
+    public void countFault() { faults++; }
+
+    // hands the page's entry, if it has one, to another key, e.g. a shared page made from it
+    public void move(long fromKey, long toKey) {
+        int slot = slotOf.get(fromKey);
+        if (slot != -1) {
+            slotOf.remove(fromKey);
+            slotOf.put(toKey, slot);
+            keyOf[slot] = toKey;
+        }
+    }
+
+    // keys of the pages in the pool
+    public long[] keys() { return slotOf.keys(); }
+
+    private int evictOne() {
+        int slot = order.pollMin();
+        long key = keyOf[slot];
+        int written = 0;
+        if (dirty[slot]) {
+            if (swapFile != null) {
+                scratch.clear();
+                inflate(slot, scratch);
+                scratch.flip();
+                swapFile.writeOut(key, scratch);
+            }
+            writeBacks++;
+            written = 1;
+        }
+        release(slot);
+        evictions++;
+        return written;
+    }
+
+    private void inflate(int slot, ByteBuffer target) {
+        long start = System.nanoTime();
+        inflater.reset();
+        inflater.setInput(data[slot]);
+        try {
+            while (!inflater.finished()) {
+                if (inflater.inflate(target) == 0 && inflater.needsInput()) {
+                    throw new IllegalStateException("Compressed page " + keyOf[slot] + " is truncated");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Compressed page " + keyOf[slot] + " is corrupt", e);
+        }
+        decompressNanos += System.nanoTime() - start;
+    }
+
+    private void release(int slot) {
+        slotOf.remove(keyOf[slot]);
+        order.remove(slot);
+        used -= sizeOf[slot];
+        uncompressedBytes -= pageSize;
+        data[slot] = null;
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private int allocate() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (slots == keyOf.length) {
+            grow(Math.max(64, slots * 2));
+        }
+        return slots++;
+    }
+
+    private void grow(int length) {
+        keyOf = Arrays.copyOf(keyOf, length);
+        sizeOf = Arrays.copyOf(sizeOf, length);
+        dirty = Arrays.copyOf(dirty, length);
+        data = Arrays.copyOf(data, length);
+        freeSlots = Arrays.copyOf(freeSlots, length);
+        // the heap has a fixed capacity: rebuild it from the entries
+        SlotHeap grown = new SlotHeap(length);
+        for (int slot = 0; slot < slots; slot++) {
+            if (order.contains(slot)) {
+                grown.update(slot, order.getPrimary(slot), order.getSecondary(slot));
+            }
+        }
+        order = grown;
+    }
+
+    private static int align(int bytes) {
+        return (Math.max(bytes, 1) + ALIGN - 1) / ALIGN * ALIGN;
+    }
+
+    // Saves the settings and counters, then the contents in a section that a pool
+    // of another size, policy or ratio skips: it starts empty, its pages on disk
+    void save(Checkpoint out) {
+        out.putLong(capacity);
+        out.putInt(eviction.ordinal());
+        out.putDouble(ratio);
+        out.putLong(faults);
+        int start = out.startSection();
+        saveContents(out);
+        out.endSection(start);
+    }
+
+    void restore(Checkpoint in) {
+        boolean same = in.getLong() == capacity;
+        same &= in.getInt() == eviction.ordinal();
+        same &= in.getDouble() == ratio;
+        faults = in.getLong();
+        if (same) {
+            in.enterSection();
+            restoreContents(in);
+        } else {
+            in.skipSection();
+        }
+    }
+
+    private void saveContents(Checkpoint out) {
+        slotOf.save(out);
+        out.putInt(slots);
+        out.putLongs(Arrays.copyOf(keyOf, slots));
+        out.putInts(Arrays.copyOf(sizeOf, slots));
+        out.putBooleans(Arrays.copyOf(dirty, slots));
+        out.putInts(Arrays.copyOf(freeSlots, freeSlotCount));
+        long[] primary = new long[slots];
+        long[] secondary = new long[slots];
+        for (int slot = 0; slot < slots; slot++) {
+            primary[slot] = order.contains(slot) ? order.getPrimary(slot) : 0;
+            secondary[slot] = order.contains(slot) ? order.getSecondary(slot) : 0;
+        }
+        out.putLongs(primary);
+        out.putLongs(secondary);
+        out.putLong(stamp);
+        out.putLong(used);
+        out.putLong(peakUsed);
+        out.putLong(uncompressedBytes);
+        out.putLong(stores);
+        out.putLong(rejected);
+        out.putLong(loads);
+        out.putLong(evictions);
+        out.putLong(writeBacks);
+    }
+
+    // only pools without page data are checkpointed
+    private void restoreContents(Checkpoint in) {
+        slotOf.restore(in);
+        int saved = in.getInt();
+        slots = 0;
+        freeSlotCount = 0;
+        grow(Math.max(64, saved));
+        slots = saved;
+        long[] keys = in.getLongs();
+        int[] sizes = in.getInts();
+        boolean[] flags = in.getBooleans();
+        int[] free = in.getInts();
+        long[] primary = in.getLongs();
+        long[] secondary = in.getLongs();
+        System.arraycopy(keys, 0, keyOf, 0, saved);
+        System.arraycopy(sizes, 0, sizeOf, 0, saved);
+        System.arraycopy(flags, 0, dirty, 0, saved);
+        System.arraycopy(free, 0, freeSlots, 0, free.length);
+        freeSlotCount = free.length;
+        for (int slot = 0; slot < saved; slot++) {
+            if (slotOf.get(keyOf[slot]) == slot) {
+                order.update(slot, primary[slot], secondary[slot]);
+            }
+        }
+        stamp = in.getLong();
+        used = in.getLong();
+        peakUsed = in.getLong();
+        uncompressedBytes = in.getLong();
+        stores = in.getLong();
+        rejected = in.getLong();
+        loads = in.getLong();
+        evictions = in.getLong();
+        writeBacks = in.getLong();
+    }
+
+    public long getCapacity() { return capacity; }
+    public Eviction getEviction() { return eviction; }
+    public double getRatio() { return ratio; }
+    public long getUsedBytes() { return used; }
+    public long getPeakUsedBytes() { return peakUsed; }
+    public int getPages() { return slotOf.size(); }
+    public long getStores() { return stores; }
+    public long getRejected() { return rejected; }
+    public long getLoads() { return loads; }
+    public long getFaults() { return faults; }
+    public long getEvictions() { return evictions; }
+    public long getWriteBacks() { return writeBacks; }
+    public long getCompressNanos() { return compressNanos; }
+    public long getDecompressNanos() { return decompressNanos; }
+
+    // original size over the pool space of the pages held
+    public double getCompressionRatio() {
+        return used == 0 ? 0 : (double) uncompressedBytes / used;
+    }
+}
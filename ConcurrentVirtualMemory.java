@@ -0,0 +1,284 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Multi-CPU translation engine. Each simulated CPU owns a private TLB, page table
+// entries are guarded by striped locks keyed on (process, page), and frames are
+// reclaimed with a lock-free clock sweep, so translations of different pages
+// proceed in parallel instead of serialising on one monitor.
+//
+// A TLB hit is checked against the frame's current owner, which acts as a lazy
+// TLB shootdown: entries of another CPU that point at a reclaimed frame are
+// discarded the next time that CPU uses them.
+//
+// Replacement is always this clock; there is no pluggable frame policy.
+public class ConcurrentVirtualMemory {
+    private static final int FREE = 0;
+    private static final int BUSY = 1;     // claimed by a CPU that is filling it
+    private static final int MAPPED = 2;
+    private static final int NUM_STRIPES = 1024;
+    private static final int FAULTING = -2;    // page table entry of a page another CPU is faulting in
+
+    private final long numPages;
+    private final int numFrames;
+    private final TLB[] tlbs;                  // one per CPU, only touched by that CPU
+    private volatile int[][] pageTables = new int[0][];
+    private final Object[] stripes = new Object[NUM_STRIPES];
+    private final AtomicLongArray frameKey;    // frame -> VirtualMemory.key(pid, page), -1 if none
+    private final AtomicIntegerArray frameState;
+    private final AtomicIntegerArray referenced;
+    private final AtomicLong clockHand = new AtomicLong();
+
+    private final SimulatorMetrics metrics = new SimulatorMetrics();
+    private final long[] cpuSequence;          // per-CPU reference count for latency sampling, padded
+    private final SimulatorMetrics.Batch[] cpuCounts;   // per-CPU counts awaiting publication, padded
+    private final LongAdder staleTlbHits = new LongAdder();
+    private final ProcessStatsTable processStats = new ProcessStatsTable();
+
+    public ConcurrentVirtualMemory(long numPages, int numFrames, int tlbSize, int tlbAssociativity,
+                                   PolicyType tlbPolicyType, int numCpus) {
+        if (numPages <= 0 || numPages > Integer.MAX_VALUE / 4) {
+            throw new IllegalArgumentException("Concurrent mode uses flat page tables; numPages is too large");
+        }
+        if (numCpus <= 0) {
+            throw new IllegalArgumentException("Number of CPUs must be positive");
+        }
+        // every faulting CPU holds one frame BUSY; the sweep needs at least one more to reclaim
+        if (numFrames <= numCpus) {
+            throw new IllegalArgumentException("Concurrent mode needs more frames than CPUs");
+        }
+        this.numPages = numPages;
+        this.numFrames = numFrames;
+        this.tlbs = new TLB[numCpus];
+        this.cpuSequence = new long[numCpus * 8];
+        this.cpuCounts = new SimulatorMetrics.Batch[numCpus];
+        for (int cpu = 0; cpu < numCpus; cpu++) {
+            tlbs[cpu] = new TLB(tlbSize, tlbAssociativity, tlbPolicyType, null);
+            cpuCounts[cpu] = new PaddedBatch();
+        }
+        for (int i = 0; i < NUM_STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        this.frameKey = new AtomicLongArray(numFrames);
+        for (int i = 0; i < numFrames; i++) {
+            frameKey.set(i, -1);
+        }
+        this.frameState = new AtomicIntegerArray(numFrames);
+        this.referenced = new AtomicIntegerArray(numFrames);
+    }
+
+    // Batches of neighbouring CPUs are allocated back to back; the trailing longs keep
+    // each one's counters off the cache line the next one's are written on
+    private static final class PaddedBatch extends SimulatorMetrics.Batch {
+        @SuppressWarnings("unused")
+        private long p0, p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    private Object stripeOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (h >>> 32) & (NUM_STRIPES - 1)];
+    }
+
+    private int[] pageTableOf(int processId) {
+        int[][] tables = pageTables;
+        if (processId < tables.length && tables[processId] != null) {
+            return tables[processId];
+        }
+        synchronized (this) {
+            tables = pageTables;
+            if (processId < tables.length && tables[processId] != null) {
+                return tables[processId];
+            }
+            // fill a table and publish it in a fresh outer array: the fast path reads
+            // elements without a lock, so only the volatile write may make it visible
+            int[] table = new int[(int) numPages];
+            Arrays.fill(table, -1);
+            tables = Arrays.copyOf(tables, processId < tables.length ? tables.length
+                                           : Math.max(processId + 1, tables.length * 2));
+            tables[processId] = table;
+            pageTables = tables;
+            return table;
+        }
+    }
+
+    // Translates a reference issued on the given CPU. Callers must not use the
+    // same cpu index from two threads at once.
+    public int translate(int cpu, long pageNumber, int processId) {
+        if (pageNumber < 0 || pageNumber >= numPages || processId < 0
+            || processId >= VirtualMemory.SHARED_PAGES) {
+            return -1;
+        }
+
+        VirtualMemory.ProcessStats stats = processStats.getReferenced(processId);
+        SimulatorMetrics.Batch counts = cpuCounts[cpu];
+        int frameNumber = sampledTranslate(cpu, pageNumber, processId, stats, counts);
+        publish(counts, stats);
+        return frameNumber;
+    }
+
+    // Translates pageNumbers[0..count) of one process on the given CPU into
+    // frameNumbers (-1 for pages outside the address space or an invalid process id). The process's stats
+    // are looked up once and the counters are published once per batch; otherwise
+    // this is translate() on each page in turn.
+    public void translate(int cpu, int processId, long[] pageNumbers, int[] frameNumbers, int count) {
+        VirtualMemory.ProcessStats stats = null;
+        SimulatorMetrics.Batch counts = cpuCounts[cpu];
+        for (int i = 0; i < count; i++) {
+            long pageNumber = pageNumbers[i];
+            if (pageNumber < 0 || pageNumber >= numPages || processId < 0
+                || processId >= VirtualMemory.SHARED_PAGES) {
+                frameNumbers[i] = -1;
+                continue;
+            }
+            if (stats == null) {
+                stats = processStats.getReferenced(processId);
+            }
+            frameNumbers[i] = sampledTranslate(cpu, pageNumber, processId, stats, counts);
+        }
+        if (stats != null) {
+            publish(counts, stats);
+        }
+    }
+
+    private void publish(SimulatorMetrics.Batch counts, VirtualMemory.ProcessStats stats) {
+        stats.add(counts.references, counts.tlbMisses, counts.pageFaults);
+        counts.publish(metrics);
+    }
+
+    private int sampledTranslate(int cpu, long pageNumber, int processId, VirtualMemory.ProcessStats stats,
+                                 SimulatorMetrics.Batch counts) {
+        if (!metrics.shouldSample(cpuSequence[cpu * 8]++)) {
+            return translate(cpu, pageNumber, processId, counts);
+        }
+        long start = System.nanoTime();
+        int frameNumber = translate(cpu, pageNumber, processId, counts);
+        long elapsed = System.nanoTime() - start;
+        metrics.recordLatency(elapsed);
+        stats.recordLatency(elapsed);
+        return frameNumber;
+    }
+
+    private int translate(int cpu, long pageNumber, int processId, SimulatorMetrics.Batch counts) {
+        counts.references++;
+        long key = VirtualMemory.key(processId, pageNumber);
+
+        TLB tlb = tlbs[cpu];
+        int frameNumber = tlb.lookup(processId, pageNumber);
+        if (frameNumber != -1) {
+            if (frameKey.get(frameNumber) == key) {
+                referenced.lazySet(frameNumber, 1);
+                counts.tlbHits++;
+                return frameNumber;
+            }
+            // the frame was reclaimed by another CPU since this entry was loaded
+            staleTlbHits.increment();
+            tlb.invalidate(processId, pageNumber);
+        }
+        counts.tlbMisses++;
+
+        int[] pageTable = pageTableOf(processId);
+        Object stripe = stripeOf(key);
+        while (true) {
+            frameNumber = walk(pageTable, (int) pageNumber, key, stripe, counts);
+            // another CPU may have reclaimed the frame once the stripe was released
+            if (frameKey.get(frameNumber) == key) {
+                tlb.insert(processId, pageNumber, frameNumber);
+                return frameNumber;
+            }
+        }
+    }
+
+    // Looks the page up in its table, faulting it in if absent, and marks the frame
+    // referenced while the stripe is held
+    private int walk(int[] pageTable, int page, long key, Object stripe, SimulatorMetrics.Batch counts) {
+        int frameNumber;
+        while (true) {
+            synchronized (stripe) {
+                frameNumber = pageTable[page];
+                if (frameNumber >= 0) {
+                    referenced.set(frameNumber, 1);
+                    return frameNumber;
+                }
+                if (frameNumber == -1) {
+                    // take the fault: CPUs missing on the same page wait for it instead
+                    // of each reclaiming a frame for it
+                    pageTable[page] = FAULTING;
+                    break;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        // claim a frame outside our stripe, since reclaiming it locks the victim's stripe
+        frameNumber = claimFrame();
+        synchronized (stripe) {
+            frameKey.set(frameNumber, key);
+            pageTable[page] = frameNumber;
+            referenced.set(frameNumber, 1);
+            frameState.set(frameNumber, MAPPED);
+        }
+        counts.pageFaults++;
+        counts.diskAccesses++;
+        return frameNumber;
+    }
+
+    // Clock sweep shared by all CPUs: free frames are taken directly, mapped
+    // frames get a second chance through their reference bit.
+    private int claimFrame() {
+        while (true) {
+            int frame = (int) (clockHand.getAndIncrement() % numFrames);
+            int state = frameState.get(frame);
+            if (state == FREE) {
+                if (frameState.compareAndSet(frame, FREE, BUSY)) {
+                    return frame;
+                }
+            } else if (state == MAPPED) {
+                if (referenced.get(frame) != 0) {
+                    referenced.set(frame, 0);
+                } else if (frameState.compareAndSet(frame, MAPPED, BUSY)) {
+                    evict(frame);
+                    return frame;
+                }
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private void evict(int frame) {
+        long victim = frameKey.get(frame);
+        int owner = (int) (victim >>> VirtualMemory.MAX_PAGE_BITS);
+        int page = (int) (victim & VirtualMemory.PAGE_MASK);
+        synchronized (stripeOf(victim)) {
+            int[] table = pageTables[owner];
+            if (table[page] == frame) {
+                table[page] = -1;
+            }
+            frameKey.set(frame, -1);
+        }
+        metrics.evictions.increment();
+        VirtualMemory.ProcessStats stats = processStats.get(owner);
+        if (stats != null) {
+            stats.incrementEvictions();
+        }
+    }
+
+    public long getTotalPageReferences() { return metrics.getReferences(); }
+    public long getTlbMisses() { return metrics.getTlbMisses(); }
+    public long getPageFaults() { return metrics.getPageFaults(); }
+    public long getDiskAccesses() { return metrics.getDiskAccesses(); }
+    public long getEvictions() { return metrics.getEvictions(); }
+    public SimulatorMetrics getMetrics() { return metrics; }
+    public long getStaleTlbHits() { return staleTlbHits.sum(); }
+    public int getNumCpus() { return tlbs.length; }
+
+    public double getTlbMissRatio() { return metrics.getTlbMissRatio(); }
+    public double getPageFaultRatio() { return metrics.getPageFaultRatio(); }
+
+    // snapshot in process id order
+    public Map<Integer, VirtualMemory.ProcessStats> getProcessStats() {
+        return processStats.asMap();
+    }
+}
@@ -0,0 +1,100 @@
+import java.util.Arrays;
+
+// A reference stream held in memory as parallel primitive arrays, for runs that
+// need to see the trace more than once (OPT lookahead, repeated replays). Arrays
+// index it, so it holds at most MAX_REFERENCES references, a little under 2^31.
+public class DecodedTrace implements TraceReplay.Sink {
+    // the longest array the JVM reliably allocates
+    static final int MAX_REFERENCES = Integer.MAX_VALUE - 8;
+
+    private long[] pages = new long[1 << 16];
+    private int[] processIds = new int[1 << 16];
+    private long[] writes = new long[(1 << 16) / 64];   // one bit per reference
+    private int size = 0;
+
+    @Override
+    public void reference(long pageNumber, int processId) {
+        reference(pageNumber, processId, false);
+    }
+
+    @Override
+    public void reference(long pageNumber, int processId, boolean write) {
+        if (processId < 0 || processId >= VirtualMemory.SHARED_PAGES) {
+            throw new IllegalArgumentException("Process id " + processId + " is out of range, the limit is "
+                                               + (VirtualMemory.SHARED_PAGES - 1));
+        }
+        if (size == pages.length) {
+            if (size == MAX_REFERENCES) {
+                throw new IllegalStateException("Traces held in memory (OPT, --timing, --cpus, sweeps and miss-ratio"
+                                                + " curves) are limited to " + MAX_REFERENCES + " references");
+            }
+            int length = (int) Math.min(MAX_REFERENCES, 2L * size);
+            pages = Arrays.copyOf(pages, length);
+            processIds = Arrays.copyOf(processIds, length);
+            writes = Arrays.copyOf(writes, (length + 63) / 64);
+        }
+        pages[size] = pageNumber;
+        processIds[size] = processId;
+        if (write) {
+            writes[size >>> 6] |= 1L << size;
+        }
+        size++;
+    }
+
+    public void replay(TraceReplay.Sink sink) {
+        for (int i = 0; i < size; i++) {
+            sink.reference(pages[i], processIds[i], isWrite(i));
+        }
+    }
+
+    // keys in the form VirtualMemory hands to its replacement policies
+    public OptimalPolicy.Lookahead lookahead() {
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = VirtualMemory.key(processIds[i], pages[i]);
+        }
+        return new OptimalPolicy.Lookahead(keys, size);
+    }
+
+    // One SimulatedProcess per process id in the trace, in id order, each issuing
+    // that process's references in trace order, for drivers that choose the
+    // interleaving themselves. Only the ids present are indexed, so sparse ids
+    // cost nothing.
+    public SimulatedProcess[] processes() {
+        LongIntHashMap slotOf = new LongIntHashMap(64);
+        for (int i = 0; i < size; i++) {
+            slotOf.put(processIds[i], 0);
+        }
+        long[] ids = slotOf.keys();
+        Arrays.sort(ids);
+        for (int slot = 0; slot < ids.length; slot++) {
+            slotOf.put(ids[slot], slot);
+        }
+        int[] counts = new int[ids.length];
+        for (int i = 0; i < size; i++) {
+            counts[slotOf.get(processIds[i])]++;
+        }
+        int[][] indices = new int[ids.length][];
+        for (int slot = 0; slot < ids.length; slot++) {
+            indices[slot] = new int[counts[slot]];
+            counts[slot] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            int slot = slotOf.get(processIds[i]);
+            indices[slot][counts[slot]++] = i;
+        }
+        SimulatedProcess[] processes = new SimulatedProcess[ids.length];
+        for (int slot = 0; slot < ids.length; slot++) {
+            int[] own = indices[slot];
+            int[] position = {0};
+            processes[slot] = new SimulatedProcess((int) ids[slot], 0, own.length, () -> pages[own[position[0]]],
+                                                   () -> isWrite(own[position[0]++]));
+        }
+        return processes;
+    }
+
+    public int size() { return size; }
+    public long getPage(int index) { return pages[index]; }
+    public int getProcessId(int index) { return processIds[index]; }
+    public boolean isWrite(int index) { return (writes[index >>> 6] & (1L << index)) != 0; }
+}
@@ -0,0 +1,63 @@
+import java.util.Collections;
+
+import javax.swing.AbstractListModel;
+
+// Bounded event log for a JList. Lines live in a ring buffer, so memory and
+// rendering cost stay flat however long a run lasts; the oldest lines are
+// dropped once the buffer is full.
+public class EventLogModel extends AbstractListModel<String> {
+    private static final long serialVersionUID = 1L;
+
+    private final String[] lines;
+    private int head = 0;      // index of the oldest line
+    private int size = 0;
+
+    public EventLogModel(int capacity) {
+        lines = new String[capacity];
+    }
+
+    public void add(String line) {
+        addAll(Collections.singletonList(line));
+    }
+
+    // Appends a batch with one removal and one insertion event. Only rows the view
+    // had before the batch are reported removed; lines of a batch larger than the
+    // log that are dropped again within it are never reported at all.
+    public void addAll(Iterable<String> batch) {
+        int before = size;
+        int dropped = 0;
+        for (String line : batch) {
+            if (size == lines.length) {
+                head = (head + 1) % lines.length;
+                size--;
+                dropped++;
+            }
+            lines[(head + size) % lines.length] = line;
+            size++;
+        }
+        int removed = Math.min(dropped, before);
+        if (removed > 0) {
+            fireIntervalRemoved(this, 0, removed - 1);
+        }
+        int kept = before - removed;
+        if (size > kept) {
+            fireIntervalAdded(this, kept, size - 1);
+        }
+    }
+
+    public void clear() {
+        int removed = size;
+        head = 0;
+        size = 0;
+        if (removed > 0) {
+            fireIntervalRemoved(this, 0, removed - 1);
+        }
+    }
+
+    @Override public int getSize() { return size; }
+
+    @Override
+    public String getElementAt(int index) {
+        return lines[(head + index) % lines.length];
+    }
+}
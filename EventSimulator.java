@@ -0,0 +1,288 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Discrete-event driver that runs SimulatedProcesses against a VirtualMemory on a
+// virtual clock. Each of `cpus` simulated CPUs runs a process for up to `quantum`
+// references; every reference advances the clock by the TimingModel latencies of
+// what it actually did (TLB hit, walk depth). A page fault queues its transfers on
+// a single FIFO disk and blocks only the faulting process: its CPU picks up the
+// next ready process, so faults overlap with other processes' work. Events are
+// handled in time order without sleeping, so runs take as long as the host needs
+// to translate the references, not as long as the simulated time. Processes that
+// load control suspends are parked until the VirtualMemory resumes them.
+//
+// Only the timing of a fault is deferred, not its effect: the VirtualMemory maps
+// the page and evicts its victim when the fault is issued. Until the transfer
+// completes, other processes already see the page resident (a shared or
+// copy-on-write page hits for them) and no longer see the victim. Timing is
+// exact for private pages whose victim is not referenced again in that window.
+public class EventSimulator {
+    private final VirtualMemory vm;
+    private final TimingModel timing;
+    private final int cpus;
+    private final int quantum;
+    private final List<SimulatedProcess> processes = new ArrayList<>();
+
+    // event heap ordered by (time, order); an event >= 0 is the next reference on
+    // that CPU, event < 0 wakes process -event - 1 when its disk transfer completes
+    private long[] eventTime;
+    private long[] eventOrder;
+    private int[] eventTarget;
+    private int eventCount = 0;
+    private long nextOrder = 0;
+
+    private int[] readyQueue;          // ring of process indices
+    private int readyHead = 0, readyCount = 0;
+    private int[] running;             // cpu -> process index, -1 when idle
+    private int[] slice;               // references run in the current quantum
+    private long[] idleSince;          // when an idle CPU finished its last reference
+    private long[] pendingReferences;  // per process, not yet added to its ProcessStats
+    private long[] pendingNanos;
+    private SlotDeque parked;          // suspended process indices, longest parked first
+    private int blocked = 0;           // processes waiting for the disk
+
+    private long now = 0;              // time of the event being handled
+    private long clock = 0;            // latest time any CPU or disk transfer reached
+    private long diskFreeAt = 0;
+    private long cpuBusyNanos = 0;
+    private long diskBusyNanos = 0;
+    private long totalReferences = 0;
+    private long totalAccessNanos = 0;
+
+    public EventSimulator(VirtualMemory vm, TimingModel timing, int cpus, int quantum) {
+        if (cpus <= 0 || quantum <= 0) {
+            throw new IllegalArgumentException("CPU count and quantum must be positive");
+        }
+        this.vm = vm;
+        this.timing = timing;
+        this.cpus = cpus;
+        this.quantum = quantum;
+    }
+
+    public void add(SimulatedProcess process) {
+        process.setStats(vm.getOrCreateProcessStats(process.getProcessId()));
+        processes.add(process);
+    }
+
+    // Runs every process to completion and returns the simulated time it took
+    public long run() {
+        int n = processes.size();
+        eventTime = new long[cpus + n];
+        eventOrder = new long[cpus + n];
+        eventTarget = new int[cpus + n];
+        readyQueue = new int[n];
+        running = new int[cpus];
+        slice = new int[cpus];
+        idleSince = new long[cpus];
+        pendingReferences = new long[n];
+        pendingNanos = new long[n];
+        parked = new SlotDeque(n);
+
+        for (int p = 0; p < n; p++) {
+            if (processes.get(p).isFinished()) {
+                processes.get(p).getStats().setStatus("FINISHED");
+            } else {
+                enqueue(p);
+            }
+        }
+        for (int cpu = 0; cpu < cpus; cpu++) {
+            dispatch(cpu, 0);
+        }
+        while (eventCount > 0) {
+            int target = eventTarget[0];
+            now = eventTime[0];
+            clock = Math.max(clock, now);
+            pop();
+            if (target >= 0) {
+                step(target);
+            } else {
+                wake(-target - 1);
+            }
+        }
+        clock = Math.max(clock, diskFreeAt);
+        vm.getMetrics().addAccessTime(totalReferences, totalAccessNanos);
+        return clock;
+    }
+
+    private void step(int cpu) {
+        int p = running[cpu];
+        SimulatedProcess process = processes.get(p);
+        long start = now;
+        long pageNumber = process.nextPage();
+        vm.searchPageTable(pageNumber, process.getProcessId(), process.isWrite());
+
+        long issued = start + timing.cpuNanos(vm);
+        cpuBusyNanos += issued - start;
+        long done = issued;
+        int waits = vm.getLastDiskWaits();
+        int transfers = waits + vm.getLastBackgroundTransfers();
+        if (transfers > 0) {
+            long diskStart = Math.max(issued, diskFreeAt);
+            if (waits > 0) {
+                done = diskStart + waits * timing.diskNanos;
+            }
+            diskFreeAt = diskStart + transfers * timing.diskNanos;
+            diskBusyNanos += transfers * timing.diskNanos;
+        }
+        pendingReferences[p]++;
+        pendingNanos[p] += done - start;
+        clock = Math.max(clock, issued);
+
+        if (done > issued) {
+            publish(p);
+            process.getStats().setStatus("BLOCKED");
+            blocked++;
+            push(done, -p - 1);
+            dispatch(cpu, issued);
+        } else if (process.isFinished()) {
+            finish(p);
+            dispatch(cpu, issued);
+        } else if ((++slice[cpu] >= quantum && readyCount > 0) || vm.isSuspended(process.getProcessId())) {
+            publish(p);
+            enqueue(p);
+            dispatch(cpu, issued);
+        } else {
+            push(issued, cpu);
+        }
+    }
+
+    private void wake(int p) {
+        blocked--;
+        if (processes.get(p).isFinished()) {
+            finish(p);
+            return;
+        }
+        enqueue(p);
+        for (int cpu = 0; cpu < cpus; cpu++) {
+            if (running[cpu] == -1) {
+                dispatch(cpu, Math.max(now, idleSince[cpu]));
+                return;
+            }
+        }
+    }
+
+    private void dispatch(int cpu, long time) {
+        running[cpu] = -1;
+        unpark();
+        int p = -1;
+        while (readyCount > 0 && p == -1) {
+            p = readyQueue[readyHead];
+            readyHead = (readyHead + 1) % readyQueue.length;
+            readyCount--;
+            if (vm.isSuspended(processes.get(p).getProcessId())) {
+                processes.get(p).getStats().setStatus("SUSPENDED");
+                parked.addLast(p);
+                p = -1;
+            }
+        }
+        if (p == -1 && !parked.isEmpty() && blocked == 0 && !anyRunning()) {
+            // nothing else can run, so no window will resume it: swap it back in now
+            p = parked.removeFirst();
+            vm.resume(processes.get(p).getProcessId());
+        }
+        if (p == -1) {
+            idleSince[cpu] = time;
+            return;
+        }
+        running[cpu] = p;
+        slice[cpu] = 0;
+        processes.get(p).getStats().setStatus("RUNNING");
+        push(time, cpu);
+    }
+
+    private void unpark() {
+        for (int p = parked.peekFirst(); p != -1; ) {
+            int next = parked.next(p);
+            if (!vm.isSuspended(processes.get(p).getProcessId())) {
+                parked.remove(p);
+                enqueue(p);
+            }
+            p = next;
+        }
+    }
+
+    private boolean anyRunning() {
+        for (int cpu = 0; cpu < cpus; cpu++) {
+            if (running[cpu] != -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void enqueue(int p) {
+        readyQueue[(readyHead + readyCount) % readyQueue.length] = p;
+        readyCount++;
+        processes.get(p).getStats().setStatus("READY");
+    }
+
+    private void finish(int p) {
+        publish(p);
+        processes.get(p).getStats().setStatus("FINISHED");
+    }
+
+    private void publish(int p) {
+        processes.get(p).getStats().addAccessTime(pendingReferences[p], pendingNanos[p]);
+        totalReferences += pendingReferences[p];
+        totalAccessNanos += pendingNanos[p];
+        pendingReferences[p] = pendingNanos[p] = 0;
+    }
+
+    private boolean before(int a, int b) {
+        return eventTime[a] < eventTime[b] || (eventTime[a] == eventTime[b] && eventOrder[a] < eventOrder[b]);
+    }
+
+    private void swap(int a, int b) {
+        long time = eventTime[a]; eventTime[a] = eventTime[b]; eventTime[b] = time;
+        long order = eventOrder[a]; eventOrder[a] = eventOrder[b]; eventOrder[b] = order;
+        int target = eventTarget[a]; eventTarget[a] = eventTarget[b]; eventTarget[b] = target;
+    }
+
+    private void push(long time, int target) {
+        int i = eventCount++;
+        eventTime[i] = time;
+        eventOrder[i] = nextOrder++;
+        eventTarget[i] = target;
+        while (i > 0 && before(i, (i - 1) / 2)) {
+            swap(i, (i - 1) / 2);
+            i = (i - 1) / 2;
+        }
+    }
+
+    private void pop() {
+        swap(0, --eventCount);
+        int i = 0;
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < eventCount && before(left, smallest)) {
+                smallest = left;
+            }
+            if (right < eventCount && before(right, smallest)) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    public long getClockNanos() { return clock; }
+    public long getReferences() { return totalReferences; }
+    public int getCpus() { return cpus; }
+
+    public double getEffectiveAccessNanos() {
+        return totalReferences == 0 ? 0 : (double) totalAccessNanos / totalReferences;
+    }
+
+    public double getCpuUtilization() {
+        return clock == 0 ? 0 : (double) cpuBusyNanos / ((double) clock * cpus);
+    }
+
+    public double getDiskUtilization() {
+        return clock == 0 ? 0 : (double) diskBusyNanos / clock;
+    }
+}
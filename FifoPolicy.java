@@ -0,0 +1,29 @@
+// First-in first-out: evicts the slot that was loaded earliest.
+public class FifoPolicy implements ReplacementPolicy {
+    private final SlotDeque queue;
+
+    public FifoPolicy(int capacity) {
+        queue = new SlotDeque(capacity);
+    }
+
+    @Override
+    public void recordAccess(int slot, long key) { }
+
+    @Override
+    public void recordInsert(int slot, long key) { queue.addLast(slot); }
+
+    @Override
+    public void recordRemove(int slot) { queue.remove(slot); }
+
+    @Override
+    public int selectVictim(long key) { return queue.removeFirst(); }
+
+    @Override
+    public int peekVictim(long key) { return queue.peekFirst(); }
+
+    @Override
+    public void save(Checkpoint out) { queue.save(out); }
+
+    @Override
+    public void restore(Checkpoint in) { queue.restore(in); }
+}
@@ -0,0 +1,26 @@
+import java.util.Arrays;
+
+// Dense single-level table: one int per page of the address space.
+public class FlatPageTable implements PageTable {
+    private final int[] frames;
+
+    public FlatPageTable(int numPages) {
+        frames = new int[numPages];
+        Arrays.fill(frames, -1);
+    }
+
+    @Override
+    public int lookup(long pageNumber) { return frames[(int) pageNumber]; }
+
+    @Override
+    public void map(long pageNumber, int frameNumber) { frames[(int) pageNumber] = frameNumber; }
+
+    @Override
+    public void unmap(long pageNumber) { frames[(int) pageNumber] = -1; }
+
+    @Override
+    public int getLastWalkAccesses() { return 1; }
+
+    @Override
+    public long getFootprintBytes() { return 4L * frames.length; }
+}
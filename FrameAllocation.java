@@ -0,0 +1,16 @@
+// How frames are divided between processes.
+//   GLOBAL       every fault may take any frame the replacement policy picks
+//   FIXED        equal local partitions of the frames among the active processes
+//   WORKING_SET  each process keeps the pages it used in its last window of references
+//   PFF          each process grows while it faults often and shrinks when it
+//                faults rarely (page-fault frequency)
+// The local strategies replace the least recently used page of the faulting
+// process when it may not grow.
+public enum FrameAllocation {
+    GLOBAL, FIXED, WORKING_SET, PFF;
+
+    public static FrameAllocation parse(String name) {
+        String upper = name.trim().toUpperCase();
+        return upper.equals("WS") ? WORKING_SET : valueOf(upper);
+    }
+}
@@ -0,0 +1,46 @@
+import javax.swing.table.AbstractTableModel;
+
+// Physical frames and the (process, page) each one holds, i.e. the inverted
+// page table. Its size follows physical memory, not the address space.
+public class FrameTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = { "Frame#", "Process", "Page#" };
+
+    private final VirtualMemory vm;
+    private int[] owners, nextOwners;
+    private long[] pages, nextPages;
+
+    public FrameTableModel(VirtualMemory vm) {
+        this.vm = vm;
+        int frames = vm.getNumFrames();
+        owners = new int[frames];
+        pages = new long[frames];
+        nextOwners = new int[frames];
+        nextPages = new long[frames];
+        vm.snapshotFrames(owners, pages);
+    }
+
+    public void refresh() {
+        vm.snapshotFrames(nextOwners, nextPages);
+        for (int i = 0; i < owners.length; i++) {
+            if (owners[i] != nextOwners[i] || pages[i] != nextPages[i]) {
+                owners[i] = nextOwners[i];
+                pages[i] = nextPages[i];
+                fireTableRowsUpdated(i, i);
+            }
+        }
+    }
+
+    @Override public int getRowCount() { return owners.length; }
+    @Override public int getColumnCount() { return COLUMNS.length; }
+    @Override public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case 0: return row;
+            case 1: return owners[row];
+            default: return pages[row];
+        }
+    }
+}
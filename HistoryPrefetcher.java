@@ -0,0 +1,68 @@
+import java.util.Arrays;
+
+// Correlation (Markov) prefetching: remembers, per process, which page faulted
+// right after each faulting page and, on a repeat fault, follows that chain
+// `degree` steps. History lives in a fixed-size direct-mapped table, so old
+// correlations are overwritten rather than growing memory.
+public class HistoryPrefetcher implements Prefetcher {
+    private static final int TABLE_BITS = 16;
+
+    private final long[] tags = new long[1 << TABLE_BITS];   // VirtualMemory.key of the earlier fault, -1 if empty
+    private final long[] successors = new long[1 << TABLE_BITS];
+    private long[] lastFault = new long[64];
+
+    public HistoryPrefetcher() {
+        Arrays.fill(tags, -1);
+        Arrays.fill(lastFault, -1);
+    }
+
+    private static int slotOf(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - TABLE_BITS));
+    }
+
+    public int predict(int processId, long faultPage, long[] candidates) {
+        if (processId >= lastFault.length) {
+            int length = Math.max(processId + 1, lastFault.length * 2);
+            int old = lastFault.length;
+            lastFault = Arrays.copyOf(lastFault, length);
+            Arrays.fill(lastFault, old, length, -1);
+        }
+        if (lastFault[processId] != -1) {
+            long previous = VirtualMemory.key(processId, lastFault[processId]);
+            int slot = slotOf(previous);
+            tags[slot] = previous;
+            successors[slot] = faultPage;
+        }
+        lastFault[processId] = faultPage;
+
+        int count = 0;
+        long page = faultPage;
+        while (count < candidates.length) {
+            long key = VirtualMemory.key(processId, page);
+            int slot = slotOf(key);
+            if (tags[slot] != key) {
+                break;
+            }
+            page = successors[slot];
+            if (page == faultPage) {
+                break;
+            }
+            candidates[count++] = page;
+        }
+        return count;
+    }
+
+    @Override
+    public void save(Checkpoint out) {
+        out.putLongs(tags);
+        out.putLongs(successors);
+        out.putLongs(lastFault);
+    }
+
+    @Override
+    public void restore(Checkpoint in) {
+        in.getLongs(tags);
+        in.getLongs(successors);
+        lastFault = in.getLongs();
+    }
+}
@@ -0,0 +1,28 @@
+// Working-set locality: a contiguous hot region of hotFraction * numPages pages,
+// placed at a seeded offset, receives hotProbability of the references and the
+// rest fall uniformly on the whole address space.
+public class HotspotWorkload extends Workload {
+    private final long numPages;
+    private final long hotBase;
+    private final long hotSize;
+    private final double hotProbability;
+
+    public HotspotWorkload(long numPages, double hotFraction, double hotProbability, long seed) {
+        super(seed);
+        if (hotFraction <= 0 || hotFraction > 1 || hotProbability < 0 || hotProbability > 1) {
+            throw new IllegalArgumentException("Hotspot fraction must be in (0, 1] and probability in [0, 1]");
+        }
+        this.numPages = numPages;
+        this.hotSize = Math.max(1, (long) (numPages * hotFraction));
+        this.hotBase = nextLong(numPages - hotSize + 1);
+        this.hotProbability = hotProbability;
+    }
+
+    @Override
+    public long getAsLong() {
+        if (nextDouble() < hotProbability) {
+            return hotBase + nextLong(hotSize);
+        }
+        return nextLong(numPages);
+    }
+}
@@ -0,0 +1,163 @@
+// Huge page sizes and the regions promoted to them. Size class c >= 1 spans
+// 2^shift(c) base pages. An aligned region of a process is promoted to a huge
+// page once enough of its base pages are resident, and demoted again as soon as
+// one of them is evicted. regionPages holds, per class, how many base pages of
+// each (process, region) are resident, with PROMOTED set while the region is a
+// huge page. Class 0, the base page, is always present.
+public class HugePages {
+    private static final int PROMOTED = 1 << 30;
+    private final int numFrames;
+    private int[] shifts = new int[0];
+    private LongIntHashMap[] regionPages = new LongIntHashMap[0];
+    private double promotionThreshold = 1.0;
+    private int promotedRegions = 0;
+    private long promotions = 0;
+    private long demotions = 0;
+    private long promotionFills = 0;
+    private long[] tlbHits = new long[1];         // per size class
+    private long[] tlbMisses = new long[1];
+
+    public HugePages(int numFrames) {
+        this.numFrames = numFrames;
+    }
+
+    // shifts[c - 1] is the log2 of the base pages in class c
+    public void setShifts(int[] shifts) {
+        this.shifts = shifts;
+        this.regionPages = new LongIntHashMap[shifts.length];
+        for (int c = 0; c < shifts.length; c++) {
+            regionPages[c] = new LongIntHashMap(numFrames);
+        }
+        this.tlbHits = new long[shifts.length + 1];
+        this.tlbMisses = new long[shifts.length + 1];
+    }
+
+    public void setPromotionThreshold(double threshold) {
+        this.promotionThreshold = threshold;
+    }
+
+    // number of huge page sizes
+    public int sizes() { return shifts.length; }
+    public int shift(int sizeClass) { return shifts[sizeClass - 1]; }
+    public int[] getShifts() { return shifts; }
+    public boolean anyPromoted() { return promotedRegions > 0; }
+
+    // largest huge page size class backing the page, or 0 for a base page
+    public int promotedClass(int processId, long pageNumber) {
+        for (int c = shifts.length; c >= 1; c--) {
+            int pages = regionPages[c - 1].get(VirtualMemory.key(processId, pageNumber >>> shifts[c - 1]));
+            if (pages != -1 && (pages & PROMOTED) != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    public void pageLoaded(int processId, long pageNumber) {
+        for (int c = 1; c <= shifts.length; c++) {
+            long regionKey = VirtualMemory.key(processId, pageNumber >>> shifts[c - 1]);
+            int pages = regionPages[c - 1].get(regionKey);
+            regionPages[c - 1].put(regionKey, pages == -1 ? 1 : pages + 1);
+        }
+    }
+
+    // Returns the classes whose region around the page this demoted, as a bit per
+    // class, so the caller can drop their huge TLB entries
+    public int pageEvicted(int processId, long pageNumber) {
+        int demoted = 0;
+        for (int c = 1; c <= shifts.length; c++) {
+            long regionKey = VirtualMemory.key(processId, pageNumber >>> shifts[c - 1]);
+            int pages = regionPages[c - 1].get(regionKey);
+            pages = pages == -1 ? -1 : pages - 1;
+            if ((pages & PROMOTED) != 0) {
+                pages &= ~PROMOTED;
+                demoted |= 1 << c;
+                promotedRegions--;
+                demotions++;
+            }
+            if (pages == 0) {
+                regionPages[c - 1].remove(regionKey);
+            } else {
+                regionPages[c - 1].put(regionKey, pages);
+            }
+        }
+        return demoted;
+    }
+
+    // Largest class whose region around the page has at least promotionThreshold
+    // of its base pages resident, is not promoted yet and fits in memory and in
+    // numPages; 0 if there is none
+    public int promotionCandidate(int processId, long pageNumber, long numPages) {
+        for (int c = shifts.length; c >= 1; c--) {
+            long span = 1L << shifts[c - 1];
+            long region = pageNumber >>> shifts[c - 1];
+            int pages = regionPages[c - 1].get(VirtualMemory.key(processId, region));
+            if (span <= numFrames && (region << shifts[c - 1]) + span <= numPages && (pages & PROMOTED) == 0
+                && pages >= Math.ceil(promotionThreshold * span)) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    public int residentPages(int sizeClass, int processId, long region) {
+        int pages = regionPages[sizeClass - 1].get(VirtualMemory.key(processId, region));
+        return pages == -1 ? 0 : pages & ~PROMOTED;
+    }
+
+    // Promotes the region, which must have all its base pages resident
+    public void promote(int sizeClass, int processId, long region) {
+        int span = (int) (1L << shifts[sizeClass - 1]);
+        regionPages[sizeClass - 1].put(VirtualMemory.key(processId, region), span | PROMOTED);
+        promotedRegions++;
+        promotions++;
+    }
+
+    // Demotes a region swallowed by a larger one being promoted, without counting
+    // a demotion; returns whether it was promoted
+    public boolean absorb(int sizeClass, int processId, long region) {
+        long regionKey = VirtualMemory.key(processId, region);
+        int inner = regionPages[sizeClass - 1].get(regionKey);
+        if (inner == -1 || (inner & PROMOTED) == 0) {
+            return false;
+        }
+        regionPages[sizeClass - 1].put(regionKey, inner & ~PROMOTED);
+        promotedRegions--;
+        return true;
+    }
+
+    public void countFill() { promotionFills++; }
+    public void countTlbHit(int sizeClass) { tlbHits[sizeClass]++; }
+    public void countTlbMiss(int sizeClass) { tlbMisses[sizeClass]++; }
+
+    void save(Checkpoint out) {
+        for (LongIntHashMap regions : regionPages) {
+            regions.save(out);
+        }
+        out.putInt(promotedRegions);
+        out.putLong(promotions);
+        out.putLong(demotions);
+        out.putLong(promotionFills);
+        out.putLongs(tlbHits);
+        out.putLongs(tlbMisses);
+    }
+
+    void restore(Checkpoint in) {
+        for (LongIntHashMap regions : regionPages) {
+            regions.restore(in);
+        }
+        promotedRegions = in.getInt();
+        promotions = in.getLong();
+        demotions = in.getLong();
+        promotionFills = in.getLong();
+        in.getLongs(tlbHits);
+        in.getLongs(tlbMisses);
+    }
+
+    public int getPromotedRegions() { return promotedRegions; }
+    public long getPromotions() { return promotions; }
+    public long getDemotions() { return demotions; }
+    public long getPromotionFills() { return promotionFills; }
+    public long getTlbHits(int sizeClass) { return tlbHits[sizeClass]; }
+    public long getTlbMisses(int sizeClass) { return tlbMisses[sizeClass]; }
+}
@@ -0,0 +1,39 @@
+// Least frequently used: evicts the slot with the fewest references since it
+// was loaded, breaking ties by least recent use. O(log n) through a slot heap.
+public class LfuPolicy implements ReplacementPolicy {
+    private final SlotHeap heap;
+    private long clock = 0;
+
+    public LfuPolicy(int capacity) {
+        heap = new SlotHeap(capacity);
+    }
+
+    @Override
+    public void recordAccess(int slot, long key) {
+        heap.update(slot, heap.getPrimary(slot) + 1, clock++);
+    }
+
+    @Override
+    public void recordInsert(int slot, long key) { heap.update(slot, 1, clock++); }
+
+    @Override
+    public void recordRemove(int slot) { heap.remove(slot); }
+
+    @Override
+    public int selectVictim(long key) { return heap.pollMin(); }
+
+    @Override
+    public int peekVictim(long key) { return heap.peekMin(); }
+
+    @Override
+    public void save(Checkpoint out) {
+        heap.save(out);
+        out.putLong(clock);
+    }
+
+    @Override
+    public void restore(Checkpoint in) {
+        heap.restore(in);
+        clock = in.getLong();
+    }
+}
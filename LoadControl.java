@@ -0,0 +1,142 @@
+import java.util.Arrays;
+
+// Thrashing detection and the processes swapped out to stop it. The fault ratio
+// is checked every WINDOW references and a window is thrashing when it exceeds
+// thrashingFaultRatio with memory full, or when a local strategy had to refuse a
+// process the frames it asked for. When enabled, a thrashing window suspends a
+// process and a quiet one resumes the longest-suspended; the simulator picks the
+// process and moves its frames.
+public class LoadControl {
+    static final int WINDOW = 4096;
+
+    public enum Action { NONE, SUSPEND, RESUME }
+
+    private boolean enabled = false;
+    private double thrashingFaultRatio = 0.3;
+    private double resumeFaultRatio = 0.1;
+    private int windowReferences = 0;
+    private int windowFaults = 0;
+    private boolean demandExceeded = false;
+    private boolean suspendedThisWindow = false;
+    private boolean thrashing = false;
+    private long thrashingEpisodes = 0;
+    private long suspensions = 0;
+    private long resumes = 0;
+    private boolean[] suspended = new boolean[0];
+    private SlotDeque suspendedOrder = new SlotDeque(0);   // suspended pids, longest suspended first
+
+    public void configure(boolean enabled, double thrashingFaultRatio, double resumeFaultRatio) {
+        this.enabled = enabled;
+        this.thrashingFaultRatio = thrashingFaultRatio;
+        this.resumeFaultRatio = resumeFaultRatio;
+    }
+
+    // counts a reference; true when it ends the window and endWindow is due
+    public boolean countReference() {
+        return ++windowReferences == WINDOW;
+    }
+
+    public void countFault() { windowFaults++; }
+
+    // A local strategy could not give a process the frames it is entitled to.
+    // Returns whether another process should be suspended to make room.
+    public boolean demandExceeded(int activeProcesses) {
+        demandExceeded = true;
+        return enabled && activeProcesses > 1;
+    }
+
+    // Closes the window and says what to do about it. memoryFull is whether no
+    // frame is free; activeProcesses those that have referenced memory and are
+    // not suspended.
+    public Action endWindow(boolean memoryFull, int activeProcesses) {
+        double faultRatio = (double) windowFaults / windowReferences;
+        boolean nowThrashing = (faultRatio >= thrashingFaultRatio && memoryFull) || demandExceeded;
+        if (nowThrashing && !thrashing) {
+            thrashingEpisodes++;
+        }
+        thrashing = nowThrashing;
+        Action action = Action.NONE;
+        if (enabled && !suspendedThisWindow) {
+            if (thrashing && activeProcesses > 1) {
+                action = Action.SUSPEND;
+            } else if (!thrashing && faultRatio <= resumeFaultRatio && !suspendedOrder.isEmpty()) {
+                action = Action.RESUME;
+            }
+        }
+        windowReferences = windowFaults = 0;
+        demandExceeded = suspendedThisWindow = false;
+        return action;
+    }
+
+    public boolean isSuspended(int processId) {
+        return processId < suspended.length && suspended[processId];
+    }
+
+    // inWindow is whether it makes room for a demand within the current window,
+    // which leaves the window's end to let the process settle
+    public void suspend(int processId, boolean inWindow) {
+        if (processId >= suspended.length) {
+            suspended = Arrays.copyOf(suspended, Math.max(processId + 1, suspended.length * 2));
+            SlotDeque grown = new SlotDeque(suspended.length);
+            while (!suspendedOrder.isEmpty()) {
+                grown.addLast(suspendedOrder.removeFirst());
+            }
+            suspendedOrder = grown;
+        }
+        suspended[processId] = true;
+        suspendedOrder.addLast(processId);
+        suspensions++;
+        suspendedThisWindow |= inWindow;
+    }
+
+    // returns whether the process was suspended
+    public boolean resume(int processId) {
+        if (!isSuspended(processId)) {
+            return false;
+        }
+        suspended[processId] = false;
+        suspendedOrder.remove(processId);
+        resumes++;
+        return true;
+    }
+
+    public int suspendedCount() { return suspendedOrder.size(); }
+
+    // the process suspended longest, or -1
+    public int longestSuspended() {
+        return suspendedOrder.peekFirst();
+    }
+
+    void save(Checkpoint out) {
+        out.putInt(windowReferences);
+        out.putInt(windowFaults);
+        out.putBoolean(demandExceeded);
+        out.putBoolean(suspendedThisWindow);
+        out.putBoolean(thrashing);
+        out.putLong(thrashingEpisodes);
+        out.putLong(suspensions);
+        out.putLong(resumes);
+        out.putBooleans(suspended);
+        out.putInts(suspendedOrder.toArray());
+    }
+
+    void restore(Checkpoint in) {
+        windowReferences = in.getInt();
+        windowFaults = in.getInt();
+        demandExceeded = in.getBoolean();
+        suspendedThisWindow = in.getBoolean();
+        thrashing = in.getBoolean();
+        thrashingEpisodes = in.getLong();
+        suspensions = in.getLong();
+        resumes = in.getLong();
+        suspended = in.getBooleans();
+        suspendedOrder = new SlotDeque(suspended.length);
+        for (int pid : in.getInts()) {
+            suspendedOrder.addLast(pid);
+        }
+    }
+
+    public long getThrashingEpisodes() { return thrashingEpisodes; }
+    public long getSuspensions() { return suspensions; }
+    public long getResumes() { return resumes; }
+}
@@ -0,0 +1,29 @@
+// Least recently used: every reference moves the slot to the tail of the list.
+public class LruPolicy implements ReplacementPolicy {
+    private final SlotDeque recency;
+
+    public LruPolicy(int capacity) {
+        recency = new SlotDeque(capacity);
+    }
+
+    @Override
+    public void recordAccess(int slot, long key) { recency.moveToLast(slot); }
+
+    @Override
+    public void recordInsert(int slot, long key) { recency.addLast(slot); }
+
+    @Override
+    public void recordRemove(int slot) { recency.remove(slot); }
+
+    @Override
+    public int selectVictim(long key) { return recency.removeFirst(); }
+
+    @Override
+    public int peekVictim(long key) { return recency.peekFirst(); }
+
+    @Override
+    public void save(Checkpoint out) { recency.save(out); }
+
+    @Override
+    public void restore(Checkpoint in) { recency.restore(in); }
+}
@@ -0,0 +1,52 @@
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+// Publishes simulator metrics as JMX MBeans under
+//   VirtualMemorySimulator:type=Global,name=<name>
+//   VirtualMemorySimulator:type=Process,name=<name>,pid=<pid>
+// Process beans are registered when a process makes its first reference.
+public class MetricsExporter {
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private final String name;
+
+    public MetricsExporter(String name) {
+        this.name = ObjectName.quote(name);
+    }
+
+    public void registerGlobal(SimulatorMetrics metrics) {
+        register("VirtualMemorySimulator:type=Global,name=" + name,
+                 new StandardMBean(metrics, SimulatorMetricsMBean.class, false));
+    }
+
+    public void registerProcess(int processId, VirtualMemory.ProcessStats stats) {
+        register("VirtualMemorySimulator:type=Process,name=" + name + ",pid=" + processId,
+                 new StandardMBean(stats, ProcessMetricsMBean.class, false));
+    }
+
+    // drops every bean this exporter registered, e.g. before re-initialising
+    public void unregisterAll() {
+        try {
+            for (ObjectName bean : server.queryNames(new ObjectName("VirtualMemorySimulator:name=" + name + ",*"), null)) {
+                server.unregisterMBean(bean);
+            }
+        } catch (JMException e) {
+            System.err.println("Could not unregister simulator MBeans: " + e.getMessage());
+        }
+    }
+
+    private void register(String objectName, StandardMBean bean) {
+        try {
+            ObjectName id = new ObjectName(objectName);
+            if (server.isRegistered(id)) {
+                server.unregisterMBean(id);
+            }
+            server.registerMBean(bean, id);
+        } catch (JMException e) {
+            System.err.println("Could not register " + objectName + ": " + e.getMessage());
+        }
+    }
+}
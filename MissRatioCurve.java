@@ -0,0 +1,275 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+// Single-pass LRU miss-ratio curve (Mattson stack distances). Every reference's
+// reuse distance -- the number of distinct pages touched since its previous use,
+// itself included -- is found with a Fenwick tree over access times in which only
+// each page's latest access is marked. An LRU memory of c frames misses exactly
+// on references with distance > c, so one pass yields the fault ratio for every
+// frame count, and for every fully associative LRU TLB size.
+//
+// With a sample rate below 1 only pages whose hashed key falls under the rate are
+// tracked (SHARDS) and their distances are scaled up by 1/rate.
+//
+// References a VirtualMemory of numPages pages would reject are left out, like
+// the simulator leaves them out of its own counts.
+public class MissRatioCurve implements TraceReplay.Sink {
+    private static final int HASH_BITS = 24;
+    static final int MAX_SIZE = Integer.MAX_VALUE - 8;   // largest frame count a curve answers for
+
+    private final double sampleRate;
+    private final long sampleThreshold;
+    private final long numPages;          // 0: any page number
+    private final LongIntHashMap lastAccess = new LongIntHashMap(1 << 16);
+    private int capacity = 1 << 16;       // time slots before the next compaction
+    private long[] keyAt = new long[capacity];
+    private int[] tree = new int[capacity + 1];
+    private int now = 0;
+    private int live = 0;                 // marked slots, i.e. distinct pages seen
+
+    private long[] histogram = new long[1024];   // histogram[d]: reuses at (scaled) distance d
+    private long farReuses = 0;           // reuses at a scaled distance beyond MAX_SIZE
+    private long coldMisses = 0;
+    private long references = 0;
+    private long sampledReferences = 0;
+    private long rejected = 0;
+
+    public MissRatioCurve() {
+        this(1.0, 0);
+    }
+
+    public MissRatioCurve(double sampleRate, long numPages) {
+        if (sampleRate <= 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Sample rate must be in (0, 1]");
+        }
+        if (numPages < 0) {
+            throw new IllegalArgumentException("Number of pages must not be negative");
+        }
+        this.sampleRate = sampleRate;
+        this.sampleThreshold = (long) Math.ceil(sampleRate * (1L << HASH_BITS));
+        this.numPages = numPages;
+    }
+
+    @Override
+    public void reference(long pageNumber, int processId) {
+        if (pageNumber < 0 || (numPages > 0 && pageNumber >= numPages)
+            || processId < 0 || processId >= VirtualMemory.SHARED_PAGES) {
+            rejected++;
+            return;
+        }
+        references++;
+        long key = VirtualMemory.key(processId, pageNumber);
+        if (sampleRate < 1 && ((key * 0x9E3779B97F4A7C15L) >>> (64 - HASH_BITS)) >= sampleThreshold) {
+            return;
+        }
+        sampledReferences++;
+        if (now == capacity) {
+            compact();
+        }
+        int last = lastAccess.get(key);
+        if (last == -1) {
+            coldMisses++;
+        } else {
+            long distance = live - prefixSum(last) + 1;
+            if (sampleRate < 1) {
+                distance = (long) (distance / sampleRate);
+            }
+            count(distance);
+            add(last, -1);
+            keyAt[last] = -1;
+            live--;
+        }
+        add(now, 1);
+        keyAt[now] = key;
+        lastAccess.put(key, now);
+        now++;
+        live++;
+    }
+
+    private void count(long distance) {
+        if (distance > MAX_SIZE) {
+            // a miss at every size a curve can be asked for
+            farReuses++;
+            return;
+        }
+        if (distance >= histogram.length) {
+            histogram = Arrays.copyOf(histogram, (int) Math.max(distance + 1, histogram.length * 2L));
+        }
+        histogram[(int) distance]++;
+    }
+
+    // sum of marks in slots 0..index
+    private int prefixSum(int index) {
+        int sum = 0;
+        for (int i = index + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private void add(int index, int delta) {
+        for (int i = index + 1; i <= capacity; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Renumbers the live slots to 0..live-1 in access order, which keeps every
+    // distance intact, and grows the time window if it is more than half full.
+    private void compact() {
+        int next = 0;
+        for (int slot = 0; slot < now; slot++) {
+            if (keyAt[slot] != -1) {
+                keyAt[next] = keyAt[slot];
+                lastAccess.put(keyAt[next], next);
+                next++;
+            }
+        }
+        if (live * 2 > capacity) {
+            capacity *= 2;
+            keyAt = Arrays.copyOf(keyAt, capacity);
+        }
+        Arrays.fill(keyAt, live, capacity, -1);
+        tree = new int[capacity + 1];
+        // linear-time Fenwick build over the `live` leading ones
+        for (int i = 1; i <= capacity; i++) {
+            if (i <= live) {
+                tree[i] += 1;
+            }
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                tree[parent] += tree[i];
+            }
+        }
+        now = live;
+    }
+
+    // misses[c] for c = 0..maxSize over the full stream
+    public double[] misses(int maxSize) {
+        if (maxSize < 0 || maxSize > MAX_SIZE) {
+            throw new IllegalArgumentException("Sizes must be between 0 and " + MAX_SIZE);
+        }
+        // sampled miss counts are scaled by the references actually sampled rather
+        // than by 1/rate, which corrects for the sample drifting from its expected size
+        double scale = sampledReferences == 0 ? 0 : (double) references / sampledReferences;
+        double[] misses = new double[maxSize + 1];
+        long tail = farReuses;
+        for (int d = histogram.length - 1; d > maxSize; d--) {
+            tail += histogram[d];
+        }
+        for (int c = maxSize; c >= 0; c--) {
+            misses[c] = (coldMisses + tail) * scale;
+            if (c < histogram.length) {
+                tail += histogram[c];
+            }
+        }
+        return misses;
+    }
+
+    public double missRatio(int size) {
+        return references == 0 ? 0 : Math.min(1, misses(size)[size] / references);
+    }
+
+    public long getReferences() { return references; }
+    public long getSampledReferences() { return sampledReferences; }
+    public long getRejected() { return rejected; }
+    public long getDistinctPages() { return lastAccess.size(); }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java MissRatioCurve <traceFile|workload:SPEC> [--sizes=RANGE] [--sample=RATE]"
+                + " [--verify=NUM_PAGES] [--pages=NUM_PAGES] [--out=file.csv]");
+            System.err.println("Prints the LRU fault ratio for each frame count (equal to the miss ratio of a"
+                + " fully associative LRU TLB of that size)");
+            System.exit(1);
+        }
+
+        Map<String, String> options = TraceReplay.parseOptions(args, 1);
+        // generated workloads need an address-space size
+        long pages = Long.parseLong(options.getOrDefault("pages", options.getOrDefault("verify", "0")));
+        if (args[0].startsWith("workload:") && pages <= 0) {
+            throw new IllegalArgumentException("Workload sources need --pages=N");
+        }
+        MissRatioCurve curve = new MissRatioCurve(Double.parseDouble(options.getOrDefault("sample", "1")), pages);
+        long start = System.nanoTime();
+        TraceReplay.feed(args[0], pages, options, curve);
+        System.err.printf("%d references (%d sampled, %d out of range), %d distinct pages in %.3f s%n",
+                          curve.getReferences(), curve.getSampledReferences(), curve.getRejected(),
+                          curve.getDistinctPages(), (System.nanoTime() - start) / 1e9);
+
+        List<Integer> sizes = options.containsKey("sizes")
+                            ? ParameterSweep.parseRange(options.get("sizes"))
+                            : ParameterSweep.parseRange("1:" + Math.max(1, curve.getDistinctPages()) + ":*2");
+        int maxSize = 0;
+        for (int size : sizes) {
+            maxSize = Math.max(maxSize, size);
+        }
+        double[] misses = curve.misses(maxSize);
+
+        // optionally cross-check against full LRU simulations of the same sizes
+        List<ParameterSweep.Result> simulated = null;
+        if (options.containsKey("verify")) {
+            DecodedTrace trace = new DecodedTrace();
+            TraceReplay.feed(args[0], pages, options, trace);
+            ParameterSweep sweep = new ParameterSweep(trace, Long.parseLong(options.get("verify")), false);
+            List<ParameterSweep.Config> configs = new ArrayList<>();
+            for (int size : sizes) {
+                configs.add(new ParameterSweep.Config(size, size, size, PolicyType.LRU, PolicyType.LRU));
+            }
+            ForkJoinPool pool = new ForkJoinPool();
+            try {
+                simulated = sweep.runAll(configs, pool, null);
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        if (options.containsKey("out")) {
+            try (PrintStream out = new PrintStream(options.get("out"))) {
+                writeCsv(curve, sizes, misses, simulated, out);
+                if (out.checkError()) {
+                    throw new IOException("Could not write " + options.get("out"));
+                }
+            }
+        } else {
+            writeCsv(curve, sizes, misses, simulated, System.out);
+        }
+
+        // unsampled, the curve is exact: every size must fault as often as the simulation
+        if (simulated != null && curve.getSampledReferences() == curve.getReferences()) {
+            int mismatches = 0;
+            for (int i = 0; i < sizes.size(); i++) {
+                ParameterSweep.Result result = simulated.get(i);
+                long predicted = Math.round(misses[sizes.get(i)]);
+                if (result.references != curve.getReferences() || result.pageFaults != predicted) {
+                    System.err.printf("Mismatch at %d frames: curve %d faults in %d references, simulation %d in %d%n",
+                                      sizes.get(i), predicted, curve.getReferences(), result.pageFaults,
+                                      result.references);
+                    mismatches++;
+                }
+            }
+            if (mismatches > 0) {
+                System.exit(2);
+            }
+            System.err.printf("Verified %d sizes against LRU simulations%n", sizes.size());
+        }
+    }
+
+    static void writeCsv(MissRatioCurve curve, List<Integer> sizes, double[] misses,
+                         List<ParameterSweep.Result> simulated, PrintStream out) {
+        out.println(simulated == null ? "size,misses,miss_ratio" : "size,misses,miss_ratio,simulated_fault_ratio");
+        for (int i = 0; i < sizes.size(); i++) {
+            int size = sizes.get(i);
+            double ratio = curve.getReferences() == 0 ? 0 : Math.min(1, misses[size] / curve.getReferences());
+            if (simulated == null) {
+                out.printf("%d,%.0f,%.6f%n", size, misses[size], ratio);
+            } else {
+                out.printf("%d,%.0f,%.6f,%.6f%n", size, misses[size], ratio, simulated.get(i).pageFaultRatio());
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+// Draws each reference from one of several workloads, chosen at random with the
+// given relative weights, e.g. a Zipf working set interleaved with a background scan.
+public class MixedWorkload extends Workload {
+    private final Workload[] parts;
+    private final double[] cumulative;
+
+    public MixedWorkload(Workload[] parts, double[] weights, long seed) {
+        super(seed);
+        if (parts.length == 0 || parts.length != weights.length) {
+            throw new IllegalArgumentException("Mixed workload needs one weight per part");
+        }
+        this.parts = parts;
+        this.cumulative = new double[weights.length];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] < 0) {
+                throw new IllegalArgumentException("Workload weights must not be negative");
+            }
+            total += weights[i];
+            cumulative[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Workload weights must not all be zero");
+        }
+        for (int i = 0; i < cumulative.length; i++) {
+            cumulative[i] /= total;
+        }
+    }
+
+    @Override
+    public long getAsLong() {
+        double u = nextDouble();
+        for (int i = 0; i < cumulative.length - 1; i++) {
+            if (u < cumulative[i]) {
+                return parts[i].getAsLong();
+            }
+        }
+        return parts[parts.length - 1].getAsLong();
+    }
+}
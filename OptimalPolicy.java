@@ -0,0 +1,93 @@
+// Belady's OPT: evicts the resident page whose next reference lies furthest in
+// the future. Needs the whole reference stream up front through a Lookahead.
+public class OptimalPolicy implements ReplacementPolicy {
+    private final SlotHeap heap;
+    private final Lookahead lookahead;
+
+    public OptimalPolicy(int capacity, Lookahead lookahead) {
+        if (lookahead == null) {
+            throw new IllegalArgumentException("OPT replacement needs the reference trace in advance");
+        }
+        this.heap = new SlotHeap(capacity);
+        this.lookahead = lookahead;
+    }
+
+    @Override
+    public void recordAccess(int slot, long key) { heap.update(slot, -lookahead.nextUse(key), 0); }
+
+    @Override
+    public void recordInsert(int slot, long key) { heap.update(slot, -lookahead.nextUse(key), 0); }
+
+    @Override
+    public void recordRemove(int slot) { heap.remove(slot); }
+
+    @Override
+    public int selectVictim(long key) { return heap.pollMin(); }
+
+    @Override
+    public int peekVictim(long key) { return heap.peekMin(); }
+
+    // the lookahead's position is shared with every policy forked from it and
+    // belongs to one particular trace, so OPT runs are not checkpointed
+    @Override
+    public void save(Checkpoint out) {
+        throw new IllegalStateException("OPT replacement cannot be checkpointed");
+    }
+
+    @Override
+    public void restore(Checkpoint in) {
+        throw new IllegalStateException("OPT replacement cannot be checkpointed");
+    }
+
+    // Precomputed next-use chain for a reference stream. Each call to nextUse(key)
+    // consumes the current occurrence of key and returns the position of its next
+    // occurrence, so streams that only see a subset of the keys (a TLB set) still
+    // get globally correct distances.
+    public static class Lookahead {
+        private final int length;
+        private final int[] nextOccurrence;
+        private final LongIntHashMap firstOccurrence;
+        private final LongIntHashMap cursor;
+
+        public Lookahead(long[] keys, int length) {
+            this.length = length;
+            this.nextOccurrence = new int[length];
+            LongIntHashMap last = new LongIntHashMap(1024);
+            for (int i = length - 1; i >= 0; i--) {
+                int next = last.get(keys[i]);
+                nextOccurrence[i] = next == -1 ? length : next;
+                last.put(keys[i], i);
+            }
+            this.firstOccurrence = last;
+            this.cursor = new LongIntHashMap(last.size());
+        }
+
+        private Lookahead(Lookahead shared) {
+            this.length = shared.length;
+            this.nextOccurrence = shared.nextOccurrence;
+            this.firstOccurrence = shared.firstOccurrence;
+            this.cursor = new LongIntHashMap(firstOccurrence.size());
+        }
+
+        // a lookahead over the same stream with its own independent position
+        public Lookahead fork() {
+            return new Lookahead(this);
+        }
+
+        public long nextUse(long key) {
+            int position = cursor.get(key);
+            if (position == -1) {
+                position = firstOccurrence.get(key);
+                if (position == -1) {
+                    return Long.MAX_VALUE;
+                }
+            }
+            if (position >= length) {
+                return Long.MAX_VALUE;
+            }
+            int next = nextOccurrence[position];
+            cursor.put(key, next);
+            return next;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+// Per-process mapping from virtual page number to physical frame number.
+public interface PageTable {
+    // returns the mapped frame, or -1 if the page is not resident
+    int lookup(long pageNumber);
+
+    void map(long pageNumber, int frameNumber);
+
+    void unmap(long pageNumber);
+
+    // memory accesses the most recent lookup needed to walk the table
+    int getLastWalkAccesses();
+
+    // bytes of table structure allocated so far
+    long getFootprintBytes();
+}
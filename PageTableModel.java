@@ -0,0 +1,65 @@
+import javax.swing.table.AbstractTableModel;
+
+// One process's page table, one row per page. Only the rows currently on screen
+// are cached and diffed on refresh, so the cost follows the viewport rather than
+// the address space. Very large address spaces show their first MAX_ROWS pages.
+public class PageTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    public static final int MAX_ROWS = 1 << 20;
+    private static final String[] COLUMNS = { "Page#", "Frame#", "Valid" };
+
+    private final VirtualMemory vm;
+    private final int rows;
+    private int processId = 0;
+    private int windowStart = 0;
+    private int[] window = new int[0];
+
+    public PageTableModel(VirtualMemory vm) {
+        this.vm = vm;
+        this.rows = (int) Math.min(vm.getNumPages(), MAX_ROWS);
+    }
+
+    public void setProcessId(int processId) {
+        this.processId = processId;
+        window = new int[0];
+        fireTableDataChanged();
+    }
+
+    public int getProcessId() { return processId; }
+
+    // re-reads the visible rows [first, last] and fires updates for changed ones
+    public void refresh(int first, int last) {
+        if (first < 0 || last < first) {
+            return;
+        }
+        int[] next = new int[last - first + 1];
+        for (int row = first; row <= last; row++) {
+            int frame = vm.peekPageTable(processId, row);
+            next[row - first] = frame;
+            int old = row - windowStart;
+            if (old < 0 || old >= window.length || window[old] != frame) {
+                fireTableRowsUpdated(row, row);
+            }
+        }
+        windowStart = first;
+        window = next;
+    }
+
+    private int frameAt(int row) {
+        int i = row - windowStart;
+        return i >= 0 && i < window.length ? window[i] : vm.peekPageTable(processId, row);
+    }
+
+    @Override public int getRowCount() { return rows; }
+    @Override public int getColumnCount() { return COLUMNS.length; }
+    @Override public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case 0: return row;
+            case 1: return frameAt(row);
+            default: return frameAt(row) >= 0 ? 1 : 0;
+        }
+    }
+}
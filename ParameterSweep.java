@@ -0,0 +1,199 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Replays one trace against every combination of frame count, TLB size and
+// replacement policies and prints the miss ratios as CSV. The trace is decoded
+// once and shared read-only; each configuration is an independent task on a
+// fork-join pool, so a sweep keeps every core busy.
+public class ParameterSweep {
+    public static class Config {
+        final int numFrames;
+        final int tlbSize;
+        final int tlbAssociativity;
+        final PolicyType framePolicy;
+        final PolicyType tlbPolicy;
+
+        Config(int numFrames, int tlbSize, int tlbAssociativity, PolicyType framePolicy, PolicyType tlbPolicy) {
+            this.numFrames = numFrames;
+            this.tlbSize = tlbSize;
+            this.tlbAssociativity = tlbAssociativity;
+            this.framePolicy = framePolicy;
+            this.tlbPolicy = tlbPolicy;
+        }
+    }
+
+    public static class Result {
+        final Config config;
+        final long references;
+        final long tlbMisses;
+        final long pageFaults;
+
+        Result(Config config, long references, long tlbMisses, long pageFaults) {
+            this.config = config;
+            this.references = references;
+            this.tlbMisses = tlbMisses;
+            this.pageFaults = pageFaults;
+        }
+
+        double tlbMissRatio() { return references == 0 ? 0 : (double) tlbMisses / references; }
+        double pageFaultRatio() { return references == 0 ? 0 : (double) pageFaults / references; }
+    }
+
+    private final DecodedTrace trace;
+    private final long numPages;
+    private final OptimalPolicy.Lookahead lookahead;   // shared by every OPT run, forked per run
+
+    public ParameterSweep(DecodedTrace trace, long numPages, boolean needsLookahead) {
+        this.trace = trace;
+        this.numPages = numPages;
+        this.lookahead = needsLookahead ? trace.lookahead() : null;
+    }
+
+    public Result run(Config config) {
+        OptimalPolicy.Lookahead own = lookahead == null ? null : lookahead.fork();
+        VirtualMemory vm = new VirtualMemory(numPages, config.numFrames, config.tlbSize, config.tlbAssociativity,
+                                             config.framePolicy, config.tlbPolicy, own);
+        TraceReplay.Counter counter = new TraceReplay.Counter(vm);
+        trace.replay(counter);
+        counter.flush();
+        return new Result(config, vm.getTotalPageReferences(), vm.getTlbMisses(), vm.getPageFaults());
+    }
+
+    // results come back in the order of `configs`
+    public List<Result> runAll(List<Config> configs, ForkJoinPool pool, PrintStream progress) {
+        AtomicInteger done = new AtomicInteger();
+        List<ForkJoinTask<Result>> tasks = new ArrayList<>(configs.size());
+        for (Config config : configs) {
+            tasks.add(ForkJoinTask.adapt(() -> {
+                Result result = run(config);
+                if (progress != null) {
+                    progress.printf("\r%d/%d configurations", done.incrementAndGet(), configs.size());
+                }
+                return result;
+            }));
+        }
+        pool.submit(() -> ForkJoinTask.invokeAll(tasks)).join();
+        if (progress != null) {
+            progress.println();
+        }
+        List<Result> results = new ArrayList<>(configs.size());
+        for (ForkJoinTask<Result> task : tasks) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    // "16,32,48" lists values, "16:1024:8" steps linearly and "16:1024:*2" geometrically
+    static List<Integer> parseRange(String spec) {
+        List<Integer> values = new ArrayList<>();
+        if (!spec.contains(":")) {
+            for (String value : spec.split(",")) {
+                values.add(Integer.parseInt(value.trim()));
+            }
+            return values;
+        }
+        String[] parts = spec.split(":");
+        if (parts.length < 2 || parts.length > 3) {
+            throw new IllegalArgumentException("Range must be start:end[:step] or start:end:*factor: " + spec);
+        }
+        int start = Integer.parseInt(parts[0]);
+        int end = Integer.parseInt(parts[1]);
+        String step = parts.length == 3 ? parts[2] : "1";
+        boolean geometric = step.startsWith("*");
+        int amount = Integer.parseInt(geometric ? step.substring(1) : step);
+        if (start <= 0 || end < start || amount < (geometric ? 2 : 1)) {
+            throw new IllegalArgumentException("Invalid range: " + spec);
+        }
+        for (long value = start; value <= end; value = geometric ? value * amount : value + amount) {
+            values.add((int) value);
+        }
+        return values;
+    }
+
+    static List<PolicyType> parsePolicies(String spec) {
+        List<PolicyType> policies = new ArrayList<>();
+        for (String name : spec.split(",")) {
+            policies.add(PolicyType.parse(name.trim()));
+        }
+        return policies;
+    }
+
+    public static void writeCsv(List<Result> results, PrintStream out) {
+        out.println("frame_policy,tlb_policy,frames,tlb_size,tlb_assoc,references,tlb_misses,page_faults,"
+                    + "tlb_miss_ratio,page_fault_ratio");
+        for (Result r : results) {
+            Config c = r.config;
+            out.printf("%s,%s,%d,%d,%d,%d,%d,%d,%.6f,%.6f%n", c.framePolicy, c.tlbPolicy, c.numFrames,
+                       c.tlbSize, c.tlbAssociativity, r.references, r.tlbMisses, r.pageFaults,
+                       r.tlbMissRatio(), r.pageFaultRatio());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java ParameterSweep <traceFile|workload:SPEC> <numPages> --frames=RANGE --tlb=RANGE"
+                + " [--policy=P[,P...]] [--tlb-policy=P[,P...]] [--assoc=N] [--threads=N] [--out=file.csv]");
+            System.err.println("RANGE is a list (16,32,64), a linear range (16:256:16) or a geometric one (16:4096:*2)");
+            System.exit(1);
+        }
+
+        long pages = Long.parseLong(args[1]);
+        Map<String, String> options = TraceReplay.parseOptions(args, 2);
+        List<Integer> frameCounts = parseRange(options.getOrDefault("frames", "16:1024:*2"));
+        List<Integer> tlbSizes = parseRange(options.getOrDefault("tlb", "16:64:*2"));
+        List<PolicyType> framePolicies = parsePolicies(options.getOrDefault("policy", "FIFO"));
+        List<PolicyType> tlbPolicies = parsePolicies(options.getOrDefault("tlb-policy", "FIFO"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        List<Config> configs = new ArrayList<>();
+        for (PolicyType framePolicy : framePolicies) {
+            for (PolicyType tlbPolicy : tlbPolicies) {
+                for (int frames : frameCounts) {
+                    for (int tlbSize : tlbSizes) {
+                        int assoc = options.containsKey("assoc")
+                                  ? Math.min(Integer.parseInt(options.get("assoc")), tlbSize) : tlbSize;
+                        if (tlbSize % assoc != 0) {
+                            throw new IllegalArgumentException(
+                                "TLB associativity " + assoc + " does not divide TLB size " + tlbSize);
+                        }
+                        configs.add(new Config(frames, tlbSize, assoc, framePolicy, tlbPolicy));
+                    }
+                }
+            }
+        }
+
+        DecodedTrace trace = new DecodedTrace();
+        TraceReplay.feed(args[0], pages, options, trace);
+        boolean needsLookahead = framePolicies.contains(PolicyType.OPT) || tlbPolicies.contains(PolicyType.OPT);
+        ParameterSweep sweep = new ParameterSweep(trace, pages, needsLookahead);
+        System.err.printf("%d references, %d configurations on %d threads%n", trace.size(), configs.size(), threads);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        List<Result> results;
+        try {
+            results = sweep.runAll(configs, pool, System.err);
+        } finally {
+            pool.shutdown();
+        }
+        System.err.printf("Elapsed: %.3f s%n", (System.nanoTime() - start) / 1e9);
+
+        if (options.containsKey("out")) {
+            try (PrintStream out = new PrintStream(options.get("out"))) {
+                writeCsv(results, out);
+                if (out.checkError()) {
+                    throw new IOException("Could not write " + options.get("out"));
+                }
+            }
+        } else {
+            writeCsv(results, System.out);
+        }
+    }
+}
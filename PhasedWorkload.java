@@ -0,0 +1,28 @@
+// Moves through a list of workloads, spending `phaseLength` references in each and
+// wrapping around, so the working set shifts abruptly at every phase boundary.
+public class PhasedWorkload extends Workload {
+    private final long phaseLength;
+    private final Workload[] phases;
+    private int phase = 0;
+    private long remaining;
+
+    public PhasedWorkload(long phaseLength, Workload[] phases) {
+        super(0);
+        if (phaseLength <= 0 || phases.length == 0) {
+            throw new IllegalArgumentException("Phased workload needs a positive length and at least one phase");
+        }
+        this.phaseLength = phaseLength;
+        this.phases = phases;
+        this.remaining = phaseLength;
+    }
+
+    @Override
+    public long getAsLong() {
+        if (remaining == 0) {
+            phase = phase + 1 == phases.length ? 0 : phase + 1;
+            remaining = phaseLength;
+        }
+        remaining--;
+        return phases[phase].getAsLong();
+    }
+}
@@ -0,0 +1,53 @@
+import java.nio.ByteBuffer;
+
+// Frame contents held off-heap in one direct buffer, frame f occupying bytes
+// [f * frameSize, (f + 1) * frameSize). Swap I/O goes straight between this
+// buffer and the swap file without copying through the Java heap.
+public class PhysicalMemory {
+    private final ByteBuffer frames;
+    private final ByteBuffer io;          // view whose position/limit frame one frame for a transfer
+    private final int frameSize;
+    private final int numFrames;
+
+    public PhysicalMemory(int numFrames, int frameSize) {
+        if ((long) numFrames * frameSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Physical memory is limited to 2 GB");
+        }
+        this.numFrames = numFrames;
+        this.frameSize = frameSize;
+        this.frames = ByteBuffer.allocateDirect(numFrames * frameSize);
+        this.io = frames.duplicate();
+    }
+
+    // the buffer positioned over one frame, valid until the next call
+    ByteBuffer frame(int frameNumber) {
+        int base = frameNumber * frameSize;
+        io.clear();
+        io.position(base).limit(base + frameSize);
+        return io;
+    }
+
+    public void zero(int frameNumber) {
+        int base = frameNumber * frameSize;
+        for (int i = 0; i < frameSize; i += 8) {
+            frames.putLong(base + i, 0);
+        }
+    }
+
+    public void copy(int fromFrame, int toFrame) {
+        ByteBuffer source = frames.duplicate();
+        source.position(fromFrame * frameSize).limit((fromFrame + 1) * frameSize);
+        frames.duplicate().position(toFrame * frameSize).put(source);
+    }
+
+    public long getLong(int frameNumber, int offset) {
+        return frames.getLong(frameNumber * frameSize + offset);
+    }
+
+    public void putLong(int frameNumber, int offset, long value) {
+        frames.putLong(frameNumber * frameSize + offset, value);
+    }
+
+    public int getFrameSize() { return frameSize; }
+    public int getNumFrames() { return numFrames; }
+}
@@ -0,0 +1,20 @@
+// Replacement policies selectable for physical frames and TLB sets.
+public enum PolicyType {
+    FIFO, LRU, CLOCK, LFU, ARC, OPT;
+
+    // lookahead is only used by OPT and may be null for every other policy
+    public ReplacementPolicy create(int capacity, OptimalPolicy.Lookahead lookahead) {
+        switch (this) {
+            case LRU:   return new LruPolicy(capacity);
+            case CLOCK: return new ClockPolicy(capacity);
+            case LFU:   return new LfuPolicy(capacity);
+            case ARC:   return new ArcPolicy(capacity);
+            case OPT:   return new OptimalPolicy(capacity, lookahead);
+            default:    return new FifoPolicy(capacity);
+        }
+    }
+
+    public static PolicyType parse(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,12 @@
+// Predicts pages worth loading along with a demand fault. Called on every page
+// fault with the faulting page; writes up to `candidates.length` page numbers
+// into `candidates` and returns how many it wrote. Implementations keep their
+// history in preallocated primitive state, so the fault path does not allocate.
+public interface Prefetcher {
+    int predict(int processId, long faultPage, long[] candidates);
+
+    // learned history carried across checkpoints; stateless prefetchers keep these
+    default void save(Checkpoint out) { }
+
+    default void restore(Checkpoint in) { }
+}
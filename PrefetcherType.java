@@ -0,0 +1,17 @@
+// Prefetchers selectable for the page-fault path.
+public enum PrefetcherType {
+    NONE, SEQUENTIAL, STRIDE, HISTORY;
+
+    public Prefetcher create() {
+        switch (this) {
+            case SEQUENTIAL: return new SequentialPrefetcher();
+            case STRIDE:     return new StridePrefetcher();
+            case HISTORY:    return new HistoryPrefetcher();
+            default:         return null;
+        }
+    }
+
+    public static PrefetcherType parse(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+}
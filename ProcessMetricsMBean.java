@@ -0,0 +1,13 @@
+// JMX view of one simulated process's counters.
+public interface ProcessMetricsMBean {
+    long getPageReferences();
+    long getTlbMisses();
+    long getPageFaults();
+    long getEvictions();
+    double getTlbMissRatio();
+    double getPageFaultRatio();
+    double getEffectiveAccessNanos();
+    String getStatus();
+    long getLatencyP50Nanos();
+    long getLatencyP99Nanos();
+}
@@ -0,0 +1,87 @@
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// ProcessStats indexed directly by process id. Lookups read a volatile array
+// without locking or boxing the id; creating an entry, which may grow the
+// array, is serialised. Drivers create entries for every process they are
+// given, but the listener only hears about a process once it is referenced.
+public class ProcessStatsTable {
+    public interface Listener {
+        void referenced(int processId, VirtualMemory.ProcessStats stats);
+    }
+
+    private volatile VirtualMemory.ProcessStats[] stats = new VirtualMemory.ProcessStats[64];
+    private volatile int count = 0;
+    private volatile Listener listener;
+
+    // null if the process has no stats yet
+    public VirtualMemory.ProcessStats get(int processId) {
+        VirtualMemory.ProcessStats[] table = stats;
+        return processId < table.length ? table[processId] : null;
+    }
+
+    public VirtualMemory.ProcessStats getOrCreate(int processId) {
+        VirtualMemory.ProcessStats existing = get(processId);
+        return existing != null ? existing : create(processId);
+    }
+
+    // like getOrCreate, and tells the listener the first time a process is referenced
+    public VirtualMemory.ProcessStats getReferenced(int processId) {
+        VirtualMemory.ProcessStats existing = get(processId);
+        return existing != null && existing.referenced ? existing : markReferenced(processId);
+    }
+
+    private synchronized VirtualMemory.ProcessStats markReferenced(int processId) {
+        VirtualMemory.ProcessStats entry = create(processId);
+        if (!entry.referenced) {
+            entry.referenced = true;
+            if (listener != null) {
+                listener.referenced(processId, entry);
+            }
+        }
+        return entry;
+    }
+
+    private synchronized VirtualMemory.ProcessStats create(int processId) {
+        VirtualMemory.ProcessStats[] table = stats;
+        if (processId >= table.length) {
+            VirtualMemory.ProcessStats[] grown = new VirtualMemory.ProcessStats[Math.max(processId + 1, table.length * 2)];
+            System.arraycopy(table, 0, grown, 0, table.length);
+            table = grown;
+        }
+        VirtualMemory.ProcessStats entry = table[processId];
+        if (entry == null) {
+            entry = new VirtualMemory.ProcessStats();
+            table[processId] = entry;
+            count++;
+        }
+        stats = table;
+        return entry;
+    }
+
+    // Calls the listener for every process referenced so far and every one referenced later
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+        VirtualMemory.ProcessStats[] table = stats;
+        for (int pid = 0; pid < table.length; pid++) {
+            if (table[pid] != null && table[pid].referenced) {
+                listener.referenced(pid, table[pid]);
+            }
+        }
+    }
+
+    public int size() { return count; }
+
+    // snapshot of the entries in process id order
+    public Map<Integer, VirtualMemory.ProcessStats> asMap() {
+        VirtualMemory.ProcessStats[] table = stats;
+        Map<Integer, VirtualMemory.ProcessStats> map = new LinkedHashMap<>();
+        for (int pid = 0; pid < table.length; pid++) {
+            if (table[pid] != null) {
+                map.put(pid, table[pid]);
+            }
+        }
+        return Collections.unmodifiableMap(map);
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.Arrays;
+import java.util.Map;
+import javax.swing.table.AbstractTableModel;
+
+// One row per process that has made a reference, in process id order, with its
+// status and counters. refresh() takes a snapshot of VirtualMemory.getProcessStats
+// and only fires updates for the rows that changed; processes never go away, so
+// rows are only ever appended.
+public class ProcessTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {
+        "PID", "Status", "References", "TLB Miss", "Fault Ratio", "Access ns", "Resident"
+    };
+
+    private final VirtualMemory vm;
+    private int rows = 0;
+    private int[] pids = new int[0];
+    private String[] statuses = new String[0];
+    private long[] references = new long[0];
+    private double[] tlbMissRatios = new double[0];
+    private double[] faultRatios = new double[0];
+    private double[] accessNanos = new double[0];
+    private int[] resident = new int[0];
+    private int[] nextResident = new int[0];
+
+    public ProcessTableModel(VirtualMemory vm) {
+        this.vm = vm;
+    }
+
+    private void ensure(int length) {
+        if (length > pids.length) {
+            length = Math.max(length, pids.length * 2);
+            pids = Arrays.copyOf(pids, length);
+            statuses = Arrays.copyOf(statuses, length);
+            references = Arrays.copyOf(references, length);
+            tlbMissRatios = Arrays.copyOf(tlbMissRatios, length);
+            faultRatios = Arrays.copyOf(faultRatios, length);
+            accessNanos = Arrays.copyOf(accessNanos, length);
+            resident = Arrays.copyOf(resident, length);
+            nextResident = new int[length];
+        }
+    }
+
+    public void refresh(Map<Integer, VirtualMemory.ProcessStats> snapshot) {
+        int count = snapshot.size();
+        ensure(count);
+        int row = 0;
+        for (int pid : snapshot.keySet()) {
+            pids[row++] = pid;
+        }
+        vm.snapshotResidentPages(pids, nextResident, count);
+        row = 0;
+        for (VirtualMemory.ProcessStats stats : snapshot.values()) {
+            String status = stats.getStatus();
+            long refs = stats.getPageReferences();
+            double tlbMiss = stats.getTlbMissRatio();
+            double faults = stats.getPageFaultRatio();
+            double nanos = stats.getEffectiveAccessNanos();
+            if (row >= rows || !status.equals(statuses[row]) || refs != references[row]
+                || tlbMiss != tlbMissRatios[row] || faults != faultRatios[row] || nanos != accessNanos[row]
+                || nextResident[row] != resident[row]) {
+                statuses[row] = status;
+                references[row] = refs;
+                tlbMissRatios[row] = tlbMiss;
+                faultRatios[row] = faults;
+                accessNanos[row] = nanos;
+                resident[row] = nextResident[row];
+                if (row < rows) {
+                    fireTableRowsUpdated(row, row);
+                }
+            }
+            row++;
+        }
+        if (count > rows) {
+            int first = rows;
+            rows = count;
+            fireTableRowsInserted(first, count - 1);
+        }
+    }
+
+    @Override public int getRowCount() { return rows; }
+    @Override public int getColumnCount() { return COLUMNS.length; }
+    @Override public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case 0: return pids[row];
+            case 1: return statuses[row];
+            case 2: return references[row];
+            case 3: return String.format("%.2f", tlbMissRatios[row]);
+            case 4: return String.format("%.2f", faultRatios[row]);
+            case 5: return String.format("%.1f", accessNanos[row]);
+            default: return resident[row];
+        }
+    }
+}
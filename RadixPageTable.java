@@ -0,0 +1,161 @@
+import java.util.Arrays;
+
+// Multi-level (radix) page table in the style of x86-64 paging. The page number
+// is split into `levels` indices of `bitsPerLevel` bits each, most significant
+// first. Nodes are allocated when a page under them is mapped and released when
+// their last mapping goes away, so memory follows the resident pages rather
+// than the size of the address space.
+public class RadixPageTable implements PageTable {
+    private static final class Node {
+        final Object[] children;   // Node below the last interior level, Leaf at it
+        int live;
+
+        Node(int fanOut) { children = new Object[fanOut]; }
+    }
+
+    private static final class Leaf {
+        final int[] frames;
+        int live;
+
+        Leaf(int fanOut) {
+            frames = new int[fanOut];
+            Arrays.fill(frames, -1);
+        }
+    }
+
+    private final int levels;
+    private final int bitsPerLevel;
+    private final int fanOut;
+    private final Node root;           // null for a single-level layout
+    private final Leaf rootLeaf;       // a single-level layout keeps its only node as a leaf
+    private final Node[] path;         // interior nodes visited by the last walk
+    // emptied nodes are already cleared, so a few are kept for reuse instead of
+    // being reallocated when fault traffic keeps creating and tearing down subtrees
+    private static final int SPARE_NODES = 64;
+    private final Node[] spareNodes = new Node[SPARE_NODES];
+    private final Leaf[] spareLeaves = new Leaf[SPARE_NODES];
+    private int spareNodeCount = 0;
+    private int spareLeafCount = 0;
+    private int lastWalkAccesses = 0;
+    private long interiorNodes = 0;
+    private long leafNodes = 0;
+
+    public RadixPageTable(int levels, int bitsPerLevel) {
+        if (levels < 1 || bitsPerLevel < 1 || bitsPerLevel > 30 || levels * bitsPerLevel > 62) {
+            throw new IllegalArgumentException("Unsupported page table layout: "
+                + levels + " levels x " + bitsPerLevel + " bits");
+        }
+        this.levels = levels;
+        this.bitsPerLevel = bitsPerLevel;
+        this.fanOut = 1 << bitsPerLevel;
+        this.root = levels == 1 ? null : new Node(fanOut);
+        this.rootLeaf = levels == 1 ? new Leaf(fanOut) : null;
+        this.path = new Node[levels];
+        if (levels == 1) {
+            leafNodes++;
+        } else {
+            interiorNodes++;
+        }
+    }
+
+    // fewest levels of the given fan-out that cover numPages pages
+    public static int levelsFor(long numPages, int bitsPerLevel) {
+        int bits = 64 - Long.numberOfLeadingZeros(Math.max(1, numPages - 1));
+        return Math.max(1, (bits + bitsPerLevel - 1) / bitsPerLevel);
+    }
+
+    private int index(long pageNumber, int level) {
+        return (int) (pageNumber >>> ((levels - 1 - level) * bitsPerLevel)) & (fanOut - 1);
+    }
+
+    private Leaf findLeaf(long pageNumber, boolean create) {
+        if (levels == 1) {
+            lastWalkAccesses = 1;
+            return rootLeaf;
+        }
+        Node node = root;
+        for (int level = 0; level < levels - 1; level++) {
+            path[level] = node;
+            int i = index(pageNumber, level);
+            Object child = node.children[i];
+            if (child == null) {
+                if (!create) {
+                    lastWalkAccesses = level + 1;
+                    return null;
+                }
+                if (level == levels - 2) {
+                    child = spareLeafCount > 0 ? spareLeaves[--spareLeafCount] : new Leaf(fanOut);
+                    leafNodes++;
+                } else {
+                    child = spareNodeCount > 0 ? spareNodes[--spareNodeCount] : new Node(fanOut);
+                    interiorNodes++;
+                }
+                node.children[i] = child;
+                node.live++;
+            }
+            if (level == levels - 2) {
+                lastWalkAccesses = levels;
+                return (Leaf) child;
+            }
+            node = (Node) child;
+        }
+        throw new AssertionError();
+    }
+
+    @Override
+    public int lookup(long pageNumber) {
+        Leaf leaf = findLeaf(pageNumber, false);
+        return leaf == null ? -1 : leaf.frames[index(pageNumber, levels - 1)];
+    }
+
+    @Override
+    public void map(long pageNumber, int frameNumber) {
+        Leaf leaf = findLeaf(pageNumber, true);
+        int i = index(pageNumber, levels - 1);
+        if (leaf.frames[i] == -1) {
+            leaf.live++;
+        }
+        leaf.frames[i] = frameNumber;
+    }
+
+    @Override
+    public void unmap(long pageNumber) {
+        Leaf leaf = findLeaf(pageNumber, false);
+        int i = index(pageNumber, levels - 1);
+        if (leaf == null || leaf.frames[i] == -1) {
+            return;
+        }
+        leaf.frames[i] = -1;
+        if (--leaf.live > 0 || levels == 1) {
+            return;
+        }
+        // release the emptied leaf and any interior nodes it leaves empty
+        leafNodes--;
+        if (spareLeafCount < SPARE_NODES) {
+            spareLeaves[spareLeafCount++] = leaf;
+        }
+        for (int level = levels - 2; level >= 0; level--) {
+            Node node = path[level];
+            node.children[index(pageNumber, level)] = null;
+            if (--node.live > 0 || level == 0) {
+                break;
+            }
+            interiorNodes--;
+            if (spareNodeCount < SPARE_NODES) {
+                spareNodes[spareNodeCount++] = node;
+            }
+        }
+    }
+
+    @Override
+    public int getLastWalkAccesses() { return lastWalkAccesses; }
+
+    @Override
+    public long getFootprintBytes() {
+        // references are counted as 8 bytes, ignoring object headers
+        return (interiorNodes * 8L + leafNodes * 4L) << bitsPerLevel;
+    }
+
+    public int getLevels() { return levels; }
+    public int getBitsPerLevel() { return bitsPerLevel; }
+}
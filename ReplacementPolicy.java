@@ -0,0 +1,26 @@
+// Chooses which slot (physical frame or TLB way) to evict. Slots are numbered
+// 0..capacity-1 and the key identifies the page held in a slot. Implementations
+// allocate all of their state up front so the per-reference calls never allocate.
+public interface ReplacementPolicy {
+    // the resident page `key` in `slot` was referenced again
+    void recordAccess(int slot, long key);
+
+    // `key` was just loaded into `slot`
+    void recordInsert(int slot, long key);
+
+    // `slot` was invalidated and is free again
+    void recordRemove(int slot);
+
+    // called only when every slot is occupied; the returned slot is treated as
+    // removed and will be followed by recordInsert(slot, key)
+    int selectVictim(long key);
+
+    // the slot selectVictim(key) would return now, without changing any state
+    int peekVictim(long key);
+
+    // writes the policy's state to a checkpoint, and reads it back into a policy
+    // of the same type and capacity
+    void save(Checkpoint out);
+
+    void restore(Checkpoint in);
+}
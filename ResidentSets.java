@@ -0,0 +1,125 @@
+import java.util.Arrays;
+
+// The frames each process holds, kept per process in recency order as intrusive
+// doubly-linked lists over frame numbers, plus each process's virtual time (its
+// own reference count) and when each frame was last used in that time. Local
+// frame-allocation strategies pick their victims and working sets from here.
+public class ResidentSets {
+    private final int[] previous;       // frame -> more recently used frame of the same owner, -1 at the head
+    private final int[] next;           // frame -> less recently used frame, -1 at the tail
+    private final long[] lastUse;       // frame -> owner's virtual time at its last reference
+    private int[] head = new int[0];    // process -> most recently used frame
+    private int[] tail = new int[0];    // process -> least recently used frame
+    private int[] resident = new int[0];
+    private long[] virtualTime = new long[0];
+
+    public ResidentSets(int numFrames) {
+        this.previous = new int[numFrames];
+        this.next = new int[numFrames];
+        this.lastUse = new long[numFrames];
+    }
+
+    private void ensure(int processId) {
+        if (processId >= head.length) {
+            int length = Math.max(processId + 1, head.length * 2);
+            int old = head.length;
+            head = Arrays.copyOf(head, length);
+            tail = Arrays.copyOf(tail, length);
+            Arrays.fill(head, old, length, -1);
+            Arrays.fill(tail, old, length, -1);
+            resident = Arrays.copyOf(resident, length);
+            virtualTime = Arrays.copyOf(virtualTime, length);
+        }
+    }
+
+    // advances the process's virtual time by one reference and returns it
+    public long tick(int processId) {
+        ensure(processId);
+        return ++virtualTime[processId];
+    }
+
+    public void add(int processId, int frame) {
+        ensure(processId);
+        lastUse[frame] = virtualTime[processId];
+        linkFirst(processId, frame);
+        resident[processId]++;
+    }
+
+    public void remove(int processId, int frame) {
+        unlink(processId, frame);
+        resident[processId]--;
+    }
+
+    public void touch(int processId, int frame) {
+        lastUse[frame] = virtualTime[processId];
+        if (head[processId] != frame) {
+            unlink(processId, frame);
+            linkFirst(processId, frame);
+        }
+    }
+
+    private void linkFirst(int processId, int frame) {
+        int first = head[processId];
+        previous[frame] = -1;
+        next[frame] = first;
+        if (first != -1) {
+            previous[first] = frame;
+        } else {
+            tail[processId] = frame;
+        }
+        head[processId] = frame;
+    }
+
+    private void unlink(int processId, int frame) {
+        int before = previous[frame];
+        int after = next[frame];
+        if (before != -1) {
+            next[before] = after;
+        } else {
+            head[processId] = after;
+        }
+        if (after != -1) {
+            previous[after] = before;
+        } else {
+            tail[processId] = before;
+        }
+    }
+
+    void save(Checkpoint out) {
+        out.putInts(previous);
+        out.putInts(next);
+        out.putLongs(lastUse);
+        out.putInts(head);
+        out.putInts(tail);
+        out.putInts(resident);
+        out.putLongs(virtualTime);
+    }
+
+    void restore(Checkpoint in) {
+        in.getInts(previous);
+        in.getInts(next);
+        in.getLongs(lastUse);
+        head = in.getInts();
+        tail = in.getInts();
+        resident = in.getInts();
+        virtualTime = in.getLongs();
+    }
+
+    // least recently used frame of the process, or -1 if it holds none
+    public int oldest(int processId) {
+        return processId < tail.length ? tail[processId] : -1;
+    }
+
+    public int resident(int processId) {
+        return processId < resident.length ? resident[processId] : 0;
+    }
+
+    public long virtualTime(int processId) {
+        return processId < virtualTime.length ? virtualTime[processId] : 0;
+    }
+
+    public long lastUse(int frame) { return lastUse[frame]; }
+
+    // processes that have been tracked so far are 0..processSlots()-1
+    public int processSlots() { return resident.length; }
+}
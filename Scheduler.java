@@ -0,0 +1,232 @@
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Multiplexes SimulatedProcesses over a fixed set of carrier threads. A carrier
+// takes the next ready process, runs it for one quantum of references and puts
+// it back, so the number of simulated processes is bounded by memory rather
+// than by threads. Pausing parks the carriers on a condition; nothing sleeps or
+// polls.
+public class Scheduler {
+    public enum Policy { ROUND_ROBIN, PRIORITY }
+
+    public interface Listener {
+        // called on the carrier thread after every translated reference
+        default void onStep(SimulatedProcess process, long pageNumber, int frameNumber) { }
+        default void onAllFinished() { }
+    }
+
+    private final VirtualMemory vm;
+    private final Policy policy;
+    private final int quantum;
+    private final int carrierCount;
+    private final Queue<SimulatedProcess> readyQueue;
+    private final ArrayDeque<SimulatedProcess> parked = new ArrayDeque<>();   // suspended by load control
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();      // work became available
+    private final Condition completed = lock.newCondition();
+    private Listener listener = new Listener() { };
+    private TimingModel timing;
+    private final SimulatorMetrics metrics;
+    private Thread[] carriers;
+    private int unfinished = 0;
+    private int running = 0;
+    private long sequence = 0;
+    private volatile boolean paused = false;
+    private volatile boolean stopped = false;
+
+    public Scheduler(VirtualMemory vm, Policy policy, int quantum, int carrierCount) {
+        if (quantum <= 0 || carrierCount <= 0) {
+            throw new IllegalArgumentException("Quantum and carrier count must be positive");
+        }
+        this.vm = vm;
+        this.metrics = vm.getMetrics();
+        this.policy = policy;
+        this.quantum = quantum;
+        this.carrierCount = carrierCount;
+        if (policy == Policy.PRIORITY) {
+            // higher priority first; equal priorities keep arrival order
+            this.readyQueue = new PriorityQueue<>(
+                Comparator.comparingInt((SimulatedProcess p) -> -p.getPriority())
+                          .thenComparingLong(p -> p.queuedAt));
+        } else {
+            this.readyQueue = new ArrayDeque<>();
+        }
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Charges every reference its modelled service time, so processes and the
+    // global metrics report an effective access time. The carriers still run
+    // back to back in real time; EventSimulator adds queueing on a virtual clock.
+    public void setTimingModel(TimingModel timing) {
+        this.timing = timing;
+    }
+
+    public void add(SimulatedProcess process) {
+        lock.lock();
+        try {
+            process.setStats(vm.getOrCreateProcessStats(process.getProcessId()));
+            if (process.isFinished()) {
+                process.getStats().setStatus("FINISHED");
+                return;
+            }
+            unfinished++;
+            enqueue(process);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(SimulatedProcess process) {
+        process.queuedAt = sequence++;
+        process.getStats().setStatus("READY");
+        readyQueue.add(process);
+        changed.signal();
+    }
+
+    public void start() {
+        carriers = new Thread[carrierCount];
+        for (int i = 0; i < carrierCount; i++) {
+            carriers[i] = new Thread(this::runCarrier, "carrier-" + i);
+            carriers[i].setDaemon(true);
+            carriers[i].start();
+        }
+    }
+
+    private void runCarrier() {
+        while (true) {
+            SimulatedProcess process;
+            lock.lock();
+            try {
+                while ((paused || readyQueue.isEmpty()) && !stopped && unfinished > 0) {
+                    changed.awaitUninterruptibly();
+                }
+                if (stopped || unfinished == 0) {
+                    return;
+                }
+                process = readyQueue.poll();
+                if (vm.isSuspended(process.getProcessId())) {
+                    process.getStats().setStatus("SUSPENDED");
+                    parked.add(process);
+                    if (readyQueue.isEmpty() && running == 0) {
+                        unpark(true);
+                    }
+                    continue;
+                }
+                running++;
+            } finally {
+                lock.unlock();
+            }
+
+            VirtualMemory.ProcessStats stats = process.getStats();
+            stats.setStatus("RUNNING");
+            for (int i = 0; i < quantum && !process.isFinished() && !paused && !stopped; i++) {
+                long pageNumber = process.nextPage();
+                int frameNumber;
+                if (timing == null) {
+                    frameNumber = vm.searchPageTable(pageNumber, process.getProcessId(), process.isWrite());
+                } else {
+                    long nanos;
+                    synchronized (vm) {
+                        frameNumber = vm.searchPageTable(pageNumber, process.getProcessId(), process.isWrite());
+                        nanos = timing.serviceNanos(vm);
+                    }
+                    stats.addAccessTime(1, nanos);
+                    metrics.addAccessTime(1, nanos);
+                }
+                listener.onStep(process, pageNumber, frameNumber);
+            }
+
+            boolean allFinished = false;
+            lock.lock();
+            try {
+                running--;
+                if (process.isFinished()) {
+                    stats.setStatus("FINISHED");
+                    allFinished = --unfinished == 0;
+                    if (allFinished) {
+                        changed.signalAll();
+                        completed.signalAll();
+                    }
+                } else {
+                    enqueue(process);
+                    if (paused) {
+                        stats.setStatus("PAUSED");
+                    }
+                }
+                unpark(readyQueue.isEmpty() && running == 0);
+            } finally {
+                lock.unlock();
+            }
+            if (allFinished) {
+                listener.onAllFinished();
+            }
+        }
+    }
+
+    // Requeues parked processes that load control has resumed. With `force`, nothing
+    // else can run, so the longest-parked process is resumed rather than waiting
+    // for a window that will never come.
+    private void unpark(boolean force) {
+        if (force && !parked.isEmpty()) {
+            vm.resume(parked.peekFirst().getProcessId());
+        }
+        for (int i = parked.size(); i > 0; i--) {
+            SimulatedProcess process = parked.poll();
+            if (vm.isSuspended(process.getProcessId())) {
+                parked.add(process);
+            } else {
+                enqueue(process);
+            }
+        }
+    }
+
+    public void pause() {
+        paused = true;
+    }
+
+    public void resume() {
+        lock.lock();
+        try {
+            paused = false;
+            for (SimulatedProcess process : readyQueue) {
+                process.getStats().setStatus("READY");
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void stop() {
+        lock.lock();
+        try {
+            stopped = true;
+            changed.signalAll();
+            completed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void awaitCompletion() throws InterruptedException {
+        lock.lock();
+        try {
+            while (unfinished > 0 && !stopped) {
+                completed.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isPaused() { return paused; }
+    public Policy getPolicy() { return policy; }
+    public int getQuantum() { return quantum; }
+}
@@ -0,0 +1,10 @@
+// Read-ahead: on a fault, also load the next `degree` pages.
+public class SequentialPrefetcher implements Prefetcher {
+    @Override
+    public int predict(int processId, long faultPage, long[] candidates) {
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = faultPage + i + 1;
+        }
+        return candidates.length;
+    }
+}
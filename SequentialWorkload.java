@@ -0,0 +1,29 @@
+// Walks `length` pages from `base` with a fixed stride and starts over at the end:
+// a full scan with stride 1 over the address space, or a tight loop touching
+// every stride-th page of a small region.
+public class SequentialWorkload extends Workload {
+    private final long base;
+    private final long length;
+    private final long stride;
+    private long offset = 0;
+
+    public SequentialWorkload(long base, long length, long stride) {
+        super(0);
+        if (length <= 0 || stride <= 0) {
+            throw new IllegalArgumentException("Loop length and stride must be positive");
+        }
+        this.base = base;
+        this.length = length;
+        this.stride = stride;
+    }
+
+    @Override
+    public long getAsLong() {
+        long page = base + offset;
+        offset += stride;
+        if (offset >= length) {
+            offset = 0;
+        }
+        return page;
+    }
+}
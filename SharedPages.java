@@ -0,0 +1,212 @@
+import java.util.Arrays;
+
+// Pages several processes map, through VirtualMemory.mapShared or fork. Each is a
+// shared page object numbered from 0 whose frame, when resident, is keyed
+// key(SHARED_PAGES, object) in the inverted page table. Every page-table entry
+// pointing at such a frame is on the frame's mapping list, so an eviction can
+// unmap them all; private frames have no list. A copy-on-write object is copied
+// for a process that writes to it while others still map it.
+public class SharedPages {
+    private final LongIntHashMap objectOf = new LongIntHashMap(16);   // key(process, page) -> object
+    private int objects = 0;
+    private int[] frame = new int[0];             // object -> frame, -1 when not resident
+    private int[] holder = new int[0];            // object -> process whose resident set holds the frame
+    private int[] mappers = new int[0];           // object -> pages mapping it, resident or not
+    private boolean[] copyOnWrite = new boolean[0];
+    private long[] origin = new long[0];          // object -> key of the page it was created from
+    private final int[] firstMapping;             // frame -> head of its mapping list, -1 if empty
+    private final int[] mappings;                 // frame -> length of its mapping list
+    private long[] mappingKey = new long[16];     // list nodes: key(process, page) and the next node
+    private int[] nextMapping = new int[16];
+    private int freeMapping = -1;
+    private int mappingNodes = 0;
+    private long forks = 0;
+    private long copyOnWriteFaults = 0;
+    private long sharedFaults = 0;                // faults served by mapping a resident shared frame
+    private long framesSaved = 0;                 // page-table entries beyond the first per frame
+    private long peakFramesSaved = 0;
+
+    public SharedPages(int numFrames) {
+        this.firstMapping = new int[numFrames];
+        this.mappings = new int[numFrames];
+        Arrays.fill(firstMapping, -1);
+    }
+
+    // number of shared page objects
+    public int size() { return objects; }
+
+    // object the page maps, or -1 if it is private
+    public int objectOf(long key) {
+        return objectOf.get(key);
+    }
+
+    // keys of every page that maps an object
+    public long[] keys() { return objectOf.keys(); }
+
+    public int create(long originKey, boolean copyOnWrite) {
+        int object = objects++;
+        if (object == frame.length) {
+            int length = Math.max(16, object * 2);
+            frame = Arrays.copyOf(frame, length);
+            holder = Arrays.copyOf(holder, length);
+            mappers = Arrays.copyOf(mappers, length);
+            this.copyOnWrite = Arrays.copyOf(this.copyOnWrite, length);
+            origin = Arrays.copyOf(origin, length);
+        }
+        frame[object] = -1;
+        holder[object] = -1;
+        mappers[object] = 0;
+        this.copyOnWrite[object] = copyOnWrite;
+        origin[object] = originKey;
+        return object;
+    }
+
+    // the page now maps the object
+    public void addMapper(long key, int object) {
+        objectOf.put(key, object);
+        mappers[object]++;
+    }
+
+    // the page maps a private copy from now on
+    public void removeMapper(long key, int object) {
+        objectOf.remove(key);
+        mappers[object]--;
+    }
+
+    public int mappers(int object) { return mappers[object]; }
+    public boolean isCopyOnWrite(int object) { return copyOnWrite[object]; }
+    public long originOf(int object) { return origin[object]; }
+    public int frameOf(int object) { return frame[object]; }
+    public int holderOf(int object) { return holder[object]; }
+
+    public void setResident(int object, int frameNumber, int processId) {
+        frame[object] = frameNumber;
+        holder[object] = processId;
+    }
+
+    // puts a page-table entry pointing at the frame on its list
+    public void addMapping(int frameNumber, long key) {
+        int node = freeMapping;
+        if (node != -1) {
+            freeMapping = nextMapping[node];
+        } else {
+            if (mappingNodes == mappingKey.length) {
+                mappingKey = Arrays.copyOf(mappingKey, mappingNodes * 2);
+                nextMapping = Arrays.copyOf(nextMapping, mappingNodes * 2);
+            }
+            node = mappingNodes++;
+        }
+        mappingKey[node] = key;
+        nextMapping[node] = firstMapping[frameNumber];
+        firstMapping[frameNumber] = node;
+        if (++mappings[frameNumber] > 1) {
+            framesSaved++;
+            peakFramesSaved = Math.max(peakFramesSaved, framesSaved);
+        }
+    }
+
+    // takes the entry off the frame's list; false if it was not on it
+    public boolean removeMapping(int frameNumber, long key) {
+        int previous = -1;
+        for (int node = firstMapping[frameNumber]; node != -1; previous = node, node = nextMapping[node]) {
+            if (mappingKey[node] == key) {
+                if (previous == -1) {
+                    firstMapping[frameNumber] = nextMapping[node];
+                } else {
+                    nextMapping[previous] = nextMapping[node];
+                }
+                nextMapping[node] = freeMapping;
+                freeMapping = node;
+                if (--mappings[frameNumber] > 0) {
+                    framesSaved--;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Walks a frame's list: firstMapping gives the first node, nextMapping the one
+    // after it, -1 the end
+    public int firstMapping(int frameNumber) { return firstMapping[frameNumber]; }
+    public int nextMapping(int node) { return nextMapping[node]; }
+    public long mappingKey(int node) { return mappingKey[node]; }
+
+    // The object's frame was evicted: its list is emptied and the object stays for
+    // the sharers' next fault. Returns the process whose resident set held it.
+    public int evict(int object) {
+        int frameNumber = frame[object];
+        int node = firstMapping[frameNumber];
+        while (node != -1) {
+            int next = nextMapping[node];
+            nextMapping[node] = freeMapping;
+            freeMapping = node;
+            node = next;
+        }
+        firstMapping[frameNumber] = -1;
+        framesSaved -= Math.max(0, mappings[frameNumber] - 1);
+        mappings[frameNumber] = 0;
+        frame[object] = -1;
+        return holder[object];
+    }
+
+    public void countFork() { forks++; }
+    public void countCopyOnWriteFault() { copyOnWriteFaults++; }
+    public void countSharedFault() { sharedFaults++; }
+
+    // Saves the objects and, as (frame, key) pairs, the entries mapping their frames
+    void save(Checkpoint out) {
+        objectOf.save(out);
+        out.putInt(objects);
+        out.putInts(Arrays.copyOf(frame, objects));
+        out.putInts(Arrays.copyOf(holder, objects));
+        out.putInts(Arrays.copyOf(mappers, objects));
+        out.putBooleans(Arrays.copyOf(copyOnWrite, objects));
+        out.putLongs(Arrays.copyOf(origin, objects));
+        long total = 0;
+        for (int count : mappings) {
+            total += count;
+        }
+        int[] mappedFrames = new int[(int) total];
+        long[] mappedKeys = new long[(int) total];
+        int count = 0;
+        for (int frameNumber = 0; frameNumber < firstMapping.length; frameNumber++) {
+            for (int node = firstMapping[frameNumber]; node != -1; node = nextMapping[node]) {
+                mappedFrames[count] = frameNumber;
+                mappedKeys[count++] = mappingKey[node];
+            }
+        }
+        out.putInts(mappedFrames);
+        out.putLongs(mappedKeys);
+        out.putLong(forks);
+        out.putLong(copyOnWriteFaults);
+        out.putLong(sharedFaults);
+        out.putLong(peakFramesSaved);
+    }
+
+    // the caller maps the restored entries into its page tables
+    void restore(Checkpoint in) {
+        objectOf.restore(in);
+        objects = in.getInt();
+        frame = in.getInts();
+        holder = in.getInts();
+        mappers = in.getInts();
+        copyOnWrite = in.getBooleans();
+        origin = in.getLongs();
+        int[] mappedFrames = in.getInts();
+        long[] mappedKeys = in.getLongs();
+        for (int i = 0; i < mappedFrames.length; i++) {
+            addMapping(mappedFrames[i], mappedKeys[i]);
+        }
+        forks = in.getLong();
+        copyOnWriteFaults = in.getLong();
+        sharedFaults = in.getLong();
+        peakFramesSaved = in.getLong();
+    }
+
+    public long getForks() { return forks; }
+    public long getCopyOnWriteFaults() { return copyOnWriteFaults; }
+    public long getSharedFaults() { return sharedFaults; }
+    public long getFramesSaved() { return framesSaved; }
+    public long getPeakFramesSaved() { return peakFramesSaved; }
+}
@@ -0,0 +1,50 @@
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+// A simulated process: an address space id, a scheduling priority and a source
+// of page references. It is a plain state object rather than a thread, so the
+// Scheduler can multiplex thousands of them over a few carrier threads.
+public class SimulatedProcess {
+    private final int processId;
+    private final int priority;
+    private final LongSupplier pageSource;
+    private final BooleanSupplier writeSource;   // asked right after pageSource; null issues only reads
+    private boolean write = false;
+    private final long totalReferences;
+    private long issuedReferences = 0;
+    private VirtualMemory.ProcessStats stats;
+    long queuedAt;                     // arrival order in the scheduler's ready queue
+
+    public SimulatedProcess(int processId, int priority, long totalReferences, LongSupplier pageSource) {
+        this(processId, priority, totalReferences, pageSource, null);
+    }
+
+    public SimulatedProcess(int processId, int priority, long totalReferences, LongSupplier pageSource,
+                            BooleanSupplier writeSource) {
+        this.processId = processId;
+        this.priority = priority;
+        this.totalReferences = totalReferences;
+        this.pageSource = pageSource;
+        this.writeSource = writeSource;
+    }
+
+    // next page this process references; only called while it holds a CPU
+    public long nextPage() {
+        issuedReferences++;
+        long page = pageSource.getAsLong();
+        write = writeSource != null && writeSource.getAsBoolean();
+        return page;
+    }
+
+    // whether the reference returned by the last nextPage() is a write
+    public boolean isWrite() { return write; }
+
+    public boolean isFinished() { return issuedReferences >= totalReferences; }
+    public int getProcessId() { return processId; }
+    public int getPriority() { return priority; }
+    public long getIssuedReferences() { return issuedReferences; }
+    public long getTotalReferences() { return totalReferences; }
+
+    public VirtualMemory.ProcessStats getStats() { return stats; }
+    void setStats(VirtualMemory.ProcessStats stats) { this.stats = stats; }
+}
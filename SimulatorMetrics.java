@@ -0,0 +1,135 @@
+import java.util.concurrent.atomic.LongAdder;
+
+// Global counters shared by the translation engines. LongAdders keep increments
+// contention-free when several simulated CPUs translate at once; an engine that
+// already runs under one lock counts into a plain Batch and publishes it now and
+// then instead. Translation latency is sampled into a histogram (one in every
+// `sampleInterval` references) so the two clock reads stay off most of the hot path.
+public class SimulatorMetrics implements SimulatorMetricsMBean {
+    public static final int DEFAULT_SAMPLE_INTERVAL = 16;
+
+    final LongAdder references = new LongAdder();
+    final LongAdder tlbHits = new LongAdder();
+    final LongAdder tlbMisses = new LongAdder();
+    final LongAdder pageFaults = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+    final LongAdder diskAccesses = new LongAdder();
+    final LongAdder writes = new LongAdder();
+    final LongAdder writeBacks = new LongAdder();
+    private final LongAdder timedReferences = new LongAdder();
+    private final LongAdder accessNanos = new LongAdder();   // simulated time, from a TimingModel
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final int sampleMask;
+
+    // Unsynchronised counters for a single writer; publish() folds them into the adders
+    public static class Batch {
+        long references;
+        long tlbHits;
+        long tlbMisses;
+        long pageFaults;
+        long evictions;
+        long diskAccesses;
+        long writes;
+        long writeBacks;
+
+        public void publish(SimulatorMetrics metrics) {
+            add(metrics.references, references);
+            add(metrics.tlbHits, tlbHits);
+            add(metrics.tlbMisses, tlbMisses);
+            add(metrics.pageFaults, pageFaults);
+            add(metrics.evictions, evictions);
+            add(metrics.diskAccesses, diskAccesses);
+            add(metrics.writes, writes);
+            add(metrics.writeBacks, writeBacks);
+            references = tlbHits = tlbMisses = pageFaults = evictions = diskAccesses = writes = writeBacks = 0;
+        }
+
+        // skipping zeros keeps a publish after every reference cheap
+        private static void add(LongAdder adder, long value) {
+            if (value != 0) {
+                adder.add(value);
+            }
+        }
+    }
+
+    public SimulatorMetrics() {
+        this(DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    // sampleInterval is rounded up to a power of two; 1 times every translation
+    public SimulatorMetrics(int sampleInterval) {
+        int interval = Integer.highestOneBit(Math.max(1, sampleInterval - 1) << 1);
+        this.sampleMask = sampleInterval <= 1 ? 0 : interval - 1;
+    }
+
+    // whether the reference with this sequence number should be timed
+    public boolean shouldSample(long sequence) {
+        return (sequence & sampleMask) == 0;
+    }
+
+    public void recordLatency(long nanos) {
+        latency.record(nanos);
+    }
+
+    public void addAccessTime(long references, long nanos) {
+        timedReferences.add(references);
+        accessNanos.add(nanos);
+    }
+
+    // published counters only; the owner publishes its batch first
+    void save(Checkpoint out) {
+        for (LongAdder adder : counters()) {
+            out.putLong(adder.sum());
+        }
+        latency.save(out);
+    }
+
+    void restore(Checkpoint in) {
+        for (LongAdder adder : counters()) {
+            adder.reset();
+            adder.add(in.getLong());
+        }
+        latency.restore(in);
+    }
+
+    private LongAdder[] counters() {
+        return new LongAdder[] { references, tlbHits, tlbMisses, pageFaults, evictions, diskAccesses,
+                                 writes, writeBacks, timedReferences, accessNanos };
+    }
+
+    public LatencyHistogram getLatency() { return latency; }
+
+    @Override public long getReferences() { return references.sum(); }
+    @Override public long getTlbHits() { return tlbHits.sum(); }
+    @Override public long getTlbMisses() { return tlbMisses.sum(); }
+    @Override public long getPageFaults() { return pageFaults.sum(); }
+    @Override public long getEvictions() { return evictions.sum(); }
+    @Override public long getDiskAccesses() { return diskAccesses.sum(); }
+    @Override public long getWrites() { return writes.sum(); }
+    @Override public long getWriteBacks() { return writeBacks.sum(); }
+
+    @Override
+    public double getTlbMissRatio() {
+        long refs = getReferences();
+        return refs == 0 ? 0 : (double) getTlbMisses() / refs;
+    }
+
+    @Override
+    public double getPageFaultRatio() {
+        long refs = getReferences();
+        return refs == 0 ? 0 : (double) getPageFaults() / refs;
+    }
+
+    @Override
+    public double getEffectiveAccessNanos() {
+        long refs = timedReferences.sum();
+        return refs == 0 ? 0 : (double) accessNanos.sum() / refs;
+    }
+
+    @Override public long getSampledTranslations() { return latency.getCount(); }
+    @Override public double getLatencyMeanNanos() { return latency.getMean(); }
+    @Override public long getLatencyP50Nanos() { return latency.getPercentile(50); }
+    @Override public long getLatencyP99Nanos() { return latency.getPercentile(99); }
+    @Override public long getLatencyP999Nanos() { return latency.getPercentile(99.9); }
+    @Override public long getLatencyMaxNanos() { return latency.getMax(); }
+}
@@ -0,0 +1,20 @@
+// JMX view of the global simulator counters.
+public interface SimulatorMetricsMBean {
+    long getReferences();
+    long getTlbHits();
+    long getTlbMisses();
+    long getPageFaults();
+    long getEvictions();
+    long getDiskAccesses();
+    long getWrites();
+    long getWriteBacks();
+    double getTlbMissRatio();
+    double getPageFaultRatio();
+    double getEffectiveAccessNanos();
+    long getSampledTranslations();
+    double getLatencyMeanNanos();
+    long getLatencyP50Nanos();
+    long getLatencyP99Nanos();
+    long getLatencyP999Nanos();
+    long getLatencyMaxNanos();
+}
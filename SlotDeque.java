@@ -0,0 +1,95 @@
+// Doubly linked list of slot indices backed by primitive arrays. Shared by the
+// list-based replacement policies so that reordering never allocates.
+public class SlotDeque {
+    private final int[] prev;
+    private final int[] next;
+    private final boolean[] member;
+    private int head = -1;
+    private int tail = -1;
+    private int size = 0;
+
+    public SlotDeque(int capacity) {
+        prev = new int[capacity];
+        next = new int[capacity];
+        member = new boolean[capacity];
+    }
+
+    public void addLast(int node) {
+        prev[node] = tail;
+        next[node] = -1;
+        if (tail != -1) {
+            next[tail] = node;
+        } else {
+            head = node;
+        }
+        tail = node;
+        member[node] = true;
+        size++;
+    }
+
+    public void remove(int node) {
+        if (!member[node]) {
+            return;
+        }
+        if (prev[node] != -1) {
+            next[prev[node]] = next[node];
+        } else {
+            head = next[node];
+        }
+        if (next[node] != -1) {
+            prev[next[node]] = prev[node];
+        } else {
+            tail = prev[node];
+        }
+        member[node] = false;
+        size--;
+    }
+
+    public void moveToLast(int node) {
+        if (node != tail) {
+            remove(node);
+            addLast(node);
+        }
+    }
+
+    public int removeFirst() {
+        int node = head;
+        if (node != -1) {
+            remove(node);
+        }
+        return node;
+    }
+
+    void save(Checkpoint out) {
+        out.putInts(prev);
+        out.putInts(next);
+        out.putBooleans(member);
+        out.putInt(head);
+        out.putInt(tail);
+        out.putInt(size);
+    }
+
+    void restore(Checkpoint in) {
+        in.getInts(prev);
+        in.getInts(next);
+        in.getBooleans(member);
+        head = in.getInt();
+        tail = in.getInt();
+        size = in.getInt();
+    }
+
+    // members from first to last
+    public int[] toArray() {
+        int[] nodes = new int[size];
+        for (int node = head, i = 0; node != -1; node = next[node]) {
+            nodes[i++] = node;
+        }
+        return nodes;
+    }
+
+    public int peekFirst() { return head; }
+    public int next(int node) { return next[node]; }
+    public boolean contains(int node) { return member[node]; }
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+}
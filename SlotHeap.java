@@ -0,0 +1,118 @@
+import java.util.Arrays;
+
+// Indexed binary min-heap over slot indices, ordered by (primary, secondary).
+// Each slot knows its heap position, so updating a slot's priority is O(log n).
+public class SlotHeap {
+    private final int[] heap;
+    private final int[] position;
+    private final long[] primary;
+    private final long[] secondary;
+    private int size = 0;
+
+    public SlotHeap(int capacity) {
+        heap = new int[capacity];
+        position = new int[capacity];
+        primary = new long[capacity];
+        secondary = new long[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    // inserts the slot, or re-prioritises it if already present
+    public void update(int slot, long first, long second) {
+        primary[slot] = first;
+        secondary[slot] = second;
+        int i = position[slot];
+        if (i == -1) {
+            i = size++;
+            heap[i] = slot;
+            position[slot] = i;
+            siftUp(i);
+        } else {
+            siftDown(siftUp(i));
+        }
+    }
+
+    public void remove(int slot) {
+        int i = position[slot];
+        if (i == -1) {
+            return;
+        }
+        int last = heap[--size];
+        position[slot] = -1;
+        if (i != size) {
+            heap[i] = last;
+            position[last] = i;
+            siftDown(siftUp(i));
+        }
+    }
+
+    public int pollMin() {
+        int slot = heap[0];
+        remove(slot);
+        return slot;
+    }
+
+    public int peekMin() { return heap[0]; }
+
+    void save(Checkpoint out) {
+        out.putInts(heap);
+        out.putInts(position);
+        out.putLongs(primary);
+        out.putLongs(secondary);
+        out.putInt(size);
+    }
+
+    void restore(Checkpoint in) {
+        in.getInts(heap);
+        in.getInts(position);
+        in.getLongs(primary);
+        in.getLongs(secondary);
+        size = in.getInt();
+    }
+
+    public long getPrimary(int slot) { return primary[slot]; }
+    public long getSecondary(int slot) { return secondary[slot]; }
+    public boolean contains(int slot) { return position[slot] != -1; }
+    public int size() { return size; }
+
+    private boolean less(int a, int b) {
+        return primary[a] < primary[b] || (primary[a] == primary[b] && secondary[a] < secondary[b]);
+    }
+
+    private int siftUp(int i) {
+        int slot = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(slot, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = slot;
+        position[slot] = i;
+        return i;
+    }
+
+    private void siftDown(int i) {
+        int slot = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && less(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!less(heap[child], slot)) {
+                break;
+            }
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = slot;
+        position[slot] = i;
+    }
+}
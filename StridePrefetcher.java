@@ -0,0 +1,55 @@
+import java.util.Arrays;
+
+// Stride detection per process: once two consecutive faults of a process are the
+// same distance apart, the next `degree` pages along that stride are predicted.
+public class StridePrefetcher implements Prefetcher {
+    private long[] lastFault = new long[64];
+    private long[] lastStride = new long[64];
+    private boolean[] seen = new boolean[64];
+
+    public int predict(int processId, long faultPage, long[] candidates) {
+        if (processId >= lastFault.length) {
+            int length = Math.max(processId + 1, lastFault.length * 2);
+            lastFault = Arrays.copyOf(lastFault, length);
+            lastStride = Arrays.copyOf(lastStride, length);
+            seen = Arrays.copyOf(seen, length);
+        }
+        if (!seen[processId]) {
+            seen[processId] = true;
+            lastFault[processId] = faultPage;
+            return 0;
+        }
+        long stride = faultPage - lastFault[processId];
+        long known = lastStride[processId];
+        // a run we prefetched along faults again just past the prefetched pages,
+        // a whole number of strides on
+        boolean confirmed = known != 0 && stride % known == 0
+                            && stride / known >= 1 && stride / known <= candidates.length + 1;
+        if (confirmed) {
+            stride = known;
+        }
+        lastFault[processId] = faultPage;
+        lastStride[processId] = stride;
+        if (!confirmed) {
+            return 0;
+        }
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = faultPage + stride * (i + 1);
+        }
+        return candidates.length;
+    }
+
+    @Override
+    public void save(Checkpoint out) {
+        out.putLongs(lastFault);
+        out.putLongs(lastStride);
+        out.putBooleans(seen);
+    }
+
+    @Override
+    public void restore(Checkpoint in) {
+        lastFault = in.getLongs();
+        lastStride = in.getLongs();
+        seen = in.getBooleans();
+    }
+}
@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Backing store for evicted pages. A page gets a swap slot the first time it is
+// written back and keeps it, so a clean page evicted later needs no I/O: its copy
+// on disk is still current. Pages that never had a slot are zero-filled on fault.
+// Transfers use positional FileChannel I/O from and to the off-heap frames.
+public class SwapFile implements AutoCloseable {
+    private final FileChannel channel;
+    private final Path path;
+    private final boolean temporary;
+    private final int pageSize;
+    private final LongIntHashMap slotOf = new LongIntHashMap(1024);
+    private int slots = 0;
+
+    private long reads = 0;
+    private long writes = 0;
+    private long bytesRead = 0;
+    private long bytesWritten = 0;
+    private long ioNanos = 0;
+
+    // path == null creates a temporary file that is deleted on close
+    public SwapFile(Path path, int pageSize) throws IOException {
+        this.temporary = path == null;
+        this.path = temporary ? Files.createTempFile("vm-swap", ".bin") : path;
+        this.pageSize = pageSize;
+        this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    // Fills `frame` with the page's swapped-out copy; false if it has none
+    public boolean readIn(long key, ByteBuffer frame) {
+        int slot = slotOf.get(key);
+        if (slot == -1) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            long position = (long) slot * pageSize - frame.position();
+            while (frame.hasRemaining()) {
+                if (channel.read(frame, position + frame.position()) < 0) {
+                    throw new IOException("Swap file ends inside slot " + slot);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ioNanos += System.nanoTime() - start;
+        reads++;
+        bytesRead += pageSize;
+        return true;
+    }
+
+    public void writeOut(long key, ByteBuffer frame) {
+        int slot = slotOf.get(key);
+        if (slot == -1) {
+            slot = slots++;
+            slotOf.put(key, slot);
+        }
+        long start = System.nanoTime();
+        try {
+            long position = (long) slot * pageSize - frame.position();
+            while (frame.hasRemaining()) {
+                channel.write(frame, position + frame.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ioNanos += System.nanoTime() - start;
+        writes++;
+        bytesWritten += pageSize;
+    }
+
+    // hands the page's slot, if it has one, to another key, e.g. a shared page made from it
+    public void move(long fromKey, long toKey) {
+        int slot = slotOf.get(fromKey);
+        if (slot != -1) {
+            slotOf.remove(fromKey);
+            slotOf.put(toKey, slot);
+        }
+    }
+
+    // keys of the pages that have a slot
+    public long[] keys() { return slotOf.keys(); }
+
+    public long getReads() { return reads; }
+    public long getWrites() { return writes; }
+    public long getBytesRead() { return bytesRead; }
+    public long getBytesWritten() { return bytesWritten; }
+    public long getIoNanos() { return ioNanos; }
+    public int getSlots() { return slots; }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        if (temporary) {
+            Files.deleteIfExists(path);
+        }
+    }
+}
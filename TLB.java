@@ -0,0 +1,235 @@
+import java.util.Arrays;
+
+// Set-associative TLB. Entries are grouped into sets of `associativity` ways and
+// a page may only live in the set selected by its low page-number bits.
+// associativity == 1 gives a direct-mapped TLB, associativity == size a fully
+// associative one. Entries are tagged with the address-space ID of their process,
+// so translations of several processes can coexist. Lookups go through an
+// (asid, page) -> slot index so the cost does not grow with the number of ways;
+// each set picks its victims through its own replacement policy.
+// Entries may map pages of several sizes: size class 0 is the base page and an
+// entry of a larger class is looked up by the number of the huge page holding
+// the base page, so each class has its own index.
+// Slots are kept in parallel primitive arrays: the (asid, page) tag as one long,
+// -1 when the slot is invalid, the frame, and the size class.
+public class TLB {
+    private final int size;
+    private final int associativity;
+    private final int numSets;
+    private final int setMask;         // numSets - 1 when numSets is a power of two, else -1
+    private final long[] tags;         // slot -> VirtualMemory.key(asid, page), -1 if invalid
+    private final int[] frames;
+    private final byte[] sizeClasses;
+    private final ReplacementPolicy[] setPolicies;
+    private final int[] freeWays;      // per-set stack of invalid ways, `associativity` slots per set
+    private final int[] freeWayCount;
+    private LongIntHashMap[] slotOfKey;  // per size class: (asid, page) -> slot
+    private final PolicyType policyType;
+
+    public TLB(int size, int associativity) {
+        this(size, associativity, PolicyType.FIFO, null);
+    }
+
+    public TLB(int size, int associativity, PolicyType policyType, OptimalPolicy.Lookahead lookahead) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("TLB size must be positive");
+        }
+        if (associativity <= 0 || associativity > size || size % associativity != 0) {
+            throw new IllegalArgumentException(
+                "TLB associativity must divide the TLB size (" + size + ")");
+        }
+        this.size = size;
+        this.associativity = associativity;
+        this.numSets = size / associativity;
+        this.setMask = Integer.bitCount(numSets) == 1 ? numSets - 1 : -1;
+        this.policyType = policyType;
+        this.tags = new long[size];
+        Arrays.fill(tags, -1);
+        this.frames = new int[size];
+        Arrays.fill(frames, -1);
+        this.sizeClasses = new byte[size];
+        this.setPolicies = new ReplacementPolicy[numSets];
+        this.freeWays = new int[size];
+        this.freeWayCount = new int[numSets];
+        for (int set = 0; set < numSets; set++) {
+            setPolicies[set] = policyType.create(associativity, lookahead);
+            // pushed in reverse so way 0 is handed out first
+            for (int way = associativity - 1; way >= 0; way--) {
+                freeWays[set * associativity + freeWayCount[set]++] = way;
+            }
+        }
+        this.slotOfKey = new LongIntHashMap[] { new LongIntHashMap(size) };
+    }
+
+    private int setIndex(long pageNumber) {
+        return (int) (setMask >= 0 ? pageNumber & setMask : pageNumber % numSets);
+    }
+
+    // returns the cached frame number, or -1 on a miss
+    public int lookup(int asid, long pageNumber) {
+        return lookup(asid, pageNumber, 0);
+    }
+
+    // pageNumber counts pages of the given size class
+    public int lookup(int asid, long pageNumber, int sizeClass) {
+        if (sizeClass >= slotOfKey.length) {
+            return -1;
+        }
+        long key = VirtualMemory.key(asid, pageNumber);
+        int slot = slotOfKey[sizeClass].get(key);
+        if (slot == -1) {
+            return -1;
+        }
+        setPolicies[slot / associativity].recordAccess(slot % associativity, key);
+        return frames[slot];
+    }
+
+    public void insert(int asid, long pageNumber, int frameNumber) {
+        insert(asid, pageNumber, frameNumber, 0);
+    }
+
+    public void insert(int asid, long pageNumber, int frameNumber, int sizeClass) {
+        ensureSizeClass(sizeClass);
+        long key = VirtualMemory.key(asid, pageNumber);
+        int set = setIndex(pageNumber);
+        int way;
+        if (freeWayCount[set] > 0) {
+            way = freeWays[set * associativity + --freeWayCount[set]];
+        } else {
+            way = setPolicies[set].selectVictim(key);
+        }
+        int slot = set * associativity + way;
+
+        if (tags[slot] != -1) {
+            slotOfKey[sizeClasses[slot]].remove(tags[slot]);
+        }
+        tags[slot] = key;
+        frames[slot] = frameNumber;
+        sizeClasses[slot] = (byte) sizeClass;
+        slotOfKey[sizeClass].put(key, slot);
+        setPolicies[set].recordInsert(way, key);
+    }
+
+    private void ensureSizeClass(int sizeClass) {
+        if (sizeClass >= slotOfKey.length) {
+            int old = slotOfKey.length;
+            slotOfKey = Arrays.copyOf(slotOfKey, sizeClass + 1);
+            for (int c = old; c <= sizeClass; c++) {
+                slotOfKey[c] = new LongIntHashMap(size);
+            }
+        }
+    }
+
+    // drops the mapping for a page, e.g. after its frame was reclaimed
+    public void invalidate(int asid, long pageNumber) {
+        invalidate(asid, pageNumber, 0);
+    }
+
+    public void invalidate(int asid, long pageNumber, int sizeClass) {
+        if (sizeClass >= slotOfKey.length) {
+            return;
+        }
+        int slot = slotOfKey[sizeClass].get(VirtualMemory.key(asid, pageNumber));
+        if (slot != -1) {
+            invalidateSlot(slot);
+        }
+    }
+
+    // drops every valid entry, as an untagged TLB must on a context switch
+    public void flush() {
+        int valid = 0;
+        for (LongIntHashMap slots : slotOfKey) {
+            valid += slots.size();
+        }
+        if (valid == 0) {
+            return;
+        }
+        for (int slot = 0; slot < size; slot++) {
+            if (tags[slot] != -1) {
+                invalidateSlot(slot);
+            }
+        }
+    }
+
+    private void invalidateSlot(int slot) {
+        slotOfKey[sizeClasses[slot]].remove(tags[slot]);
+        tags[slot] = -1;
+        frames[slot] = -1;
+        sizeClasses[slot] = 0;
+        int set = slot / associativity;
+        int way = slot % associativity;
+        setPolicies[set].recordRemove(way);
+        freeWays[set * associativity + freeWayCount[set]++] = way;
+    }
+
+    void save(Checkpoint out) {
+        out.putInt(size);
+        out.putInt(associativity);
+        out.putInt(policyType.ordinal());
+        out.putLongs(tags);
+        out.putInts(frames);
+        out.putBytes(sizeClasses);
+        int start = out.startSection();
+        for (ReplacementPolicy policy : setPolicies) {
+            policy.save(out);
+        }
+        out.putInts(freeWays);
+        out.putInts(freeWayCount);
+        out.endSection(start);
+    }
+
+    // Restores the saved entries. A TLB of another shape or policy inserts them
+    // one by one instead, keeping what fits and starting its policies afresh.
+    void restore(Checkpoint in) {
+        int savedSize = in.getInt();
+        int savedAssociativity = in.getInt();
+        int savedPolicy = in.getInt();
+        boolean sameShape = savedSize == size && savedAssociativity == associativity
+                            && savedPolicy == policyType.ordinal();
+        long[] savedTags = in.getLongs();
+        int[] savedFrames = in.getInts();
+        byte[] savedClasses = in.getBytes();
+        flush();
+        if (!sameShape) {
+            in.skipSection();
+            for (int slot = 0; slot < savedTags.length; slot++) {
+                if (savedTags[slot] != -1) {
+                    insert((int) (savedTags[slot] >>> VirtualMemory.MAX_PAGE_BITS),
+                           savedTags[slot] & VirtualMemory.PAGE_MASK, savedFrames[slot], savedClasses[slot]);
+                }
+            }
+            return;
+        }
+        in.enterSection();
+        for (ReplacementPolicy policy : setPolicies) {
+            policy.restore(in);
+        }
+        in.getInts(freeWays);
+        in.getInts(freeWayCount);
+        for (int slot = 0; slot < size; slot++) {
+            tags[slot] = savedTags[slot];
+            frames[slot] = savedFrames[slot];
+            sizeClasses[slot] = savedClasses[slot];
+            if (tags[slot] != -1) {
+                ensureSizeClass(sizeClasses[slot]);
+                slotOfKey[sizeClasses[slot]].put(tags[slot], slot);
+            }
+        }
+    }
+
+    // valid entries mapping pages of the given size class
+    public int getEntryCount(int sizeClass) {
+        return sizeClass < slotOfKey.length ? slotOfKey[sizeClass].size() : 0;
+    }
+
+    // slot contents; asid and page are -1 and the frame is -1 for an invalid slot
+    public boolean isValid(int slot) { return tags[slot] != -1; }
+    public int getAsid(int slot) { return tags[slot] == -1 ? -1 : (int) (tags[slot] >>> VirtualMemory.MAX_PAGE_BITS); }
+    public long getPageNumber(int slot) { return tags[slot] == -1 ? -1 : tags[slot] & VirtualMemory.PAGE_MASK; }
+    public int getFrameNumber(int slot) { return frames[slot]; }
+    public int getSizeClass(int slot) { return sizeClasses[slot]; }
+    public int getSize() { return size; }
+    public int getAssociativity() { return associativity; }
+    public int getNumSets() { return numSets; }
+    public PolicyType getPolicyType() { return policyType; }
+}
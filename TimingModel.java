@@ -0,0 +1,77 @@
+// Latencies of the events a reference can cause, in simulated nanoseconds. The
+// CPU side of a reference is a first-level TLB lookup, the lower TLB levels and
+// page-walk cache it probed (their latencies are configured on VirtualMemory),
+// one memory access per page-table level walked on a miss, and the access
+// itself; a fault adds a disk transfer for the page and another for a dirty victim.
+// With a compressed swap tier the CPU also compresses the pages it evicts into
+// the tier and decompresses the ones it faults back from there.
+public class TimingModel {
+    public static final TimingModel DEFAULT = new TimingModel(1, 100, 100, 5_000_000, 5_000, 1_500);
+
+    final long tlbNanos;
+    final long memoryNanos;
+    final long walkNanos;     // per page-table access
+    final long diskNanos;     // per page transferred
+    final long compressNanos;     // per page compressed into the compressed swap tier
+    final long decompressNanos;   // per page decompressed from it
+
+    public TimingModel(long tlbNanos, long memoryNanos, long walkNanos, long diskNanos) {
+        this(tlbNanos, memoryNanos, walkNanos, diskNanos, DEFAULT.compressNanos, DEFAULT.decompressNanos);
+    }
+
+    public TimingModel(long tlbNanos, long memoryNanos, long walkNanos, long diskNanos,
+                       long compressNanos, long decompressNanos) {
+        if (tlbNanos < 0 || memoryNanos < 0 || walkNanos < 0 || diskNanos < 0 || compressNanos < 0
+            || decompressNanos < 0) {
+            throw new IllegalArgumentException("Latencies cannot be negative");
+        }
+        this.tlbNanos = tlbNanos;
+        this.memoryNanos = memoryNanos;
+        this.walkNanos = walkNanos;
+        this.diskNanos = diskNanos;
+        this.compressNanos = compressNanos;
+        this.decompressNanos = decompressNanos;
+    }
+
+    // CPU time of the latest reference translated by vm
+    public long cpuNanos(VirtualMemory vm) {
+        return tlbNanos + vm.getLastLookupNanos() + vm.getLastWalkAccesses() * walkNanos + memoryNanos
+               + vm.getLastCompressions() * compressNanos + vm.getLastDecompressions() * decompressNanos;
+    }
+
+    // Time the latest reference translated by vm took with its disk transfers
+    // served immediately; callers must hold vm's monitor across both calls
+    public long serviceNanos(VirtualMemory vm) {
+        return cpuNanos(vm) + vm.getLastDiskWaits() * diskNanos;
+    }
+
+    // "tlb=1,memory=100,walk=100,disk=5000000,compress=5000,decompress=1500"; omitted
+    // latencies keep their defaults
+    public static TimingModel parse(String spec) {
+        long tlb = DEFAULT.tlbNanos, memory = DEFAULT.memoryNanos, walk = DEFAULT.walkNanos, disk = DEFAULT.diskNanos;
+        long compress = DEFAULT.compressNanos, decompress = DEFAULT.decompressNanos;
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Latency must be name=nanos: " + part);
+            }
+            long value = Long.parseLong(pair[1].trim());
+            switch (pair[0].trim().toLowerCase()) {
+                case "tlb":    tlb = value; break;
+                case "memory": memory = value; break;
+                case "walk":   walk = value; break;
+                case "disk":   disk = value; break;
+                case "compress":   compress = value; break;
+                case "decompress": decompress = value; break;
+                default: throw new IllegalArgumentException("Unknown latency: " + pair[0]);
+            }
+        }
+        return new TimingModel(tlb, memory, walk, disk, compress, decompress);
+    }
+
+    @Override
+    public String toString() {
+        return "tlb=" + tlbNanos + ",memory=" + memoryNanos + ",walk=" + walkNanos + ",disk=" + diskNanos
+               + ",compress=" + compressNanos + ",decompress=" + decompressNanos;
+    }
+}
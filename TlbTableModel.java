@@ -0,0 +1,53 @@
+import javax.swing.table.AbstractTableModel;
+
+// TLB contents as a table. refresh() diffs a fresh snapshot against the last one
+// and only fires updates for the slots that changed.
+public class TlbTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = { "Slot", "Set", "ASID", "Page#", "Frame#" };
+
+    private final VirtualMemory vm;
+    private final int associativity;
+    private int[] asids, frames, nextAsids, nextFrames;
+    private long[] pages, nextPages;
+
+    public TlbTableModel(VirtualMemory vm) {
+        this.vm = vm;
+        this.associativity = vm.getTlbAssociativity();
+        int size = vm.getTlbSize();
+        asids = new int[size];
+        frames = new int[size];
+        pages = new long[size];
+        nextAsids = new int[size];
+        nextFrames = new int[size];
+        nextPages = new long[size];
+        vm.snapshotTlb(asids, pages, frames);
+    }
+
+    public void refresh() {
+        vm.snapshotTlb(nextAsids, nextPages, nextFrames);
+        for (int i = 0; i < asids.length; i++) {
+            if (asids[i] != nextAsids[i] || pages[i] != nextPages[i] || frames[i] != nextFrames[i]) {
+                asids[i] = nextAsids[i];
+                pages[i] = nextPages[i];
+                frames[i] = nextFrames[i];
+                fireTableRowsUpdated(i, i);
+            }
+        }
+    }
+
+    @Override public int getRowCount() { return asids.length; }
+    @Override public int getColumnCount() { return COLUMNS.length; }
+    @Override public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case 0: return row;
+            case 1: return row / associativity;
+            case 2: return asids[row];
+            case 3: return pages[row];
+            default: return frames[row];
+        }
+    }
+}
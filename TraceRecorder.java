@@ -0,0 +1,114 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+// Writes references in the binary trace format read by BinaryTrace. Attach it to
+// a VirtualMemory with setRecorder to capture a session, or feed it directly.
+// Not thread-safe; VirtualMemory only calls it while holding its monitor.
+public class TraceRecorder implements TraceReplay.Sink, Closeable {
+    private static final int BLOCK_RECORDS = 1 << 16;
+
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] raw = new byte[BLOCK_RECORDS * 4];
+    private byte[] compressed = new byte[BLOCK_RECORDS * 4];
+    private int rawLength = 0;
+    private int records = 0;
+    private long totalRecords = 0;
+
+    // per-process delta state, reset at every block so blocks decode independently
+    private long[] lastPage = new long[64];
+    private int[] lastEpoch = new int[64];
+    private int epoch = 1;
+    private int lastProcessId = -1;
+
+    public TraceRecorder(Path file) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        out.write(BinaryTrace.MAGIC);
+    }
+
+    @Override
+    public void reference(long pageNumber, int processId) {
+        reference(pageNumber, processId, false);
+    }
+
+    @Override
+    public void reference(long pageNumber, int processId, boolean write) {
+        if (pageNumber < 0 || pageNumber >= (1L << VirtualMemory.MAX_PAGE_BITS) || processId < 0
+            || processId >= VirtualMemory.SHARED_PAGES) {
+            throw new IllegalArgumentException("Cannot record page " + pageNumber + " of process " + processId);
+        }
+        if (processId >= lastPage.length) {
+            int length = Math.max(processId + 1, lastPage.length * 2);
+            lastPage = Arrays.copyOf(lastPage, length);
+            lastEpoch = Arrays.copyOf(lastEpoch, length);
+        }
+        long previous = lastEpoch[processId] == epoch ? lastPage[processId] : 0;
+        long delta = pageNumber - previous;
+        long zigzag = (delta << 1) ^ (delta >> 63);
+        boolean switched = processId != lastProcessId;
+
+        if (raw.length - rawLength < 2 * BinaryTrace.MAX_VARINT_BYTES) {
+            raw = Arrays.copyOf(raw, raw.length * 2);
+        }
+        rawLength = BinaryTrace.writeVarint(raw, rawLength, (zigzag << 2) | (write ? 2 : 0) | (switched ? 1 : 0));
+        if (switched) {
+            rawLength = BinaryTrace.writeVarint(raw, rawLength, processId);
+            lastProcessId = processId;
+        }
+        lastPage[processId] = pageNumber;
+        lastEpoch[processId] = epoch;
+        records++;
+        totalRecords++;
+        if (records == BLOCK_RECORDS) {
+            try {
+                flushBlock();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (records == 0) {
+            return;
+        }
+        deflater.reset();
+        deflater.setInput(raw, 0, rawLength);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        out.writeInt(records);
+        out.writeInt(rawLength);
+        out.writeInt(length);
+        out.write(compressed, 0, length);
+
+        records = 0;
+        rawLength = 0;
+        epoch++;
+        lastProcessId = -1;
+    }
+
+    public long getRecords() { return totalRecords; }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBlock();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,758 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Headless runner: streams a trace file through VirtualMemory without the GUI.
+// Trace format is one reference per line: "<pageNumber> [processId [write]]"
+// separated by spaces, tabs or a comma. A '#' starts a comment that runs to the
+// end of the line, a missing process id defaults to 0 and a non-zero third field
+// marks a write. Fields are unsigned decimal numbers; anything else, or a number
+// that does not fit its field, fails the replay with the line it is on.
+public class TraceReplay {
+    // map the trace in windows so traces larger than 2 GB can be replayed
+    private static final long MAP_WINDOW = 256L * 1024 * 1024;
+    // at most this many processes get their own effective-access-time line
+    private static final int LISTED_PROCESSES = 16;
+
+    public interface Sink {
+        void reference(long pageNumber, int processId);
+
+        // sinks that care about the access type override this one
+        default void reference(long pageNumber, int processId, boolean write) {
+            reference(pageNumber, processId);
+        }
+    }
+
+    private final Sink sink;
+
+    // parser state carried across mapped windows
+    private Path trace;
+    private long line = 1;
+    private long value = 0;
+    private boolean inNumber = false;
+    private boolean inComment = false;
+    private int field = 0;
+    private long pageNumber = 0;
+    private int processId = 0;
+    private boolean write = false;
+
+    public TraceReplay(Sink sink) {
+        this.sink = sink;
+    }
+
+    public void replay(Path trace) throws IOException {
+        this.trace = trace;
+        try (FileChannel channel = FileChannel.open(trace, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAP_WINDOW) {
+                long length = Math.min(MAP_WINDOW, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                parse(buffer, (int) length);
+            }
+            endOfLine();
+        }
+    }
+
+    private void parse(MappedByteBuffer buffer, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n') {
+                endOfLine();
+                inComment = false;
+                line++;
+            } else if (inComment) {
+                continue;
+            } else if (b >= '0' && b <= '9') {
+                if (value > (Long.MAX_VALUE - (b - '0')) / 10) {
+                    throw malformed("number is too large");
+                }
+                value = value * 10 + (b - '0');
+                inNumber = true;
+            } else if (b == '#') {
+                endOfField();
+                inComment = true;
+            } else if (b == ' ' || b == '\t' || b == ',' || b == '\r') {
+                endOfField();
+            } else {
+                throw malformed(b >= ' ' && b < 127 ? "unexpected '" + (char) b + "'"
+                                                    : "unexpected byte 0x" + Integer.toHexString(b & 0xFF));
+            }
+        }
+    }
+
+    private IOException malformed(String problem) {
+        return new IOException(trace + " line " + line + ": " + problem);
+    }
+
+    private void endOfField() throws IOException {
+        if (!inNumber) {
+            return;
+        }
+        if (field == 0) {
+            pageNumber = value;
+        } else if (field == 1) {
+            if (value > Integer.MAX_VALUE) {
+                throw malformed("process id is too large");
+            }
+            processId = (int) value;
+        } else if (field == 2) {
+            write = value != 0;
+        } else {
+            throw malformed("too many fields");
+        }
+        field++;
+        value = 0;
+        inNumber = false;
+    }
+
+    private void endOfLine() throws IOException {
+        endOfField();
+        if (field > 0) {
+            sink.reference(pageNumber, processId, write);
+        }
+        field = 0;
+        processId = 0;
+        write = false;
+    }
+
+    // Feeds references to a VirtualMemory in batches: consecutive reads of one
+    // process are collected and translated with one call. Call flush() after the
+    // last reference.
+    public static class Counter implements Sink {
+        private static final int BATCH = 256;
+
+        private final VirtualMemory vm;
+        private final long[] pages = new long[BATCH];
+        private final int[] frames = new int[BATCH];
+        private int pending = 0;
+        private int pendingProcessId = -1;
+        private long references = 0;
+        private long rejected = 0;
+        private long writes = 0;
+
+        public Counter(VirtualMemory vm) {
+            this.vm = vm;
+        }
+
+        @Override
+        public void reference(long pageNumber, int processId) {
+            reference(pageNumber, processId, false);
+        }
+
+        @Override
+        public void reference(long pageNumber, int processId, boolean write) {
+            references++;
+            if (write) {
+                writes++;
+                flush();
+                if (vm.searchPageTable(pageNumber, processId, true) == -1) {
+                    rejected++;
+                }
+                return;
+            }
+            if (processId != pendingProcessId || pending == BATCH) {
+                flush();
+                pendingProcessId = processId;
+            }
+            pages[pending++] = pageNumber;
+        }
+
+        public void flush() {
+            if (pending == 0) {
+                return;
+            }
+            vm.searchPageTable(pendingProcessId, pages, frames, pending);
+            for (int i = 0; i < pending; i++) {
+                if (frames[i] == -1) {
+                    rejected++;
+                }
+            }
+            pending = 0;
+        }
+
+        public long getReferences() { return references; }
+        public long getRejected() { return rejected; }
+        public long getWrites() { return writes; }
+    }
+
+    // Tracks the trace position for checkpoints: skips the references a restored
+    // checkpoint already covers, passes the rest to a Counter, saves a checkpoint
+    // every `interval` references (0 for none) and ignores references past `stopAt`.
+    // A checkpoint is written to a temporary file first, so a crash while saving
+    // leaves the previous one intact.
+    public static class Checkpointer implements Sink {
+        private final VirtualMemory vm;
+        private final Counter counter;
+        private final Path file;
+        private final long skip;
+        private final long interval;
+        private final long stopAt;
+        private long position = 0;
+
+        public Checkpointer(VirtualMemory vm, Counter counter, Path file, long skip, long interval, long stopAt) {
+            this.vm = vm;
+            this.counter = counter;
+            this.file = file;
+            this.skip = skip;
+            this.interval = interval;
+            this.stopAt = stopAt;
+        }
+
+        @Override
+        public void reference(long pageNumber, int processId) {
+            reference(pageNumber, processId, false);
+        }
+
+        @Override
+        public void reference(long pageNumber, int processId, boolean write) {
+            if (position < skip || position >= stopAt) {
+                position++;
+                return;
+            }
+            counter.reference(pageNumber, processId, write);
+            position++;
+            if (interval > 0 && position % interval == 0 && position < stopAt) {
+                try {
+                    save();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        // writes the state as of the last reference passed on; null file saves nothing
+        public void save() throws IOException {
+            if (file == null) {
+                return;
+            }
+            counter.flush();
+            vm.saveCheckpoint(file, getPosition());
+        }
+
+        public long getPosition() { return Math.max(skip, Math.min(position, stopAt)); }
+    }
+
+    // Forks processes and maps shared memory at given trace positions: an operation
+    // at N runs just before reference N goes on to the next sink. Operations before
+    // `skip` are already part of a restored checkpoint's state and those from
+    // `stopAt` on lie past the references a Checkpointer passes on, so both are dropped.
+    public static class Sharer implements Sink {
+        private final VirtualMemory vm;
+        private final Counter counter;
+        private final Sink next;
+        private final long[] at;          // sorted trace positions
+        private final long[][] operation; // {parent, child} for a fork, {source, first, target, first, pages} to share
+        private int pending = 0;
+        private long position = 0;
+
+        public Sharer(VirtualMemory vm, Counter counter, Sink next, String forks, String shares,
+                      long skip, long stopAt) {
+            this.vm = vm;
+            this.counter = counter;
+            this.next = next;
+            String[] specs = ((forks == null ? "" : forks) + "," + (shares == null ? "" : shares)).split(",");
+            long[] positions = new long[specs.length];
+            long[][] operations = new long[specs.length][];
+            int count = 0;
+            for (String spec : specs) {
+                if (spec.trim().isEmpty()) {
+                    continue;
+                }
+                int separator = spec.lastIndexOf('@');
+                String[] fields = (separator < 0 ? spec : spec.substring(0, separator)).trim().split(":");
+                if (fields.length != 2 && fields.length != 5) {
+                    throw new IllegalArgumentException("Expected PARENT:CHILD@N or SOURCE:FIRST:TARGET:FIRST:PAGES@N, got "
+                                                       + spec);
+                }
+                long[] operation = new long[fields.length];
+                for (int i = 0; i < fields.length; i++) {
+                    operation[i] = Long.parseLong(fields[i]);
+                }
+                long when = separator < 0 ? 0 : Long.parseLong(spec.substring(separator + 1).trim());
+                if (when < skip || when >= stopAt) {
+                    continue;
+                }
+                // insertion keeps operations at one position in the order given
+                int i = count++;
+                while (i > 0 && positions[i - 1] > when) {
+                    positions[i] = positions[i - 1];
+                    operations[i] = operations[i - 1];
+                    i--;
+                }
+                positions[i] = when;
+                operations[i] = operation;
+            }
+            this.at = Arrays.copyOf(positions, count);
+            this.operation = Arrays.copyOf(operations, count);
+        }
+
+        @Override
+        public void reference(long pageNumber, int processId) {
+            reference(pageNumber, processId, false);
+        }
+
+        @Override
+        public void reference(long pageNumber, int processId, boolean write) {
+            if (pending < at.length && at[pending] <= position) {
+                run();
+            }
+            position++;
+            next.reference(pageNumber, processId, write);
+        }
+
+        private void run() {
+            counter.flush();
+            for (; pending < at.length && at[pending] <= position; pending++) {
+                long[] op = operation[pending];
+                if (op.length == 2) {
+                    vm.fork((int) op[0], (int) op[1]);
+                } else {
+                    vm.mapShared((int) op[0], op[1], (int) op[2], op[3], op[4]);
+                }
+            }
+        }
+    }
+
+    // Reads a text or binary trace file, or generates references when the source is "workload:<spec>"
+    // (see Workload) using the --references, --processes, --quantum, --seed and
+    // --write-ratio options.
+    static void feed(String source, long numPages, Map<String, String> options, Sink sink) throws IOException {
+        if (source.startsWith("workload:")) {
+            Workload.generate(source.substring("workload:".length()), numPages,
+                              Integer.parseInt(options.getOrDefault("processes", "1")),
+                              Long.parseLong(options.getOrDefault("references", "1000000")),
+                              Integer.parseInt(options.getOrDefault("quantum", "1")),
+                              Long.parseLong(options.getOrDefault("seed", "1")),
+                              Double.parseDouble(options.getOrDefault("write-ratio", "0")), sink);
+        } else if (BinaryTrace.isBinary(Paths.get(source))) {
+            new BinaryTrace().replay(Paths.get(source), sink);
+        } else {
+            new TraceReplay(sink).replay(Paths.get(source));
+        }
+    }
+
+    // "4K,2M,1G" -> byte counts; a number may carry a K, M or G suffix
+    static long[] parsePageSizes(String spec) {
+        String[] parts = spec.split(",");
+        long[] sizes = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i].trim().toUpperCase();
+            int shift = part.endsWith("K") ? 10 : part.endsWith("M") ? 20 : part.endsWith("G") ? 30 : 0;
+            sizes[i] = Long.parseLong(shift == 0 ? part : part.substring(0, part.length() - 1)) << shift;
+        }
+        return sizes;
+    }
+
+    static String formatSize(long bytes) {
+        if (bytes >= (1 << 30) && bytes % (1 << 30) == 0) {
+            return (bytes >> 30) + " GiB";
+        }
+        if (bytes >= (1 << 20) && bytes % (1 << 20) == 0) {
+            return (bytes >> 20) + " MiB";
+        }
+        if (bytes >= (1 << 10) && bytes % (1 << 10) == 0) {
+            return (bytes >> 10) + " KiB";
+        }
+        return bytes + " B";
+    }
+
+    // --name=value options after the positional arguments
+    static Map<String, String> parseOptions(String[] args, int first) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = first; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: java TraceReplay <traceFile|workload:SPEC> <numPages> <numFrames> <tlbSize>"
+                + " [--assoc=N] [--policy=FIFO|LRU|CLOCK|LFU|ARC|OPT] [--tlb-policy=...] [--flush-on-switch]"
+                + " [--pt-levels=N] [--pt-bits=B] [--cpus=N] [--jmx] [--record=FILE] [--swap[=FILE]]"
+                + " [--prefetch=SEQUENTIAL|STRIDE|HISTORY[:DEGREE]] [--timing[=LATENCIES]] [--timing-cpus=N]"
+                + " [--slice=N] [--allocation=GLOBAL|FIXED|WS[:WINDOW]|PFF[:LOWER:UPPER]]"
+                + " [--load-control[=HIGH[:LOW]]] [--page-sizes=BASE[,HUGE...]] [--promote=F]"
+                + " [--tlb-levels=SIZE[:ASSOC[:NANOS]],...] [--pwc=ENTRIES[:NANOS]] [--checkpoint=FILE[:EVERY]]"
+                + " [--stop-at=N] [--restore=FILE] [--fork=PARENT:CHILD@N,...] [--share=SRC:FIRST:DST:FIRST:PAGES@N,...]"
+                + " [--compressed-swap=SIZE[:OLDEST|LARGEST[:RATIO]]]"
+                + " [--references=N] [--processes=N] [--quantum=Q] [--seed=S] [--write-ratio=W]");
+            System.exit(1);
+        }
+
+        String trace = args[0];
+        String name = trace.startsWith("workload:") ? "workload" : Paths.get(trace).getFileName().toString();
+        long pages = Long.parseLong(args[1]);
+        int frames = Integer.parseInt(args[2]);
+        int tlbSize = Integer.parseInt(args[3]);
+        Map<String, String> options = parseOptions(args, 4);
+        int tlbAssociativity = Integer.parseInt(options.getOrDefault("assoc", String.valueOf(tlbSize)));
+        PolicyType framePolicy = PolicyType.parse(options.getOrDefault("policy", "FIFO"));
+        PolicyType tlbPolicy = PolicyType.parse(options.getOrDefault("tlb-policy", "FIFO"));
+
+        if (options.containsKey("cpus")) {
+            // options of the single-threaded engine that the concurrent one does not model
+            for (String option : new String[] { "flush-on-switch", "pt-levels", "pt-bits", "record", "swap",
+                                                "prefetch", "timing", "timing-cpus", "slice", "allocation",
+                                                "load-control", "page-sizes", "promote", "tlb-levels", "pwc",
+                                                "checkpoint", "stop-at", "restore", "fork", "share",
+                                                "compressed-swap" }) {
+                if (options.containsKey(option)) {
+                    throw new IllegalArgumentException("--" + option + " is not supported with --cpus");
+                }
+            }
+            if (options.containsKey("policy") && framePolicy != PolicyType.CLOCK) {
+                throw new IllegalArgumentException("--cpus reclaims frames with CLOCK only; --policy=" + framePolicy
+                                                   + " is not supported");
+            }
+            DecodedTrace decoded = new DecodedTrace();
+            feed(trace, pages, options, decoded);
+            runConcurrent(decoded, name, pages, frames, tlbSize, tlbAssociativity, tlbPolicy,
+                          Integer.parseInt(options.get("cpus")), options.containsKey("jmx"));
+            return;
+        }
+
+        // OPT needs the whole stream before the first reference, so decode it up front;
+        // so does the event simulator, which interleaves the processes itself
+        boolean timed = options.containsKey("timing");
+        boolean optimal = framePolicy == PolicyType.OPT || tlbPolicy == PolicyType.OPT;
+        if (timed && optimal) {
+            throw new IllegalArgumentException("OPT needs the trace order, which --timing does not keep");
+        }
+        boolean checkpointed = options.containsKey("checkpoint") || options.containsKey("restore")
+                               || options.containsKey("stop-at");
+        if (checkpointed && (timed || optimal || options.containsKey("swap"))) {
+            // the event simulator's processes, OPT's lookahead and swapped data live outside the checkpoint
+            throw new IllegalArgumentException("Checkpoints are not supported with --timing, OPT or --swap");
+        }
+        boolean sharing = options.containsKey("fork") || options.containsKey("share");
+        if (sharing && (timed || optimal)) {
+            // operations are scheduled by trace position, which only a streamed replay keeps
+            throw new IllegalArgumentException("--fork and --share are not supported with --timing or OPT");
+        }
+        DecodedTrace decoded = null;
+        OptimalPolicy.Lookahead lookahead = null;
+        if (optimal || timed) {
+            decoded = new DecodedTrace();
+            feed(trace, pages, options, decoded);
+            lookahead = optimal ? decoded.lookahead() : null;
+        }
+
+        VirtualMemory vm = new VirtualMemory(pages, frames, tlbSize, tlbAssociativity,
+                                             framePolicy, tlbPolicy, lookahead);
+        if (options.containsKey("page-sizes")) {
+            vm.setPageSizes(parsePageSizes(options.get("page-sizes")));
+        }
+        if (options.containsKey("tlb-levels")) {
+            for (String level : options.get("tlb-levels").split(",")) {
+                String[] spec = level.split(":");
+                int size = Integer.parseInt(spec[0]);
+                vm.addTlbLevel(size, spec.length > 1 ? Integer.parseInt(spec[1]) : size, tlbPolicy == PolicyType.OPT
+                               ? PolicyType.LRU : tlbPolicy, spec.length > 2 ? Long.parseLong(spec[2]) : 5);
+            }
+        }
+        if (options.containsKey("pwc")) {
+            String[] spec = options.get("pwc").split(":");
+            vm.setPageWalkCache(Integer.parseInt(spec[0]), spec.length > 1 ? Long.parseLong(spec[1]) : 2);
+        }
+        if (options.containsKey("promote")) {
+            vm.setPromotionThreshold(Double.parseDouble(options.get("promote")));
+        }
+        vm.setFlushTlbOnContextSwitch(Boolean.parseBoolean(options.getOrDefault("flush-on-switch", "false")));
+        if (options.containsKey("pt-levels") || options.containsKey("pt-bits")) {
+            vm.setPageTableLayout(Integer.parseInt(options.getOrDefault("pt-levels", "0")),
+                                  Integer.parseInt(options.getOrDefault("pt-bits", "9")));
+        }
+        if (options.containsKey("jmx")) {
+            vm.exportMetrics(new MetricsExporter(name));
+        }
+        if (options.containsKey("swap")) {
+            String swap = options.get("swap");
+            vm.enableDataStore(swap.equals("true") ? null : Paths.get(swap));
+        }
+        if (options.containsKey("compressed-swap")) {
+            String[] pool = options.get("compressed-swap").split(":");
+            vm.enableCompressedSwap(parsePageSizes(pool[0])[0],
+                                    pool.length > 1 ? CompressedSwap.Eviction.parse(pool[1]) : CompressedSwap.Eviction.OLDEST,
+                                    pool.length > 2 ? Double.parseDouble(pool[2]) : 3);
+        }
+        if (options.containsKey("prefetch")) {
+            String[] prefetch = options.get("prefetch").split(":");
+            vm.setPrefetcher(PrefetcherType.parse(prefetch[0]).create(),
+                             prefetch.length > 1 ? Integer.parseInt(prefetch[1]) : 4);
+        }
+        if (options.containsKey("allocation")) {
+            String[] allocation = options.get("allocation").split(":");
+            FrameAllocation type = FrameAllocation.parse(allocation[0]);
+            vm.setFrameAllocation(type);
+            if (type == FrameAllocation.WORKING_SET && allocation.length > 1) {
+                vm.setWorkingSetWindow(Long.parseLong(allocation[1]));
+            } else if (type == FrameAllocation.PFF && allocation.length > 2) {
+                vm.setPffThresholds(Long.parseLong(allocation[1]), Long.parseLong(allocation[2]));
+            }
+        }
+        if (options.containsKey("load-control")) {
+            if (!timed) {
+                // replayed in trace order, a suspended process's next reference would swap it straight back in
+                throw new IllegalArgumentException("--load-control needs --timing to hold suspended processes back");
+            }
+            String control = options.get("load-control");
+            String[] ratios = control.equals("true") ? new String[0] : control.split(":");
+            vm.setLoadControl(true, ratios.length > 0 ? Double.parseDouble(ratios[0]) : 0.3,
+                              ratios.length > 1 ? Double.parseDouble(ratios[1]) : 0.1);
+        }
+        TraceRecorder recorder = null;
+        if (options.containsKey("record")) {
+            recorder = new TraceRecorder(Paths.get(options.get("record")));
+            vm.setRecorder(recorder);
+        }
+        Counter counter = new Counter(vm);
+        Checkpointer checkpointer = null;
+        long skip = 0;
+        long stopAt = Long.parseLong(options.getOrDefault("stop-at", String.valueOf(Long.MAX_VALUE)));
+        if (checkpointed) {
+            if (options.containsKey("restore")) {
+                long restoreStart = System.nanoTime();
+                skip = vm.restoreCheckpoint(Paths.get(options.get("restore")));
+                System.out.printf("Checkpoint:       restored %s at trace reference %d in %.1f ms%n",
+                        options.get("restore"), skip, (System.nanoTime() - restoreStart) / 1e6);
+            }
+            String spec = options.get("checkpoint");
+            Path file = null;
+            long interval = 0;
+            if (spec != null) {
+                int colon = spec.lastIndexOf(':');
+                boolean periodic = colon > 0 && spec.substring(colon + 1).matches("\\d+");
+                file = Paths.get(periodic ? spec.substring(0, colon) : spec);
+                interval = periodic ? Long.parseLong(spec.substring(colon + 1)) : 0;
+            }
+            checkpointer = new Checkpointer(vm, counter, file, skip, interval, stopAt);
+        }
+        Sink replayed = checkpointer != null ? checkpointer : counter;
+        if (sharing) {
+            replayed = new Sharer(vm, counter, replayed, options.get("fork"), options.get("share"), skip, stopAt);
+        }
+        EventSimulator simulator = null;
+        if (timed) {
+            String latencies = options.get("timing");
+            simulator = new EventSimulator(vm, latencies.equals("true") ? TimingModel.DEFAULT
+                                                                         : TimingModel.parse(latencies),
+                                           Integer.parseInt(options.getOrDefault("timing-cpus", "1")),
+                                           Integer.parseInt(options.getOrDefault("slice", "100")));
+            for (SimulatedProcess process : decoded.processes()) {
+                simulator.add(process);
+            }
+        }
+
+        long start = System.nanoTime();
+        if (simulator != null) {
+            simulator.run();
+        } else if (decoded != null) {
+            decoded.replay(counter);
+        } else {
+            feed(trace, pages, options, replayed);
+        }
+        counter.flush();
+        if (checkpointer != null) {
+            checkpointer.save();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (recorder != null) {
+            recorder.close();
+        }
+        vm.closeDataStore();
+
+        long references = simulator != null ? simulator.getReferences() : counter.getReferences();
+        System.out.printf("References:       %d%n", references);
+        if (checkpointer != null && options.containsKey("checkpoint")) {
+            System.out.printf("Checkpoint:       saved at trace reference %d%n", checkpointer.getPosition());
+        }
+        if (counter.getRejected() > 0) {
+            System.out.printf("Out of range:     %d%n", counter.getRejected());
+        }
+        System.out.printf("TLB Miss Ratio:   %.4f%n", vm.getTlbMissRatio());
+        System.out.printf("Page Fault Ratio: %.4f%n", vm.getPageFaultRatio());
+        if (vm.getTlbLevels() > 1 || vm.getPageWalkCacheSize() > 0) {
+            printTlbLevels(vm);
+        }
+        if (vm.getPageSizeClasses() > 1) {
+            printPageSizes(vm);
+        }
+        System.out.printf("Context Switches: %d (%d TLB flushes)%n", vm.getContextSwitches(), vm.getTlbFlushes());
+        System.out.printf("Page Walk:        %.2f accesses per TLB miss, %d KiB of page tables%n",
+                vm.getAverageWalkAccesses(), vm.getPageTableFootprintBytes() / 1024);
+        printLatency(vm.getMetrics());
+        if (vm.getWrites() > 0) {
+            System.out.printf("Writes:           %d, %d dirty evictions written back (%.1f%% of evictions)%n",
+                    vm.getWrites(), vm.getWriteBacks(),
+                    vm.getEvictions() == 0 ? 0 : 100.0 * vm.getWriteBacks() / vm.getEvictions());
+        }
+        if (vm.getPrefetches() > 0) {
+            System.out.printf("Prefetch:         %d pages, accuracy %.4f, coverage %.4f, pollution %.4f%n",
+                    vm.getPrefetches(), vm.getPrefetchAccuracy(), vm.getPrefetchCoverage(),
+                    vm.getPrefetchPollution());
+        }
+        if (vm.getFrameAllocation() != FrameAllocation.GLOBAL || vm.getThrashingEpisodes() > 0
+            || vm.getSuspensions() > 0) {
+            System.out.printf("Allocation:       %s, %d thrashing episodes, %d suspensions, %d resumes, %d processes in memory%n",
+                    vm.getFrameAllocation(), vm.getThrashingEpisodes(), vm.getSuspensions(), vm.getResumes(),
+                    vm.getMultiprogrammingLevel());
+        }
+        if (vm.getForks() > 0 || vm.getSharedPages() > 0) {
+            System.out.printf("Sharing:          %d forks, %d shared pages, %d frames saved (peak %d), %d copy-on-write faults, %d shared-page faults%n",
+                    vm.getForks(), vm.getSharedPages(), vm.getFramesSaved(), vm.getPeakFramesSaved(),
+                    vm.getCopyOnWriteFaults(), vm.getSharedFaults());
+        }
+        if (vm.getCompressedSwap() != null) {
+            printCompressedSwap(vm);
+        }
+        SwapFile swap = vm.getSwapFile();
+        if (swap != null) {
+            System.out.printf("Swap I/O:         %d KiB read in %d pages, %d KiB written in %d pages, %.1f ms%n",
+                    swap.getBytesRead() / 1024, swap.getReads(), swap.getBytesWritten() / 1024,
+                    swap.getWrites(), swap.getIoNanos() / 1e6);
+        }
+        if (simulator != null) {
+            printTiming(simulator, vm);
+        }
+        System.out.printf("Elapsed:          %.3f s (%.0f refs/s)%n",
+                seconds, seconds == 0 ? 0 : references / seconds);
+    }
+
+    static void printTiming(EventSimulator simulator, VirtualMemory vm) {
+        System.out.printf("Simulated Time:   %.3f ms on %d CPUs (CPU %.1f%% busy, disk %.1f%% busy)%n",
+                simulator.getClockNanos() / 1e6, simulator.getCpus(),
+                100 * simulator.getCpuUtilization(), 100 * simulator.getDiskUtilization());
+        System.out.printf("Effective Access: %.1f ns per reference%n", simulator.getEffectiveAccessNanos());
+        if (vm.getProcessCount() > LISTED_PROCESSES) {
+            return;
+        }
+        for (Map.Entry<Integer, VirtualMemory.ProcessStats> entry : vm.getProcessStats().entrySet()) {
+            System.out.printf("  Process %-8d %.1f ns per reference, fault ratio %.4f, %d pages resident%n",
+                    entry.getKey(), entry.getValue().getEffectiveAccessNanos(), entry.getValue().getPageFaultRatio(),
+                    vm.getResidentPages(entry.getKey()));
+        }
+    }
+
+    static void printTlbLevels(VirtualMemory vm) {
+        for (int level = 0; level < vm.getTlbLevels(); level++) {
+            System.out.printf("  L%d TLB %6d entries, %3d-way: %d hits, %d misses (miss ratio %.4f)%n", level + 1,
+                    vm.getTlbLevelSize(level), vm.getTlbLevelAssociativity(level), vm.getTlbLevelHits(level),
+                    vm.getTlbLevelMisses(level), vm.getTlbLevelMissRatio(level));
+        }
+        if (vm.getPageWalkCacheSize() > 0) {
+            long walks = vm.getPageWalkCacheHits() + vm.getPageWalkCacheMisses();
+            System.out.printf("  Walk cache %3d entries: %d hits, %d misses (hit ratio %.4f)%n",
+                    vm.getPageWalkCacheSize(), vm.getPageWalkCacheHits(), vm.getPageWalkCacheMisses(),
+                    walks == 0 ? 0 : (double) vm.getPageWalkCacheHits() / walks);
+        }
+    }
+
+    static void printPageSizes(VirtualMemory vm) {
+        System.out.printf("Huge Pages:       %d promotions (%d pages read in), %d demotions, %d promoted now%n",
+                vm.getPromotions(), vm.getPromotionFills(), vm.getDemotions(), vm.getPromotedRegions());
+        for (int c = 0; c < vm.getPageSizeClasses(); c++) {
+            System.out.printf("  %-8s pages   %d references, TLB miss ratio %.4f, TLB reach %s%n",
+                    formatSize(vm.getPageSizeBytes(c)), vm.getTlbHits(c) + vm.getTlbMisses(c),
+                    vm.getTlbMissRatio(c), formatSize(vm.getTlbReachBytes(c)));
+        }
+    }
+
+    static void printCompressedSwap(VirtualMemory vm) {
+        CompressedSwap pool = vm.getCompressedSwap();
+        long faults = vm.getPageFaults();
+        System.out.printf("Compressed Swap:  %d of %d faults served from memory (%.1f%%), %d from disk%n",
+                vm.getCompressedFaults(), faults, faults == 0 ? 0 : 100.0 * vm.getCompressedFaults() / faults,
+                faults - vm.getCompressedFaults());
+        System.out.printf("  Pool:           %d pages in %d of %d KiB (peak %d KiB), ratio %.2f, %s eviction%n",
+                pool.getPages(), pool.getUsedBytes() / 1024, pool.getCapacity() / 1024,
+                pool.getPeakUsedBytes() / 1024, pool.getCompressionRatio(), pool.getEviction());
+        System.out.printf("  Traffic:        %d pages stored, %d rejected, %d evicted (%d written to disk)%n",
+                pool.getStores(), pool.getRejected(), pool.getEvictions(), pool.getWriteBacks());
+        if (vm.getSwapFile() != null) {
+            System.out.printf("  Codec time:     %.1f ms compressing, %.1f ms decompressing%n",
+                    pool.getCompressNanos() / 1e6, pool.getDecompressNanos() / 1e6);
+        }
+    }
+
+    static void printLatency(SimulatorMetrics metrics) {
+        System.out.printf("Evictions:        %d%n", metrics.getEvictions());
+        System.out.printf("Translation:      p50 %d ns, p99 %d ns, p99.9 %d ns (%d sampled)%n",
+                metrics.getLatencyP50Nanos(), metrics.getLatencyP99Nanos(),
+                metrics.getLatencyP999Nanos(), metrics.getSampledTranslations());
+    }
+
+    // Replays on several simulated CPUs at once. Processes are pinned to CPUs by
+    // id (pid % cpus) so each process keeps its reference order.
+    static void runConcurrent(DecodedTrace decoded, String name, long pages, int frames, int tlbSize,
+                              int tlbAssociativity, PolicyType tlbPolicy, int cpus, boolean jmx) {
+        ConcurrentVirtualMemory vm = new ConcurrentVirtualMemory(pages, frames, tlbSize, tlbAssociativity,
+                                                                 tlbPolicy, cpus);
+        if (jmx) {
+            new MetricsExporter(name).registerGlobal(vm.getMetrics());
+        }
+
+        Thread[] workers = new Thread[cpus];
+        for (int cpu = 0; cpu < cpus; cpu++) {
+            final int self = cpu;
+            workers[cpu] = new Thread(() -> {
+                // consecutive references of one process on this CPU go in one batch
+                long[] batchPages = new long[256];
+                int[] batchFrames = new int[256];
+                int pending = 0;
+                int pendingProcessId = -1;
+                for (int i = 0; i < decoded.size(); i++) {
+                    int processId = decoded.getProcessId(i);
+                    if (processId % cpus != self) {
+                        continue;
+                    }
+                    if (processId != pendingProcessId || pending == batchPages.length) {
+                        vm.translate(self, pendingProcessId, batchPages, batchFrames, pending);
+                        pending = 0;
+                        pendingProcessId = processId;
+                    }
+                    batchPages[pending++] = decoded.getPage(i);
+                }
+                vm.translate(self, pendingProcessId, batchPages, batchFrames, pending);
+            }, "cpu-" + cpu);
+        }
+
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("References:       %d on %d CPUs%n", vm.getTotalPageReferences(), cpus);
+        System.out.printf("TLB Miss Ratio:   %.4f%n", vm.getTlbMissRatio());
+        System.out.printf("Page Fault Ratio: %.4f%n", vm.getPageFaultRatio());
+        System.out.printf("Stale TLB Hits:   %d%n", vm.getStaleTlbHits());
+        printLatency(vm.getMetrics());
+        System.out.printf("Elapsed:          %.3f s (%.0f refs/s)%n",
+                seconds, seconds == 0 ? 0 : vm.getTotalPageReferences() / seconds);
+    }
+}
@@ -0,0 +1,12 @@
+// Every page equally likely; no locality at all.
+public class UniformWorkload extends Workload {
+    private final long numPages;
+
+    public UniformWorkload(long numPages, long seed) {
+        super(seed);
+        this.numPages = numPages;
+    }
+
+    @Override
+    public long getAsLong() { return nextLong(numPages); }
+}
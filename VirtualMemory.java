@@ -1,185 +1,1724 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.Random;
-import java.util.Scanner;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.HashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public class VirtualMemory {
-    public static final int PAGE_SIZE = 256;
+    public static final int PAGE_SIZE = 256;             // default base page size in bytes
     public static final int FRAME_SIZE = PAGE_SIZE;
-    private int numPages;
+    private long numPages;
+    private int pageSize = PAGE_SIZE;
     private int numFrames;
     private int tlbSize;
 
-    private int[] pageTable;
-    private int[] invertedPageTable;
-    private TLB_Entry[] tlb;
-    private int nextLoadLocation = 0;
-    private int nextFreeTlbIndex = 0;
-    private int pageFaults = 0;
-    private int tlbMisses = 0;
-    private int totalPageReferences = 0;
-    private int diskAccesses = 0;
-    private Map<Integer, ProcessStats> processStats = new ConcurrentHashMap<>();
-
-    public static class ProcessStats {
-        private AtomicInteger pageReferences = new AtomicInteger(0);
-        private AtomicInteger tlbMisses = new AtomicInteger(0);
-        private AtomicInteger pageFaults = new AtomicInteger(0);
+    // page numbers are limited to MAX_PAGE_BITS so that (process, page) fits a long key
+    public static final int MAX_PAGE_BITS = 40;
+    static final long PAGE_MASK = (1L << MAX_PAGE_BITS) - 1;
+
+    private PageTable[] pageTables = new PageTable[0]; // one table per process, indexed by process id
+    private int pageTableLevels = 0;                    // 0 selects a flat table when it fits
+    private int pageTableBitsPerLevel = 9;
+    private long[] invertedPageTable;                   // frame -> key(process, page), -1 if free
+    private byte[] frameFlags;                          // frame -> DIRTY | PREFETCHED
+    private static final byte DIRTY = 1;                // written since it was loaded
+    private static final byte PREFETCHED = 2;           // loaded by the prefetcher and not referenced since
+    private PhysicalMemory physicalMemory;              // frame contents, only in data-carrying mode
+    private SwapFile swapFile;
+    private CompressedSwap compressedSwap;              // compressed tier in front of the disk, null if none
+    private TLB tlb;                                    // first level
+    // Further TLB levels, each probed after a miss in the one above; a hit fills
+    // the levels above it and a walk fills them all. The page-walk cache holds
+    // upper page-table entries by (process, depth, page prefix) so a walk can start
+    // below the root.
+    private TLB[] lowerTlbs = new TLB[0];
+    private long[] lowerTlbNanos = new long[0];
+    private long[] tlbLevelHits = new long[1];
+    private long[] tlbLevelMisses = new long[1];
+    private TLB pageWalkCache;
+    private long pageWalkCacheNanos;
+    private long pageWalkCacheHits = 0;
+    private long pageWalkCacheMisses = 0;
+    private int probeClass;                             // size class of the entry the last probe hit
+    private ReplacementPolicy framePolicy;
+    private PolicyType framePolicyType;
+    private int[] freeFrames;
+    private int freeFrameCount;
+    private final ResidentSets residentSets;
+    private FrameAllocation frameAllocation = FrameAllocation.GLOBAL;
+    private long workingSetWindow = 1000;               // window, in references of the process
+    private long pffLowerInterval = 50;                 // references between faults below which a process grows
+    private long pffUpperInterval = 500;                // and above which it shrinks
+    private long[] lastFaultTime = new long[0];         // process -> its virtual time at its last fault
+    private int knownProcesses = 0;
+    private long lastSweep = 0;                         // when WORKING_SET last trimmed every process
+    private final LoadControl loadControl = new LoadControl();   // thrashing detection and suspended processes
+    private final HugePages hugePages;                  // page sizes and promoted regions
+    static final int SHARED_PAGES = (1 << 23) - 1;      // owner id in the keys of shared page objects
+    private final SharedPages sharedPages;              // pages mapped by several processes, see fork and mapShared
+    private Prefetcher prefetcher;
+    private long[] prefetchCandidates;
+    private long prefetches = 0;
+    private long usefulPrefetches = 0;
+    private long unusedPrefetchEvictions = 0;
+    // counters are kept in plain fields under the monitor and published to
+    // `metrics` every PUBLISH_INTERVAL references and whenever they are read; the
+    // counters `metrics` does not carry are read under the monitor instead
+    private static final int PUBLISH_INTERVAL = 4096;
+    private final SimulatorMetrics metrics;
+    private final SimulatorMetrics.Batch batch = new SimulatorMetrics.Batch();
+    private ProcessStats batchStats;                    // process the pending per-process counts belong to
+    private long batchReferences, batchTlbMisses, batchPageFaults;
+    private long sequence = 0;
+    // set while a checkpoint is being loaded; still set afterwards when the load
+    // failed partway, leaving state that must not be used
+    private boolean restoring = false;
+    private TraceReplay.Sink recorder;                  // receives every valid reference, e.g. a TraceRecorder
+    private boolean flushTlbOnContextSwitch = false;
+    private int lastProcessId = -1;
+    private long contextSwitches = 0;
+    private long tlbFlushes = 0;
+    private long pageWalks = 0;
+    // what the latest reference did, for timing models: page-table memory accesses
+    // (0 on a TLB hit), disk transfers it waited for, and transfers it started
+    // without waiting (prefetch reads and the write-backs they forced), and pages
+    // it compressed into or decompressed from the compressed tier
+    private int lastWalkAccesses, lastDiskWaits, lastBackgroundTransfers;
+    private int lastCompressions, lastDecompressions;
+    private long lastLookupNanos;                       // lower TLB levels and page-walk cache probed
+    private long pageWalkAccesses = 0;
+    private final ProcessStatsTable processStats = new ProcessStatsTable();
+
+    public static class ProcessStats implements ProcessMetricsMBean {
+        private final LongAdder pageReferences = new LongAdder();
+        private final LongAdder tlbMisses = new LongAdder();
+        private final LongAdder pageFaults = new LongAdder();
+        private final LongAdder evictions = new LongAdder();   // pages of this process pushed out
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder timedReferences = new LongAdder();
+        private final LongAdder accessNanos = new LongAdder();   // simulated time, from a TimingModel
         private volatile String status = "READY";
+        volatile boolean referenced = false;   // set once by ProcessStatsTable.getReferenced
         
-        public void incrementPageReferences() { pageReferences.incrementAndGet(); }
-        public void incrementTlbMisses() { tlbMisses.incrementAndGet(); }
-        public void incrementPageFaults() { pageFaults.incrementAndGet(); }
+        public void incrementPageReferences() { pageReferences.increment(); }
+        public void incrementTlbMisses() { tlbMisses.increment(); }
+        public void incrementPageFaults() { pageFaults.increment(); }
+        public void incrementEvictions() { evictions.increment(); }
+        void add(long references, long misses, long faults) {
+            pageReferences.add(references);
+            if (misses != 0) {
+                tlbMisses.add(misses);
+            }
+            if (faults != 0) {
+                pageFaults.add(faults);
+            }
+        }
+        public void recordLatency(long nanos) { latency.record(nanos); }
+        void addAccessTime(long references, long nanos) {
+            timedReferences.add(references);
+            accessNanos.add(nanos);
+        }
         
-        public int getPageReferences() { return pageReferences.get(); }
+        @Override public long getPageReferences() { return pageReferences.sum(); }
+        @Override public long getTlbMisses() { return tlbMisses.sum(); }
+        @Override public long getPageFaults() { return pageFaults.sum(); }
+        @Override public long getEvictions() { return evictions.sum(); }
+        public LatencyHistogram getLatency() { return latency; }
+        @Override public long getLatencyP50Nanos() { return latency.getPercentile(50); }
+        @Override public long getLatencyP99Nanos() { return latency.getPercentile(99); }
+        @Override
         public double getTlbMissRatio() {
-            return pageReferences.get() == 0 ? 0 : 
-                   (double) tlbMisses.get() / pageReferences.get();
+            long refs = getPageReferences();
+            return refs == 0 ? 0 : (double) getTlbMisses() / refs;
         }
+        @Override
         public double getPageFaultRatio() {
-            return pageReferences.get() == 0 ? 0 : 
-                   (double) pageFaults.get() / pageReferences.get();
+            long refs = getPageReferences();
+            return refs == 0 ? 0 : (double) getPageFaults() / refs;
+        }
+        @Override
+        public double getEffectiveAccessNanos() {
+            long refs = timedReferences.sum();
+            return refs == 0 ? 0 : (double) accessNanos.sum() / refs;
         }
-        public String getStatus() { return status; }
+        @Override public String getStatus() { return status; }
         public void setStatus(String status) { this.status = status; }
+
+        void save(Checkpoint out) {
+            for (LongAdder adder : counters()) {
+                out.putLong(adder.sum());
+            }
+            latency.save(out);
+            out.putString(status);
+        }
+
+        void restore(Checkpoint in) {
+            for (LongAdder adder : counters()) {
+                adder.reset();
+                adder.add(in.getLong());
+            }
+            latency.restore(in);
+            status = in.getString();
+        }
+
+        private LongAdder[] counters() {
+            return new LongAdder[] { pageReferences, tlbMisses, pageFaults, evictions, timedReferences, accessNanos };
+        }
+    }
+
+    public VirtualMemory(long numPages, int numFrames, int tlbSize) {
+        this(numPages, numFrames, tlbSize, tlbSize);
+    }
+
+    public VirtualMemory(long numPages, int numFrames, int tlbSize, int tlbAssociativity) {
+        this(numPages, numFrames, tlbSize, tlbAssociativity, PolicyType.FIFO, PolicyType.FIFO, null);
     }
 
-    public VirtualMemory(int numPages, int numFrames, int tlbSize) {
+    // lookahead is the reference stream as VirtualMemory.key(processId, page) in
+    // replay order and is only needed when either policy is OPT
+    public VirtualMemory(long numPages, int numFrames, int tlbSize, int tlbAssociativity,
+                         PolicyType framePolicyType, PolicyType tlbPolicyType,
+                         OptimalPolicy.Lookahead lookahead) {
+        if (numPages <= 0 || numPages > (1L << MAX_PAGE_BITS)) {
+            throw new IllegalArgumentException("Number of pages must be between 1 and 2^" + MAX_PAGE_BITS);
+        }
         this.numPages = numPages;
         this.numFrames = numFrames;
         this.tlbSize = tlbSize;
-        this.pageTable = new int[numPages];
-        Arrays.fill(pageTable, -1);
-        this.invertedPageTable = new int[numFrames];
+        this.invertedPageTable = new long[numFrames];
         Arrays.fill(invertedPageTable, -1);
-        this.tlb = new TLB_Entry[tlbSize];
-        for (int i = 0; i < tlbSize; i++) {
-            tlb[i] = new TLB_Entry(-1, -1, false);
+        this.frameFlags = new byte[numFrames];
+        this.residentSets = new ResidentSets(numFrames);
+        this.sharedPages = new SharedPages(numFrames);
+        this.hugePages = new HugePages(numFrames);
+        this.freeFrames = new int[numFrames];
+        for (int i = 0; i < numFrames; i++) {
+            freeFrames[i] = numFrames - 1 - i;
+        }
+        this.freeFrameCount = numFrames;
+        this.framePolicyType = framePolicyType;
+        this.framePolicy = framePolicyType.create(numFrames, lookahead);
+        this.tlb = new TLB(tlbSize, tlbAssociativity, tlbPolicyType,
+                           lookahead == null ? null : lookahead.fork());
+        this.metrics = new SimulatorMetrics();
+    }
+
+    // identifies a page across address spaces, e.g. for replacement policies
+    public static long key(int processId, long pageNumber) {
+        return ((long) processId << MAX_PAGE_BITS) | pageNumber;
+    }
+
+    // Selects a radix page table with the given shape for processes created from
+    // now on. levels == 0 picks the fewest levels that cover numPages.
+    public synchronized void setPageTableLayout(int levels, int bitsPerLevel) {
+        if (levels != 0 && (long) levels * bitsPerLevel < 64 - Long.numberOfLeadingZeros(numPages - 1)) {
+            throw new IllegalArgumentException("Page table layout does not cover " + numPages + " pages");
         }
+        this.pageTableLevels = levels == 0 ? RadixPageTable.levelsFor(numPages, bitsPerLevel) : levels;
+        this.pageTableBitsPerLevel = bitsPerLevel;
+        new RadixPageTable(pageTableLevels, bitsPerLevel);   // validate the shape up front
     }
 
-    private int searchTlb(int pageNumber) {
-        for (TLB_Entry entry : tlb) {
-            if (entry.isValid() && entry.getPageNumber() == pageNumber) {
-                return entry.getFrameNumber();
+    private PageTable newPageTable() {
+        if (pageTableLevels == 0 && numPages <= Integer.MAX_VALUE / 4) {
+            return new FlatPageTable((int) numPages);
+        }
+        int levels = pageTableLevels != 0 ? pageTableLevels
+                   : RadixPageTable.levelsFor(numPages, pageTableBitsPerLevel);
+        return new RadixPageTable(levels, pageTableBitsPerLevel);
+    }
+
+    private PageTable pageTableOf(int processId) {
+        if (processId >= pageTables.length) {
+            pageTables = Arrays.copyOf(pageTables, Math.max(processId + 1, pageTables.length * 2));
+        }
+        PageTable table = pageTables[processId];
+        if (table == null) {
+            table = newPageTable();
+            pageTables[processId] = table;
+            knownProcesses++;
+        }
+        return table;
+    }
+
+    private int searchTlb(int processId, long pageNumber) {
+        int frameNumber = probe(tlb, processId, pageNumber);
+        if (frameNumber != -1) {
+            tlbLevelHits[0]++;
+        } else {
+            tlbLevelMisses[0]++;
+            for (int level = 0; level < lowerTlbs.length; level++) {
+                lastLookupNanos += lowerTlbNanos[level];
+                frameNumber = probe(lowerTlbs[level], processId, pageNumber);
+                if (frameNumber != -1) {
+                    tlbLevelHits[level + 1]++;
+                    insert(tlb, processId, pageNumber, frameNumber, probeClass);
+                    for (int above = 0; above < level; above++) {
+                        insert(lowerTlbs[above], processId, pageNumber, frameNumber, probeClass);
+                    }
+                    break;
+                }
+                tlbLevelMisses[level + 1]++;
             }
         }
-        tlbMisses++;
-        return -1;
+        if (frameNumber == -1) {
+            batch.tlbMisses++;
+        } else {
+            batch.tlbHits++;
+            hugePages.countTlbHit(probeClass);
+        }
+        return frameNumber;
     }
 
-    private void updateTlb(int pageNumber, int frameNumber) {
-        tlb[nextFreeTlbIndex].setPageNumber(pageNumber);
-        tlb[nextFreeTlbIndex].setFrameNumber(frameNumber);
-        tlb[nextFreeTlbIndex].setValid(true);
-        nextFreeTlbIndex = (nextFreeTlbIndex + 1) % tlbSize;
+    // looks the page up in one TLB under every page size it may be mapped with
+    private int probe(TLB level, int processId, long pageNumber) {
+        probeClass = 0;
+        int frameNumber = level.lookup(processId, pageNumber);
+        for (int c = 1; frameNumber == -1 && hugePages.anyPromoted() && c <= hugePages.sizes(); c++) {
+            if (level.lookup(processId, pageNumber >>> hugePages.shift(c), c) != -1) {
+                // real huge pages are contiguous and the frame is base + offset; the
+                // frames of a promoted region are not, so read it from the table
+                frameNumber = pageTables[processId].lookup(pageNumber);
+                probeClass = c;
+            }
+        }
+        return frameNumber;
     }
 
-    public synchronized int searchPageTable(int pageNumber, int processId) {
+    private void insert(TLB level, int processId, long pageNumber, int frameNumber, int sizeClass) {
+        if (sizeClass == 0) {
+            level.insert(processId, pageNumber, frameNumber);
+        } else {
+            level.insert(processId, pageNumber >>> hugePages.shift(sizeClass), frameNumber, sizeClass);
+        }
+    }
+
+    private void updateTlb(int processId, long pageNumber, int frameNumber) {
+        int sizeClass = hugePages.anyPromoted() ? hugePages.promotedClass(processId, pageNumber) : 0;
+        hugePages.countTlbMiss(sizeClass);
+        insert(tlb, processId, pageNumber, frameNumber, sizeClass);
+        for (TLB level : lowerTlbs) {
+            insert(level, processId, pageNumber, frameNumber, sizeClass);
+        }
+    }
+
+    private void invalidateTlbs(int processId, long pageNumber, int sizeClass) {
+        tlb.invalidate(processId, pageNumber, sizeClass);
+        for (TLB level : lowerTlbs) {
+            level.invalidate(processId, pageNumber, sizeClass);
+        }
+    }
+
+    // Walk accesses left once the page-walk cache supplies the deepest upper-level
+    // entry it holds for the page; the entries of this walk are cached afterwards
+    private int cachedWalk(int processId, long pageNumber, RadixPageTable table, int walkAccesses) {
+        lastLookupNanos += pageWalkCacheNanos;
+        int levels = table.getLevels();
+        int bits = table.getBitsPerLevel();
+        int skipped = 0;
+        for (int depth = levels - 1; depth >= 1; depth--) {
+            if (pageWalkCache.lookup(processId, pageNumber >>> ((levels - depth) * bits), depth) != -1) {
+                skipped = depth;
+                break;
+            }
+        }
+        if (skipped > 0) {
+            pageWalkCacheHits++;
+        } else {
+            pageWalkCacheMisses++;
+        }
+        for (int depth = skipped + 1; depth < Math.min(walkAccesses + 1, levels); depth++) {
+            pageWalkCache.insert(processId, pageNumber >>> ((levels - depth) * bits), 0, depth);
+        }
+        return Math.max(1, walkAccesses - skipped);
+    }
+
+    private void switchTo(int processId) {
+        if (processId == lastProcessId) {
+            return;
+        }
+        if (lastProcessId != -1) {
+            contextSwitches++;
+            if (flushTlbOnContextSwitch) {
+                tlb.flush();
+                for (TLB level : lowerTlbs) {
+                    level.flush();
+                }
+                if (pageWalkCache != null) {
+                    pageWalkCache.flush();
+                }
+                tlbFlushes++;
+            }
+        }
+        lastProcessId = processId;
+    }
+
+    public int searchPageTable(long pageNumber, int processId) {
+        return searchPageTable(pageNumber, processId, false);
+    }
+
+    // A write marks the frame dirty, so it is written back when evicted; in
+    // data-carrying mode it also bumps the page's first word, a per-page write count.
+    public synchronized int searchPageTable(long pageNumber, int processId, boolean write) {
+        int frameNumber = access(pageNumber, processId, write);
+        if (write && frameNumber != -1 && physicalMemory != null) {
+            physicalMemory.putLong(frameNumber, 0, physicalMemory.getLong(frameNumber, 0) + 1);
+        }
+        return frameNumber;
+    }
+
+    // Translates pageNumbers[0..count) of one process into frameNumbers (-1 for
+    // pages outside the address space) under a single acquisition of the monitor.
+    // Frames and counters come out exactly as if each page went through
+    // searchPageTable in turn.
+    public synchronized void searchPageTable(int processId, long[] pageNumbers, int[] frameNumbers, int count) {
+        for (int i = 0; i < count; i++) {
+            frameNumbers[i] = access(pageNumbers[i], processId, false);
+        }
+    }
+
+    private int access(long pageNumber, int processId, boolean write) {
+        if (restoring) {
+            throw restoreFailed();
+        }
+        lastWalkAccesses = lastDiskWaits = lastBackgroundTransfers = 0;
+        lastCompressions = lastDecompressions = 0;
+        lastLookupNanos = 0;
         // Validate input
-        if (pageNumber < 0 || pageNumber >= numPages) {
+        if (pageNumber < 0 || pageNumber >= numPages || processId < 0 || processId >= SHARED_PAGES) {
             return -1;
         }
 
-        ProcessStats stats = processStats.computeIfAbsent(processId, k -> new ProcessStats());
-        stats.incrementPageReferences();
-        totalPageReferences++;
+        if (recorder != null) {
+            recorder.reference(pageNumber, processId, write);
+        }
+        if (loadControl.isSuspended(processId)) {
+            resume(processId);   // the driver ran it anyway: it swaps back in on demand
+        }
+        if (processId != lastProcessId || batchStats == null) {
+            publishProcessBatch();
+            batchStats = processStats.getReferenced(processId);
+        }
+        long n = sequence++;
+        if ((n & (PUBLISH_INTERVAL - 1)) == 0) {
+            publishMetrics();
+        }
+        boolean sampled = metrics.shouldSample(n);
+        long start = sampled ? System.nanoTime() : 0;
+        int frameNumber = translate(pageNumber, processId);
+        if (write) {
+            if (sharedPages.size() > 0 && (invertedPageTable[frameNumber] >>> MAX_PAGE_BITS) == SHARED_PAGES) {
+                frameNumber = writeShared(processId, pageNumber, frameNumber);
+            }
+            batch.writes++;
+            frameFlags[frameNumber] |= DIRTY;
+        }
+        if (sampled) {
+            long elapsed = System.nanoTime() - start;
+            metrics.recordLatency(elapsed);
+            batchStats.recordLatency(elapsed);
+        }
+        if (loadControl.countReference()) {
+            checkLoad(processId);
+        }
+        return frameNumber;
+    }
+
+    private int translate(long pageNumber, int processId) {
+        batchReferences++;
+        batch.references++;
+        switchTo(processId);
+        long key = key(processId, pageNumber);
+        boolean local = frameAllocation != FrameAllocation.GLOBAL;
+        if (local) {
+            residentSets.tick(processId);
+        }
         
         // First check TLB
-        int frameNumber = searchTlb(pageNumber);
+        int frameNumber = searchTlb(processId, pageNumber);
         if (frameNumber != -1) {
+            framePolicy.recordAccess(frameNumber, key);
+            if (local) {
+                residentSets.touch(holderOf(processId, frameNumber), frameNumber);
+            }
             return frameNumber;
         }
         
-        stats.incrementTlbMisses();
+        batchTlbMisses++;
+        PageTable pageTable = pageTableOf(processId);
+        frameNumber = pageTable.lookup(pageNumber);
+        pageWalks++;
+        lastWalkAccesses = pageTable.getLastWalkAccesses();
+        if (pageWalkCache != null && pageTable instanceof RadixPageTable) {
+            lastWalkAccesses = cachedWalk(processId, pageNumber, (RadixPageTable) pageTable, lastWalkAccesses);
+        }
+        if (hugePages.anyPromoted() && frameNumber != -1) {
+            int sizeClass = hugePages.promotedClass(processId, pageNumber);
+            if (sizeClass > 0) {
+                // a huge page ends the walk one level early per table level it spans
+                lastWalkAccesses = Math.max(1, lastWalkAccesses - hugePages.shift(sizeClass) / pageTableBitsPerLevel);
+            }
+        }
+        pageWalkAccesses += lastWalkAccesses;
+        if (frameNumber == -1 && sharedPages.size() > 0) {
+            int object = sharedPages.objectOf(key);
+            if (object != -1) {
+                return sharedFault(processId, pageNumber, object, local);
+            }
+        }
         
         // Check if we need to evict a page (page fault handling)
-        if (pageTable[pageNumber] == -1) {
-            stats.incrementPageFaults();
-            pageFaults++;
-            diskAccesses++;
+        if (frameNumber == -1) {
+            batchPageFaults++;
+            batch.pageFaults++;
+            loadControl.countFault();
             
-            // If the next frame is already occupied, update the page table entry
-            if (invertedPageTable[nextLoadLocation] != -1) {
-                pageTable[invertedPageTable[nextLoadLocation]] = -1;
+            frameNumber = local ? claimLocalFrame(processId, key) : claimFrame(key);
+            if (load(frameNumber, processId, pageNumber, key, pageTable)) {
+                compressedSwap.countFault();
+            } else {
+                batch.diskAccesses++;
+                lastDiskWaits++;
+            }
+            if (hugePages.sizes() > 0) {
+                promote(processId, pageNumber, pageTable);
+            }
+            updateTlb(processId, pageNumber, frameNumber);
+            if (prefetcher != null) {
+                prefetch(processId, pageNumber, frameNumber, pageTable);
             }
-            
-            frameNumber = nextLoadLocation;
-            pageTable[pageNumber] = frameNumber;
-            invertedPageTable[frameNumber] = pageNumber;
-            nextLoadLocation = (nextLoadLocation + 1) % numFrames;
-            updateTlb(pageNumber, frameNumber);
             return frameNumber;
         }
         
-        updateTlb(pageNumber, pageTable[pageNumber]);
-        return pageTable[pageNumber];
+        if ((frameFlags[frameNumber] & PREFETCHED) != 0) {
+            frameFlags[frameNumber] &= ~PREFETCHED;
+            usefulPrefetches++;
+        }
+        framePolicy.recordAccess(frameNumber, key);
+        if (local) {
+            residentSets.touch(holderOf(processId, frameNumber), frameNumber);
+        }
+        updateTlb(processId, pageNumber, frameNumber);
+        return frameNumber;
     }
 
-    public String getStateAsString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("--------------------------------------------------------------------------------------------------\n");
-        sb.append("The current state of the TLB:\n");
-        
-        sb.append("Page#:  ");
-        for (TLB_Entry entry : tlb) {
-            sb.append(String.format("%-4d", entry.getPageNumber()));
+    // the process whose resident set holds the frame: the owner of a private frame,
+    // the process that read it in for a shared one
+    private int holderOf(int processId, int frameNumber) {
+        long identity = invertedPageTable[frameNumber];
+        return (identity >>> MAX_PAGE_BITS) == SHARED_PAGES ? sharedPages.holderOf((int) (identity & PAGE_MASK))
+                                                           : processId;
+    }
+
+    // A fault on a shared page: read in once for all sharers, or just mapped when
+    // another sharer already has it in a frame
+    private int sharedFault(int processId, long pageNumber, int object, boolean local) {
+        int frameNumber = sharedPages.frameOf(object);
+        long identity = key(SHARED_PAGES, object);
+        if (frameNumber == -1) {
+            batchPageFaults++;
+            batch.pageFaults++;
+            loadControl.countFault();
+            frameNumber = local ? claimLocalFrame(processId, identity) : claimFrame(identity);
+            frameFlags[frameNumber] = 0;
+            if (readIn(frameNumber, identity)) {
+                compressedSwap.countFault();
+            } else {
+                batch.diskAccesses++;
+                lastDiskWaits++;
+            }
+            invertedPageTable[frameNumber] = identity;
+            sharedPages.setResident(object, frameNumber, processId);
+            framePolicy.recordInsert(frameNumber, identity);
+            residentSets.add(processId, frameNumber);
+        } else {
+            sharedPages.countSharedFault();
+            framePolicy.recordAccess(frameNumber, identity);
+            if (local) {
+                residentSets.touch(sharedPages.holderOf(object), frameNumber);
+            }
         }
-        sb.append("\n");
-        
-        sb.append("Frame#: ");
-        for (TLB_Entry entry : tlb) {
-            sb.append(String.format("%-4d", entry.getFrameNumber()));
+        addMapping(frameNumber, processId, pageNumber);
+        updateTlb(processId, pageNumber, frameNumber);
+        return frameNumber;
+    }
+
+    // A write to a shared frame. A copy-on-write page that others still map is
+    // copied into a private frame of the writer first; the frame written to is returned.
+    private int writeShared(int processId, long pageNumber, int frameNumber) {
+        int object = (int) (invertedPageTable[frameNumber] & PAGE_MASK);
+        if (!sharedPages.isCopyOnWrite(object) || sharedPages.mappers(object) == 1) {
+            return frameNumber;
+        }
+        sharedPages.countCopyOnWriteFault();
+        long key = key(processId, pageNumber);
+        sharedPages.removeMapper(key, object);
+        if (sharedPages.removeMapping(frameNumber, key)) {
+            unmapPage(processId, pageNumber);
+        }
+        // claiming may evict the shared frame itself, which leaves its contents in place
+        int copy = frameAllocation != FrameAllocation.GLOBAL ? claimLocalFrame(processId, key) : claimFrame(key);
+        if (physicalMemory != null && copy != frameNumber) {
+            physicalMemory.copy(frameNumber, copy);
+        }
+        frameFlags[copy] = 0;
+        pageTables[processId].map(pageNumber, copy);
+        invertedPageTable[copy] = key;
+        framePolicy.recordInsert(copy, key);
+        residentSets.add(processId, copy);
+        updateTlb(processId, pageNumber, copy);
+        return copy;
+    }
+
+    // maps the page to a shared frame and puts the entry on the frame's list
+    private void addMapping(int frameNumber, int processId, long pageNumber) {
+        pageTables[processId].map(pageNumber, frameNumber);
+        sharedPages.addMapping(frameNumber, key(processId, pageNumber));
+    }
+
+    // a free frame, or else the replacement policy's victim
+    private int claimFrame(long key) {
+        if (freeFrameCount > 0) {
+            return freeFrames[--freeFrameCount];
         }
-        sb.append("\n\n");
+        int frameNumber = framePolicy.selectVictim(key);
+        if (evict(frameNumber)) {
+            lastDiskWaits++;
+        }
+        return frameNumber;
+    }
 
-        sb.append("The page table (page#: frame# (-1 if not mapped), valid bit):\n");
-        sb.append("Page#:  ");
-        for (int i = 0; i < numPages; i++) {
-            sb.append(String.format("%-4d", i));
+    private int claimLocalFrame(int processId, long key) {
+        long now = residentSets.virtualTime(processId);
+        switch (frameAllocation) {
+            case FIXED: {
+                int active = Math.max(1, knownProcesses - loadControl.suspendedCount());
+                int share = (numFrames + active - 1) / active;
+                if (residentSets.resident(processId) >= share) {
+                    return replaceOwn(processId);
+                }
+                if (freeFrameCount > 0) {
+                    return freeFrames[--freeFrameCount];
+                }
+                // the shares shrank when a process arrived: take from the largest holder
+                return replaceOwn(largestResidentSet(processId));
+            }
+            case WORKING_SET: {
+                trim(processId, now - workingSetWindow + 1);
+                if (freeFrameCount == 0 && sequence - lastSweep >= LoadControl.WINDOW) {
+                    trimWorkingSets();
+                }
+                if (freeFrameCount > 0) {
+                    return freeFrames[--freeFrameCount];
+                }
+                return frameForGrowingProcess(processId, key);
+            }
+            default: {
+                if (processId >= lastFaultTime.length) {
+                    lastFaultTime = Arrays.copyOf(lastFaultTime, Math.max(processId + 1, lastFaultTime.length * 2));
+                }
+                long previousFault = lastFaultTime[processId];
+                lastFaultTime[processId] = now;
+                long interval = now - previousFault;
+                if (interval > pffUpperInterval) {
+                    // faulting rarely: keep only the pages used since the previous fault
+                    trim(processId, previousFault);
+                } else if (interval >= pffLowerInterval && residentSets.resident(processId) > 0) {
+                    return replaceOwn(processId);
+                }
+                if (freeFrameCount > 0) {
+                    return freeFrames[--freeFrameCount];
+                }
+                if (interval > pffUpperInterval && residentSets.resident(processId) > 0) {
+                    return replaceOwn(processId);
+                }
+                return frameForGrowingProcess(processId, key);
+            }
         }
-        sb.append("\n");
-        
-        sb.append("Frame#: ");
-        for (int frame : pageTable) {
-            sb.append(String.format("%-4d", frame));
+    }
+
+    // Memory is full and the process is entitled to another frame: the demand
+    // exceeds memory. Load control suspends the largest other process; otherwise
+    // the process replaces its own oldest page, or takes the policy's victim if
+    // it holds none.
+    private int frameForGrowingProcess(int processId, long key) {
+        if (loadControl.demandExceeded(knownProcesses - loadControl.suspendedCount())) {
+            int victim = largestResidentSet(processId);
+            if (victim != -1) {
+                suspend(victim, true);
+                if (freeFrameCount > 0) {
+                    return freeFrames[--freeFrameCount];
+                }
+            }
         }
-        sb.append("\n");
-        
-        sb.append("Valid:  ");
-        for (int frame : pageTable) {
-            sb.append(String.format("%-4d", (frame >= 0 ? 1 : 0)));
+        if (residentSets.resident(processId) > 0) {
+            return replaceOwn(processId);
+        }
+        return claimFrame(key);
+    }
+
+    private int replaceOwn(int processId) {
+        int frameNumber = residentSets.oldest(processId);
+        framePolicy.recordRemove(frameNumber);
+        if (evict(frameNumber)) {
+            lastDiskWaits++;
+        }
+        return frameNumber;
+    }
+
+    // process other than `exclude` holding the most frames, or -1
+    private int largestResidentSet(int exclude) {
+        int largest = -1;
+        for (int pid = 0; pid < residentSets.processSlots(); pid++) {
+            if (pid != exclude && residentSets.resident(pid) > 0
+                && (largest == -1 || residentSets.resident(pid) > residentSets.resident(largest))) {
+                largest = pid;
+            }
+        }
+        return largest;
+    }
+
+    // frees the process's frames last used before its virtual time `keepFrom`
+    private void trim(int processId, long keepFrom) {
+        int frameNumber;
+        while ((frameNumber = residentSets.oldest(processId)) != -1 && residentSets.lastUse(frameNumber) < keepFrom) {
+            release(frameNumber);
         }
-        sb.append("\n");
-        
-        return sb.toString();
     }
 
-    public int getTotalPageReferences() { return totalPageReferences; }
-    public int getTlbMisses() { return tlbMisses; }
-    public int getPageFaults() { return pageFaults; }
-    public int getNumPages() { return numPages; }
+    private void trimWorkingSets() {
+        lastSweep = sequence;
+        for (int pid = 0; pid < residentSets.processSlots(); pid++) {
+            trim(pid, residentSets.virtualTime(pid) - workingSetWindow + 1);
+        }
+    }
+
+    private void release(int frameNumber) {
+        framePolicy.recordRemove(frameNumber);
+        if (evict(frameNumber)) {
+            lastBackgroundTransfers++;
+        }
+        invertedPageTable[frameNumber] = -1;
+        freeFrames[freeFrameCount++] = frameNumber;
+    }
+
+    // Swaps the process out: all of its frames are released and its status
+    // becomes SUSPENDED until resume(), or until it references memory again
+    private void suspend(int processId, boolean inWindow) {
+        loadControl.suspend(processId, inWindow);
+        int frameNumber;
+        while ((frameNumber = residentSets.oldest(processId)) != -1) {
+            release(frameNumber);
+        }
+        getOrCreateProcessStats(processId).setStatus("SUSPENDED");
+    }
+
+    public synchronized boolean isSuspended(int processId) {
+        return loadControl.isSuspended(processId);
+    }
+
+    public synchronized void resume(int processId) {
+        if (loadControl.resume(processId)) {
+            getOrCreateProcessStats(processId).setStatus("READY");
+        }
+    }
+
+    private void checkLoad(int processId) {
+        LoadControl.Action action = loadControl.endWindow(freeFrameCount == 0,
+                                                          knownProcesses - loadControl.suspendedCount());
+        if (frameAllocation == FrameAllocation.WORKING_SET) {
+            trimWorkingSets();
+        }
+        if (action == LoadControl.Action.SUSPEND) {
+            int victim = largestResidentSet(processId);
+            if (victim != -1) {
+                suspend(victim, false);
+            }
+        } else if (action == LoadControl.Action.RESUME) {
+            resume(loadControl.longestSuspended());
+        }
+    }
+
+    // Gives `childId` a copy-on-write copy of the parent's address space, as fork()
+    // does: every page of the parent that is resident, already shared, or swapped
+    // out in data-carrying mode becomes a shared page that both map, and the first
+    // write to it by either copies it. Pages the parent shares as writable shared
+    // memory stay writable for the child. The child must not have referenced memory yet.
+    public synchronized void fork(int parentId, int childId) {
+        checkSharing(parentId, childId);
+        if (parentId == childId || (childId < pageTables.length && pageTables[childId] != null)) {
+            throw new IllegalArgumentException("Process " + childId + " already has an address space");
+        }
+        pageTableOf(childId);
+        sharedPages.countFork();
+        for (long key : pagesOf(parentId)) {
+            long pageNumber = key & PAGE_MASK;
+            share(parentId, pageNumber, childId, pageNumber, true);
+        }
+    }
+
+    // Maps `pages` pages of the source from sourceFirst on into the target at
+    // targetFirst as shared memory: each page takes one frame and writes are seen by
+    // both. The target pages must be neither resident nor shared already.
+    public synchronized void mapShared(int sourceId, long sourceFirst, int targetId, long targetFirst, long pages) {
+        checkSharing(sourceId, targetId);
+        if (pages < 0 || sourceFirst < 0 || targetFirst < 0 || sourceFirst + pages > numPages
+            || targetFirst + pages > numPages) {
+            throw new IllegalArgumentException("Shared range lies outside the address space");
+        }
+        PageTable target = pageTableOf(targetId);
+        for (long i = 0; i < pages; i++) {
+            long sourceKey = key(sourceId, sourceFirst + i);
+            long targetKey = key(targetId, targetFirst + i);
+            int object = sharedPages.objectOf(sourceKey);
+            if (targetKey == sourceKey || target.lookup(targetFirst + i) != -1 || sharedPages.objectOf(targetKey) != -1
+                || (object != -1 && sharedPages.isCopyOnWrite(object))) {
+                throw new IllegalArgumentException("Page " + (targetFirst + i) + " of process " + targetId
+                    + " cannot map page " + (sourceFirst + i) + " of process " + sourceId + " as shared memory");
+            }
+        }
+        for (long i = 0; i < pages; i++) {
+            share(sourceId, sourceFirst + i, targetId, targetFirst + i, false);
+        }
+    }
+
+    private void checkSharing(int firstId, int secondId) {
+        if (restoring) {
+            throw restoreFailed();
+        }
+        if (framePolicyType == PolicyType.OPT || tlb.getPolicyType() == PolicyType.OPT || hugePages.sizes() > 0) {
+            throw new IllegalStateException("Shared pages are not supported with OPT replacement or huge pages");
+        }
+        if (firstId < 0 || firstId >= SHARED_PAGES || secondId < 0 || secondId >= SHARED_PAGES) {
+            throw new IllegalArgumentException("Process ids must be between 0 and " + (SHARED_PAGES - 1));
+        }
+    }
+
+    // keys of the pages with contents the process would hand to a child
+    private long[] pagesOf(int processId) {
+        long[] pages = new long[16];
+        int count = 0;
+        for (int frame = 0; frame < numFrames; frame++) {
+            if (invertedPageTable[frame] != -1 && (invertedPageTable[frame] >>> MAX_PAGE_BITS) == processId) {
+                pages = append(pages, count++, invertedPageTable[frame]);
+            }
+        }
+        for (long key : sharedPages.keys()) {
+            if ((key >>> MAX_PAGE_BITS) == processId) {
+                pages = append(pages, count++, key);
+            }
+        }
+        if (swapFile != null) {
+            for (long key : swapFile.keys()) {
+                if ((key >>> MAX_PAGE_BITS) == processId && pageTables[processId].lookup(key & PAGE_MASK) == -1
+                    && sharedPages.objectOf(key) == -1 && (compressedSwap == null || !compressedSwap.contains(key))) {
+                    pages = append(pages, count++, key);
+                }
+            }
+        }
+        if (compressedSwap != null) {
+            for (long key : compressedSwap.keys()) {
+                if ((key >>> MAX_PAGE_BITS) == processId && sharedPages.objectOf(key) == -1) {
+                    pages = append(pages, count++, key);
+                }
+            }
+        }
+        return Arrays.copyOf(pages, count);
+    }
+
+    private static long[] append(long[] values, int index, long value) {
+        if (index == values.length) {
+            values = Arrays.copyOf(values, index * 2);
+        }
+        values[index] = value;
+        return values;
+    }
+
+    // Adds the target page to the object behind the source page, making the
+    // source page one first if it is still private
+    private void share(int sourceId, long sourcePage, int targetId, long targetPage, boolean copyOnWrite) {
+        long sourceKey = key(sourceId, sourcePage);
+        int object = sharedPages.objectOf(sourceKey);
+        if (object == -1) {
+            object = sharedPages.create(sourceKey, copyOnWrite);
+            sharedPages.addMapper(sourceKey, object);
+            long identity = key(SHARED_PAGES, object);
+            int frameNumber = pageTableOf(sourceId).lookup(sourcePage);
+            if (frameNumber != -1) {
+                // the private frame becomes the object's, its one entry the head of the list
+                invertedPageTable[frameNumber] = identity;
+                addMapping(frameNumber, sourceId, sourcePage);
+                sharedPages.setResident(object, frameNumber, sourceId);
+            }
+            if (swapFile != null) {
+                swapFile.move(sourceKey, identity);
+            }
+            if (compressedSwap != null) {
+                compressedSwap.move(sourceKey, identity);
+            }
+        }
+        sharedPages.addMapper(key(targetId, targetPage), object);
+        if (sharedPages.frameOf(object) != -1) {
+            addMapping(sharedPages.frameOf(object), targetId, targetPage);
+        }
+    }
+
+    // Unmaps the policy's victim and drops any TLB entry still pointing at it;
+    // returns whether the victim had to be written back
+    private boolean evict(int frameNumber) {
+        long victimKey = invertedPageTable[frameNumber];
+        long victimPage = victimKey & PAGE_MASK;
+        int victimOwner = (int) (victimKey >>> MAX_PAGE_BITS);
+        if (victimOwner == SHARED_PAGES) {
+            // unmap it from every sharer; the object stays for their next fault
+            for (int node = sharedPages.firstMapping(frameNumber); node != -1; node = sharedPages.nextMapping(node)) {
+                long key = sharedPages.mappingKey(node);
+                unmapPage((int) (key >>> MAX_PAGE_BITS), key & PAGE_MASK);
+            }
+            victimOwner = sharedPages.evict((int) victimPage);
+        } else {
+            unmapPage(victimOwner, victimPage);
+        }
+        residentSets.remove(victimOwner, frameNumber);
+        if (hugePages.sizes() > 0) {
+            int demoted = hugePages.pageEvicted(victimOwner, victimPage);
+            for (int c = 1; demoted != 0; c++) {
+                if ((demoted & 1 << c) != 0) {
+                    invalidateTlbs(victimOwner, victimPage >>> hugePages.shift(c), c);
+                    demoted &= ~(1 << c);
+                }
+            }
+        }
+        batch.evictions++;
+        processStats.getOrCreate(victimOwner).incrementEvictions();
+        if ((frameFlags[frameNumber] & PREFETCHED) != 0) {
+            unusedPrefetchEvictions++;
+        }
+        boolean dirty = (frameFlags[frameNumber] & DIRTY) != 0;
+        if (compressedSwap != null && compress(frameNumber, victimKey, dirty)) {
+            return false;
+        }
+        if (dirty) {
+            writeBack(frameNumber, victimKey);
+            return true;
+        }
+        return false;
+    }
+
+    // Stores the victim in the compressed tier; false if the tier rejected it. The
+    // entries the tier drops to make room are written to disk in the background.
+    private boolean compress(int frameNumber, long victimKey, boolean dirty) {
+        int written = compressedSwap.store(victimKey, physicalMemory == null ? null : physicalMemory.frame(frameNumber),
+                                           dirty);
+        if (written < 0) {
+            return false;
+        }
+        lastCompressions++;
+        batch.writeBacks += written;
+        batch.diskAccesses += written;
+        lastBackgroundTransfers += written;
+        return true;
+    }
+
+    private void unmapPage(int processId, long pageNumber) {
+        pageTables[processId].unmap(pageNumber);
+        invalidateTlbs(processId, pageNumber, 0);
+        if (pageWalkCache != null && pageTables[processId] instanceof RadixPageTable) {
+            // drop cached pointers to table nodes the unmap freed: the walk now stops above them
+            RadixPageTable table = (RadixPageTable) pageTables[processId];
+            table.lookup(pageNumber);
+            for (int depth = table.getLastWalkAccesses(); depth < table.getLevels(); depth++) {
+                pageWalkCache.invalidate(processId, pageNumber >>> ((table.getLevels() - depth) * table.getBitsPerLevel()), depth);
+            }
+        }
+    }
+
+    // returns whether the compressed tier served the page
+    private boolean load(int frameNumber, int processId, long pageNumber, long key, PageTable pageTable) {
+        frameFlags[frameNumber] = 0;
+        boolean compressed = readIn(frameNumber, key);
+        pageTable.map(pageNumber, frameNumber);
+        invertedPageTable[frameNumber] = key;
+        framePolicy.recordInsert(frameNumber, key);
+        residentSets.add(processId, frameNumber);
+        if (hugePages.sizes() > 0) {
+            hugePages.pageLoaded(processId, pageNumber);
+        }
+        return compressed;
+    }
+
+    // After a fault, promotes the largest region around the page that has at least
+    // the promotion threshold of its base pages resident and fits in memory. The
+    // missing pages are read in first, like prefetches; if that would evict a page
+    // of the region itself the region stays as base pages.
+    private void promote(int processId, long pageNumber, PageTable pageTable) {
+        int c = hugePages.promotionCandidate(processId, pageNumber, numPages);
+        if (c == 0) {
+            return;
+        }
+        int shift = hugePages.shift(c);
+        long span = 1L << shift;
+        long region = pageNumber >>> shift;
+        long first = region << shift;
+        if (hugePages.residentPages(c, processId, region) < span && !fillRegion(processId, first, span, pageTable)) {
+            return;
+        }
+        // the huge entry replaces every smaller entry inside the region
+        for (long page = first; page < first + span; page++) {
+            invalidateTlbs(processId, page, 0);
+        }
+        for (int smaller = 1; smaller < c; smaller++) {
+            int smallerShift = hugePages.shift(smaller);
+            for (long r = first >>> smallerShift; r < (first + span) >>> smallerShift; r++) {
+                if (hugePages.absorb(smaller, processId, r)) {
+                    invalidateTlbs(processId, r, smaller);
+                }
+            }
+        }
+        hugePages.promote(c, processId, region);
+    }
+
+    private boolean fillRegion(int processId, long first, long span, PageTable pageTable) {
+        for (long page = first; page < first + span; page++) {
+            if (pageTable.lookup(page) != -1) {
+                continue;
+            }
+            long key = key(processId, page);
+            int frameNumber;
+            if (freeFrameCount > 0) {
+                frameNumber = freeFrames[--freeFrameCount];
+            } else if (frameAllocation != FrameAllocation.GLOBAL) {
+                return false;
+            } else {
+                long victimKey = invertedPageTable[framePolicy.peekVictim(key)];
+                if (victimKey >= key(processId, first) && victimKey < key(processId, first + span)) {
+                    return false;
+                }
+                frameNumber = framePolicy.selectVictim(key);
+                if (evict(frameNumber)) {
+                    lastBackgroundTransfers++;
+                }
+            }
+            hugePages.countFill();
+            if (!load(frameNumber, processId, page, key, pageTable)) {
+                batch.diskAccesses++;
+                lastBackgroundTransfers++;
+            }
+        }
+        return true;
+    }
+
+    // Reads the predicted pages in behind a demand fault. They enter frames through
+    // the replacement policy like any fault but stay out of the TLB and are not
+    // counted as faults. Prefetching stops rather than evict the page just faulted in.
+    private void prefetch(int processId, long pageNumber, int demandFrame, PageTable pageTable) {
+        int count = prefetcher.predict(processId, pageNumber, prefetchCandidates);
+        for (int i = 0; i < count; i++) {
+            long candidate = prefetchCandidates[i];
+            if (candidate < 0 || candidate >= numPages || pageTable.lookup(candidate) != -1) {
+                continue;
+            }
+            long key = key(processId, candidate);
+            if (sharedPages.size() > 0 && sharedPages.objectOf(key) != -1) {
+                continue;
+            }
+            int frameNumber;
+            if (freeFrameCount > 0) {
+                frameNumber = freeFrames[--freeFrameCount];
+            } else if (frameAllocation != FrameAllocation.GLOBAL) {
+                return;   // local strategies decide who may grow; prefetching only fills free frames
+            } else {
+                if (framePolicy.peekVictim(key) == demandFrame) {
+                    return;
+                }
+                frameNumber = framePolicy.selectVictim(key);
+                if (evict(frameNumber)) {
+                    lastBackgroundTransfers++;
+                }
+            }
+            prefetches++;
+            if (!load(frameNumber, processId, candidate, key, pageTable)) {
+                batch.diskAccesses++;
+                lastBackgroundTransfers++;
+            }
+            frameFlags[frameNumber] |= PREFETCHED;
+        }
+    }
+
+    // only dirty pages cost a write; a clean page's copy in swap, if any, is still current
+    private void writeBack(int frameNumber, long victimKey) {
+        batch.writeBacks++;
+        batch.diskAccesses++;
+        if (swapFile != null) {
+            swapFile.writeOut(victimKey, physicalMemory.frame(frameNumber));
+        }
+    }
+
+    // Fills the frame from the compressed tier when it holds the page, else from
+    // swap in data mode; returns whether the compressed tier served it
+    private boolean readIn(int frameNumber, long key) {
+        if (compressedSwap != null && compressedSwap.contains(key)) {
+            if (compressedSwap.load(key, physicalMemory == null ? null : physicalMemory.frame(frameNumber))) {
+                frameFlags[frameNumber] |= DIRTY;   // the disk copy is older
+            }
+            lastDecompressions++;
+            return true;
+        }
+        if (physicalMemory != null) {
+            loadPage(frameNumber, key);
+        }
+        return false;
+    }
+
+    private void loadPage(int frameNumber, long key) {
+        if (!swapFile.readIn(key, physicalMemory.frame(frameNumber))) {
+            physicalMemory.zero(frameNumber);   // never written back: zero-fill on demand
+        }
+    }
+
+    // Switches to data-carrying mode: frames get real off-heap storage and dirty
+    // pages are written to a swap file on eviction. swapPath == null uses a
+    // temporary file. Pages already resident start out zeroed.
+    public synchronized void enableDataStore(Path swapPath) throws IOException {
+        if (physicalMemory != null) {
+            throw new IllegalStateException("Data store is already enabled");
+        }
+        if (compressedSwap != null) {
+            throw new IllegalStateException("Enable the data store before the compressed swap tier");
+        }
+        swapFile = new SwapFile(swapPath, pageSize);
+        physicalMemory = new PhysicalMemory(numFrames, pageSize);
+    }
+
+    // Puts a compressed pool of `bytes` between the frames and the disk: evicted
+    // pages are compressed into it and a fault on one of them is served from memory.
+    // With the data store the page contents are compressed for real; without it each
+    // page is modelled to shrink by `ratio`. Only allowed before the first reference.
+    public synchronized void enableCompressedSwap(long bytes, CompressedSwap.Eviction eviction, double ratio) {
+        if (sequence > 0) {
+            throw new IllegalStateException("The compressed swap tier must be enabled before the first reference");
+        }
+        compressedSwap = new CompressedSwap(bytes, pageSize, eviction, ratio, swapFile);
+    }
+
+    public synchronized void closeDataStore() throws IOException {
+        if (swapFile != null) {
+            swapFile.close();
+        }
+    }
+
+    // Word-sized data access at a virtual address, translated like any reference
+    public synchronized long readLong(int processId, long virtualAddress) {
+        int frameNumber = dataFrame(processId, virtualAddress, false);
+        return physicalMemory.getLong(frameNumber, (int) (virtualAddress % pageSize));
+    }
+
+    public synchronized void writeLong(int processId, long virtualAddress, long value) {
+        int frameNumber = dataFrame(processId, virtualAddress, true);
+        physicalMemory.putLong(frameNumber, (int) (virtualAddress % pageSize), value);
+    }
+
+    private int dataFrame(int processId, long virtualAddress, boolean write) {
+        if (physicalMemory == null) {
+            throw new IllegalStateException("Data store is not enabled");
+        }
+        if (virtualAddress < 0 || virtualAddress % pageSize > pageSize - Long.BYTES) {
+            throw new IllegalArgumentException("Address " + virtualAddress + " does not hold a word within one page");
+        }
+        int frameNumber = access(virtualAddress / pageSize, processId, write);
+        if (frameNumber == -1) {
+            throw new IllegalArgumentException("Address " + virtualAddress + " is outside the address space");
+        }
+        return frameNumber;
+    }
+
+    // Snapshot accessors for views that poll the state from another thread
+
+    public synchronized void snapshotTlb(int[] asids, long[] pages, int[] frames) {
+        for (int i = 0; i < tlb.getSize(); i++) {
+            asids[i] = tlb.getAsid(i);
+            int sizeClass = tlb.getSizeClass(i);
+            // huge entries show the first base page they map
+            pages[i] = sizeClass == 0 ? tlb.getPageNumber(i) : tlb.getPageNumber(i) << hugePages.shift(sizeClass);
+            frames[i] = tlb.getFrameNumber(i);
+        }
+    }
+
+    public synchronized void snapshotFrames(int[] owners, long[] pages) {
+        for (int frame = 0; frame < numFrames; frame++) {
+            long key = invertedPageTable[frame];
+            if (key != -1 && (key >>> MAX_PAGE_BITS) == SHARED_PAGES) {
+                key = sharedPages.originOf((int) (key & PAGE_MASK));   // shown as the page it was shared from
+            }
+            owners[frame] = key == -1 ? -1 : (int) (key >>> MAX_PAGE_BITS);
+            pages[frame] = key == -1 ? -1 : key & PAGE_MASK;
+        }
+    }
+
+    public synchronized void snapshotResidentPages(int[] processIds, int[] resident, int count) {
+        for (int i = 0; i < count; i++) {
+            resident[i] = residentSets.resident(processIds[i]);
+        }
+    }
+
+    // frame holding the page, or -1; does not count as a reference
+    public synchronized int peekPageTable(int processId, long pageNumber) {
+        if (processId < 0 || processId >= pageTables.length || pageTables[processId] == null) {
+            return -1;
+        }
+        return pageTables[processId].lookup(pageNumber);
+    }
+
+    // Writes the whole translation state to `file`, to resume a run later or to
+    // branch several experiments off one warm start: frames and their owners, page
+    // tables, every TLB level and the page-walk cache, replacement, prefetcher and
+    // frame-allocation state, and all counters. tracePosition is how far the driver
+    // has read its trace; restoreCheckpoint returns it.
+    public synchronized void saveCheckpoint(Path file, long tracePosition) throws IOException {
+        checkCheckpointable();
+        publishMetrics();
+        try (Checkpoint out = Checkpoint.create(file)) {
+            out.putLong(tracePosition);
+            out.putLong(numPages);
+            out.putInt(numFrames);
+            out.putInt(pageSize);
+            out.putInts(hugePages.getShifts());
+
+            // page tables are rebuilt from the frames, so only their owners are listed
+            out.putLongs(invertedPageTable);
+            out.putBytes(frameFlags);
+            out.putInts(freeFrames);
+            out.putInt(freeFrameCount);
+            int[] owners = new int[knownProcesses];
+            int count = 0;
+            for (int pid = 0; pid < pageTables.length; pid++) {
+                if (pageTables[pid] != null) {
+                    owners[count++] = pid;
+                }
+            }
+            out.putInts(owners);
+            out.putInt(pageTableLevels);
+            out.putInt(pageTableBitsPerLevel);
+            sharedPages.save(out);
+            out.putBoolean(compressedSwap != null);
+            int start;
+            if (compressedSwap != null) {
+                start = out.startSection();
+                compressedSwap.save(out);
+                out.endSection(start);
+            }
+            residentSets.save(out);
+            out.putInt(framePolicyType.ordinal());
+            start = out.startSection();
+            framePolicy.save(out);
+            out.endSection(start);
+
+            tlb.save(out);
+            out.putInt(lowerTlbs.length);
+            for (TLB level : lowerTlbs) {
+                start = out.startSection();
+                level.save(out);
+                out.endSection(start);
+            }
+            out.putBoolean(pageWalkCache != null);
+            if (pageWalkCache != null) {
+                start = out.startSection();
+                pageWalkCache.save(out);
+                out.endSection(start);
+            }
+            out.putLongs(tlbLevelHits);
+            out.putLongs(tlbLevelMisses);
+            out.putLong(pageWalkCacheHits);
+            out.putLong(pageWalkCacheMisses);
+
+            hugePages.save(out);
+
+            out.putString(prefetcher == null ? "" : prefetcher.getClass().getName());
+            start = out.startSection();
+            if (prefetcher != null) {
+                prefetcher.save(out);
+            }
+            out.endSection(start);
+            out.putLong(prefetches);
+            out.putLong(usefulPrefetches);
+            out.putLong(unusedPrefetchEvictions);
+
+            out.putLongs(lastFaultTime);
+            out.putLong(lastSweep);
+            loadControl.save(out);
+
+            out.putLong(sequence);
+            out.putInt(lastProcessId);
+            out.putLong(contextSwitches);
+            out.putLong(tlbFlushes);
+            out.putLong(pageWalks);
+            out.putLong(pageWalkAccesses);
+            metrics.save(out);
+            Map<Integer, ProcessStats> stats = processStats.asMap();
+            out.putInt(stats.size());
+            for (Map.Entry<Integer, ProcessStats> entry : stats.entrySet()) {
+                out.putInt(entry.getKey());
+                entry.getValue().save(out);
+            }
+            out.commit();
+        }
+    }
+
+    // Loads a checkpoint into this instance, which must not have translated anything
+    // yet and must have the same pages, frames and page sizes. The rest may differ
+    // to branch an experiment: another frame policy is seeded with the resident
+    // pages, TLB levels of another shape or policy are refilled from the saved
+    // entries and page tables are rebuilt in this instance's layout. Returns the
+    // saved trace position. A checkpoint that does not match is rejected before
+    // anything changes; one that turns out truncated or corrupt partway leaves the
+    // instance unusable, so that it cannot run on half-loaded state.
+    public synchronized long restoreCheckpoint(Path file) throws IOException {
+        checkCheckpointable();
+        if (sequence > 0) {
+            throw new IllegalStateException("A checkpoint can only be restored before the first reference");
+        }
+        try (Checkpoint in = Checkpoint.open(file)) {
+            return restore(in);
+        } catch (BufferUnderflowException e) {
+            throw new IOException(file + " is truncated", e);
+        }
+    }
+
+    private long restore(Checkpoint in) {
+        long tracePosition = in.getLong();
+        long savedPages = in.getLong();
+        int savedFrames = in.getInt();
+        int savedPageSize = in.getInt();
+        int[] savedShifts = in.getInts();
+        if (savedPages != numPages || savedFrames != numFrames || savedPageSize != pageSize
+            || !Arrays.equals(savedShifts, hugePages.getShifts())) {
+            throw new IllegalArgumentException("Checkpoint does not match this simulator: it was taken with "
+                + savedPages + " pages, " + savedFrames + " frames, " + savedPageSize + "-byte pages and "
+                + savedShifts.length + " huge page sizes");
+        }
+        restoring = true;
+
+        in.getLongs(invertedPageTable);
+        in.getBytes(frameFlags);
+        in.getInts(freeFrames);
+        freeFrameCount = in.getInt();
+        for (int pid : in.getInts()) {
+            pageTableOf(pid);
+        }
+        for (int frame = 0; frame < numFrames; frame++) {
+            long key = invertedPageTable[frame];
+            if (key != -1 && (key >>> MAX_PAGE_BITS) != SHARED_PAGES) {
+                pageTables[(int) (key >>> MAX_PAGE_BITS)].map(key & PAGE_MASK, frame);
+            }
+        }
+        boolean sameLayout = in.getInt() == pageTableLevels;
+        sameLayout &= in.getInt() == pageTableBitsPerLevel;
+        sharedPages.restore(in);
+        for (int frame = 0; frame < numFrames; frame++) {
+            for (int node = sharedPages.firstMapping(frame); node != -1; node = sharedPages.nextMapping(node)) {
+                long key = sharedPages.mappingKey(node);
+                pageTables[(int) (key >>> MAX_PAGE_BITS)].map(key & PAGE_MASK, frame);
+            }
+        }
+        if (in.getBoolean()) {
+            // without a compressed tier the saved pool is dropped: its pages count as on disk
+            if (compressedSwap != null) {
+                in.enterSection();
+                compressedSwap.restore(in);
+            } else {
+                in.skipSection();
+            }
+        }
+        residentSets.restore(in);
+        if (in.getInt() == framePolicyType.ordinal()) {
+            in.enterSection();
+            framePolicy.restore(in);
+        } else {
+            in.skipSection();
+            for (int frame = 0; frame < numFrames; frame++) {
+                if (invertedPageTable[frame] != -1) {
+                    framePolicy.recordInsert(frame, invertedPageTable[frame]);
+                }
+            }
+        }
+
+        tlb.restore(in);
+        int savedLevels = in.getInt();
+        for (int level = 0; level < savedLevels; level++) {
+            if (level < lowerTlbs.length) {
+                in.enterSection();
+                lowerTlbs[level].restore(in);
+            } else {
+                in.skipSection();
+            }
+        }
+        if (in.getBoolean()) {
+            // cached entries point into tables of the saved layout
+            if (pageWalkCache != null && sameLayout) {
+                in.enterSection();
+                pageWalkCache.restore(in);
+            } else {
+                in.skipSection();
+            }
+        }
+        long[] levelHits = in.getLongs();
+        long[] levelMisses = in.getLongs();
+        System.arraycopy(levelHits, 0, tlbLevelHits, 0, Math.min(levelHits.length, tlbLevelHits.length));
+        System.arraycopy(levelMisses, 0, tlbLevelMisses, 0, Math.min(levelMisses.length, tlbLevelMisses.length));
+        pageWalkCacheHits = in.getLong();
+        pageWalkCacheMisses = in.getLong();
+
+        hugePages.restore(in);
+
+        String savedPrefetcher = in.getString();
+        if (prefetcher != null && prefetcher.getClass().getName().equals(savedPrefetcher)) {
+            in.enterSection();
+            prefetcher.restore(in);
+        } else {
+            in.skipSection();
+        }
+        prefetches = in.getLong();
+        usefulPrefetches = in.getLong();
+        unusedPrefetchEvictions = in.getLong();
+
+        lastFaultTime = in.getLongs();
+        lastSweep = in.getLong();
+        loadControl.restore(in);
+
+        sequence = in.getLong();
+        lastProcessId = in.getInt();
+        contextSwitches = in.getLong();
+        tlbFlushes = in.getLong();
+        pageWalks = in.getLong();
+        pageWalkAccesses = in.getLong();
+        metrics.restore(in);
+        for (int i = in.getInt(); i > 0; i--) {
+            int processId = in.getInt();
+            ProcessStats stats = processStats.getOrCreate(processId);
+            stats.restore(in);
+            if (stats.getPageReferences() > 0) {
+                processStats.getReferenced(processId);
+            }
+        }
+        restoring = false;
+        return tracePosition;
+    }
+
+    private IllegalStateException restoreFailed() {
+        return new IllegalStateException("A checkpoint failed to load into this simulator; create a new one");
+    }
+
+    private void checkCheckpointable() {
+        if (restoring) {
+            throw restoreFailed();
+        }
+        if (framePolicyType == PolicyType.OPT || tlb.getPolicyType() == PolicyType.OPT) {
+            throw new IllegalStateException("OPT replacement cannot be checkpointed");
+        }
+        if (physicalMemory != null) {
+            throw new IllegalStateException("Checkpoints do not cover the data store");
+        }
+    }
+
+    private void publishProcessBatch() {
+        if (batchStats != null) {
+            batchStats.add(batchReferences, batchTlbMisses, batchPageFaults);
+        }
+        batchReferences = batchTlbMisses = batchPageFaults = 0;
+    }
+
+    // folds the pending counts into the shared counters
+    public synchronized void publishMetrics() {
+        batch.publish(metrics);
+        publishProcessBatch();
+    }
+
+    public long getTotalPageReferences() { return getMetrics().getReferences(); }
+    public long getTlbMisses() { return getMetrics().getTlbMisses(); }
+    public long getPageFaults() { return getMetrics().getPageFaults(); }
+    public long getEvictions() { return getMetrics().getEvictions(); }
+    public long getDiskAccesses() { return getMetrics().getDiskAccesses(); }
+
+    public long getWrites() { return getMetrics().getWrites(); }
+    public long getWriteBacks() { return getMetrics().getWriteBacks(); }
+    public SwapFile getSwapFile() { return swapFile; }
+
+    public SimulatorMetrics getMetrics() {
+        publishMetrics();
+        return metrics;
+    }
+    public long getNumPages() { return numPages; }
+    public synchronized long getPageWalkAccesses() { return pageWalkAccesses; }
+    
+    public synchronized double getAverageWalkAccesses() {
+        return pageWalks == 0 ? 0 : (double) pageWalkAccesses / pageWalks;
+    }
+    
+    public synchronized long getPageTableFootprintBytes() {
+        long bytes = 0;
+        for (PageTable table : pageTables) {
+            if (table != null) {
+                bytes += table.getFootprintBytes();
+            }
+        }
+        return bytes;
+    }
+    public int getTlbAssociativity() { return tlb.getAssociativity(); }
+    public int getTlbSize() { return tlbSize; }
+    public int getNumFrames() { return numFrames; }
+    public PolicyType getFramePolicyType() { return framePolicyType; }
+    public PolicyType getTlbPolicyType() { return tlb.getPolicyType(); }
+    public synchronized long getContextSwitches() { return contextSwitches; }
+    public synchronized long getTlbFlushes() { return tlbFlushes; }
+    public boolean isFlushTlbOnContextSwitch() { return flushTlbOnContextSwitch; }
+    
+    // Sets the base page size and, optionally, larger page sizes regions may be
+    // promoted to, all in bytes and powers of two, e.g. 4096, 2 MiB, 1 GiB. Page
+    // numbers keep counting base pages. Only allowed before the first reference.
+    public synchronized void setPageSizes(long... sizes) {
+        if (sequence > 0 || physicalMemory != null || sharedPages.size() > 0 || compressedSwap != null) {
+            throw new IllegalStateException("Page sizes must be set before the first reference");
+        }
+        if (sizes.length == 0 || sizes[0] < 2 * Long.BYTES || sizes[0] > (1 << 30) || Long.bitCount(sizes[0]) != 1) {
+            throw new IllegalArgumentException("Base page size must be a power of two between 16 bytes and 1 GiB");
+        }
+        int[] shifts = new int[sizes.length - 1];
+        for (int c = 1; c < sizes.length; c++) {
+            if (sizes[c] <= sizes[c - 1] || Long.bitCount(sizes[c]) != 1) {
+                throw new IllegalArgumentException("Page sizes must be increasing powers of two");
+            }
+            shifts[c - 1] = Long.numberOfTrailingZeros(sizes[c] / sizes[0]);
+            if (shifts[c - 1] > MAX_PAGE_BITS) {
+                throw new IllegalArgumentException("Page size " + sizes[c] + " spans more than 2^" + MAX_PAGE_BITS + " pages");
+            }
+        }
+        if (shifts.length > 0 && (framePolicyType == PolicyType.OPT || tlb.getPolicyType() == PolicyType.OPT)) {
+            throw new IllegalArgumentException("Huge pages are not supported with OPT replacement");
+        }
+        this.pageSize = (int) sizes[0];
+        hugePages.setShifts(shifts);
+    }
+
+    // share of a region's base pages that must be resident before it is promoted;
+    // below 1 the rest are read in at promotion
+    public synchronized void setPromotionThreshold(double threshold) {
+        if (threshold <= 0 || threshold > 1) {
+            throw new IllegalArgumentException("Promotion threshold must be in (0, 1]");
+        }
+        hugePages.setPromotionThreshold(threshold);
+    }
+
+    public int getPageSize() { return pageSize; }
+    public int getPageSizeClasses() { return hugePages.sizes() + 1; }
+
+    public long getPageSizeBytes(int sizeClass) {
+        return sizeClass == 0 ? pageSize : (long) pageSize << hugePages.shift(sizeClass);
+    }
+
+    public synchronized long getPromotions() { return hugePages.getPromotions(); }
+    public synchronized long getDemotions() { return hugePages.getDemotions(); }
+    public synchronized long getPromotionFills() { return hugePages.getPromotionFills(); }
+    public synchronized int getPromotedRegions() { return hugePages.getPromotedRegions(); }
+
+    // references that hit (or missed) the TLB on a page of the given size class
+    public synchronized long getTlbHits(int sizeClass) { return hugePages.getTlbHits(sizeClass); }
+    public synchronized long getTlbMisses(int sizeClass) { return hugePages.getTlbMisses(sizeClass); }
+
+    public synchronized double getTlbMissRatio(int sizeClass) {
+        long refs = hugePages.getTlbHits(sizeClass) + hugePages.getTlbMisses(sizeClass);
+        return refs == 0 ? 0 : (double) hugePages.getTlbMisses(sizeClass) / refs;
+    }
+
+    // memory the TLB currently maps through entries of the given size class
+    public synchronized long getTlbReachBytes(int sizeClass) {
+        // levels are filled inclusively, so the last one bounds what the hierarchy maps
+        TLB last = lowerTlbs.length == 0 ? tlb : lowerTlbs[lowerTlbs.length - 1];
+        return last.getEntryCount(sizeClass) * getPageSizeBytes(sizeClass);
+    }
+
+    // Adds a TLB level below the existing ones, probed after they all miss at a
+    // cost of latencyNanos. OPT is not available because a lower level only sees
+    // the references the levels above it missed.
+    public synchronized void addTlbLevel(int size, int associativity, PolicyType policy, long latencyNanos) {
+        if (policy == PolicyType.OPT || latencyNanos < 0) {
+            throw new IllegalArgumentException(latencyNanos < 0 ? "Latency cannot be negative"
+                                                                : "OPT is not supported for lower TLB levels");
+        }
+        int levels = lowerTlbs.length;
+        lowerTlbs = Arrays.copyOf(lowerTlbs, levels + 1);
+        lowerTlbs[levels] = new TLB(size, associativity, policy, null);
+        lowerTlbNanos = Arrays.copyOf(lowerTlbNanos, levels + 1);
+        lowerTlbNanos[levels] = latencyNanos;
+        tlbLevelHits = Arrays.copyOf(tlbLevelHits, levels + 2);
+        tlbLevelMisses = Arrays.copyOf(tlbLevelMisses, levels + 2);
+    }
+
+    // Caches upper-level entries of radix page tables in `entries` fully associative
+    // LRU slots, probed on every walk at latencyNanos; 0 entries removes the cache
+    public synchronized void setPageWalkCache(int entries, long latencyNanos) {
+        if (entries < 0 || latencyNanos < 0) {
+            throw new IllegalArgumentException("Page-walk cache size and latency cannot be negative");
+        }
+        this.pageWalkCache = entries == 0 ? null : new TLB(entries, entries, PolicyType.LRU, null);
+        this.pageWalkCacheNanos = latencyNanos;
+    }
+
+    // level 0 is the first-level TLB
+    public int getTlbLevels() { return lowerTlbs.length + 1; }
+    public int getTlbLevelSize(int level) { return level == 0 ? tlbSize : lowerTlbs[level - 1].getSize(); }
+
+    public int getTlbLevelAssociativity(int level) {
+        return level == 0 ? tlb.getAssociativity() : lowerTlbs[level - 1].getAssociativity();
+    }
+
+    public long getTlbLevelNanos(int level) { return level == 0 ? 0 : lowerTlbNanos[level - 1]; }
+    public synchronized long getTlbLevelHits(int level) { return tlbLevelHits[level]; }
+    public synchronized long getTlbLevelMisses(int level) { return tlbLevelMisses[level]; }
+
+    // misses out of the lookups that reached the level
+    public synchronized double getTlbLevelMissRatio(int level) {
+        long lookups = tlbLevelHits[level] + tlbLevelMisses[level];
+        return lookups == 0 ? 0 : (double) tlbLevelMisses[level] / lookups;
+    }
+
+    public int getPageWalkCacheSize() { return pageWalkCache == null ? 0 : pageWalkCache.getSize(); }
+    public synchronized long getPageWalkCacheHits() { return pageWalkCacheHits; }
+    public synchronized long getPageWalkCacheMisses() { return pageWalkCacheMisses; }
+
+    public synchronized void setFrameAllocation(FrameAllocation allocation) {
+        this.frameAllocation = allocation;
+    }
+
+    // working-set window for WORKING_SET, in references of the process
+    public synchronized void setWorkingSetWindow(long window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Working-set window must be positive");
+        }
+        this.workingSetWindow = window;
+    }
+
+    // PFF grows a process whose faults come fewer than `lower` of its references
+    // apart and trims one whose faults are more than `upper` apart
+    public synchronized void setPffThresholds(long lower, long upper) {
+        if (lower < 1 || upper < lower) {
+            throw new IllegalArgumentException("PFF thresholds must satisfy 1 <= lower <= upper");
+        }
+        this.pffLowerInterval = lower;
+        this.pffUpperInterval = upper;
+    }
+
+    // With load control on, thrashing suspends the process holding the most frames
+    // and a window with a fault ratio at or below `resumeFaultRatio` resumes the
+    // longest-suspended one. Thrashing is detected and counted either way.
+    public synchronized void setLoadControl(boolean enabled, double thrashingFaultRatio, double resumeFaultRatio) {
+        if (thrashingFaultRatio <= 0 || thrashingFaultRatio > 1 || resumeFaultRatio < 0
+            || resumeFaultRatio >= thrashingFaultRatio) {
+            throw new IllegalArgumentException("Fault ratios must satisfy 0 <= resume < thrashing <= 1");
+        }
+        loadControl.configure(enabled, thrashingFaultRatio, resumeFaultRatio);
+    }
+
+    public FrameAllocation getFrameAllocation() { return frameAllocation; }
+    public synchronized long getThrashingEpisodes() { return loadControl.getThrashingEpisodes(); }
+    public synchronized long getSuspensions() { return loadControl.getSuspensions(); }
+    public synchronized long getResumes() { return loadControl.getResumes(); }
+    public synchronized int getResidentPages(int processId) { return residentSets.resident(processId); }
+
+    // processes that have referenced memory and are not suspended
+    public synchronized int getMultiprogrammingLevel() {
+        return knownProcesses - loadControl.suspendedCount();
+    }
+
+    // Runs `prefetcher` on every page fault, loading up to `degree` predicted pages;
+    // null turns prefetching off. OPT is excluded because its lookahead treats every
+    // load as a reference.
+    public synchronized void setPrefetcher(Prefetcher prefetcher, int degree) {
+        if (prefetcher != null && (degree < 1 || framePolicyType == PolicyType.OPT)) {
+            throw new IllegalArgumentException(degree < 1 ? "Prefetch degree must be positive"
+                                                           : "Prefetching is not supported with OPT replacement");
+        }
+        this.prefetcher = prefetcher;
+        this.prefetchCandidates = prefetcher == null ? null : new long[degree];
+    }
+
+    int getLastWalkAccesses() { return lastWalkAccesses; }
+    long getLastLookupNanos() { return lastLookupNanos; }
+    int getLastDiskWaits() { return lastDiskWaits; }
+    int getLastBackgroundTransfers() { return lastBackgroundTransfers; }
+    int getLastCompressions() { return lastCompressions; }
+    int getLastDecompressions() { return lastDecompressions; }
+
+    public CompressedSwap getCompressedSwap() { return compressedSwap; }
+    public synchronized long getCompressedFaults() { return compressedSwap == null ? 0 : compressedSwap.getFaults(); }
+
+    public synchronized long getForks() { return sharedPages.getForks(); }
+    public synchronized long getCopyOnWriteFaults() { return sharedPages.getCopyOnWriteFaults(); }
+    public synchronized long getSharedFaults() { return sharedPages.getSharedFaults(); }
+    public synchronized int getSharedPages() { return sharedPages.size(); }
+
+    // frames sharing saves: page-table entries beyond the first per resident frame
+    public synchronized long getFramesSaved() { return sharedPages.getFramesSaved(); }
+    public synchronized long getPeakFramesSaved() { return sharedPages.getPeakFramesSaved(); }
+
+    public synchronized long getPrefetches() { return prefetches; }
+    public synchronized long getUsefulPrefetches() { return usefulPrefetches; }
+    public synchronized long getUnusedPrefetchEvictions() { return unusedPrefetchEvictions; }
+
+    // share of prefetched pages referenced before eviction
+    public synchronized double getPrefetchAccuracy() {
+        return prefetches == 0 ? 0 : (double) usefulPrefetches / prefetches;
+    }
+
+    // share of would-be faults the prefetcher removed
+    public synchronized double getPrefetchCoverage() {
+        long misses = usefulPrefetches + getPageFaults();
+        return misses == 0 ? 0 : (double) usefulPrefetches / misses;
+    }
+
+    // share of prefetched pages evicted without ever being referenced
+    public synchronized double getPrefetchPollution() {
+        return prefetches == 0 ? 0 : (double) unusedPrefetchEvictions / prefetches;
+    }
+    
+    // Captures the references this instance translates from now on; null stops recording
+    public synchronized void setRecorder(TraceReplay.Sink recorder) {
+        this.recorder = recorder;
+    }
+    
+    // Untagged mode: the TLB is flushed whenever the referencing process changes,
+    // instead of relying on ASID tags to keep address spaces apart
+    public synchronized void setFlushTlbOnContextSwitch(boolean flush) {
+        this.flushTlbOnContextSwitch = flush;
+    }
     
     public double getTlbMissRatio() {
-        return totalPageReferences == 0 ? 0 : (double) tlbMisses / totalPageReferences;
+        return getMetrics().getTlbMissRatio();
     }
     
     public double getPageFaultRatio() {
-        return totalPageReferences == 0 ? 0 : (double) pageFaults / totalPageReferences;
+        return getMetrics().getPageFaultRatio();
     }
     
-    public void incrementTotalPageReferences() {
-        totalPageReferences++;
+    public synchronized void incrementTotalPageReferences() {
+        batch.references++;
     }
 
+    // Publishes the global counters and every process that has made a reference, now or later, as JMX MBeans
+    public synchronized void exportMetrics(MetricsExporter exporter) {
+        exporter.registerGlobal(metrics);
+        processStats.setListener(exporter::registerProcess);
+    }
+
+    // snapshot in process id order
     public Map<Integer, ProcessStats> getProcessStats() {
-        return processStats;
+        publishMetrics();
+        return processStats.asMap();
     }
 
+    public int getProcessCount() { return processStats.size(); }
+
     public ProcessStats getOrCreateProcessStats(int processId) {
-        return processStats.computeIfAbsent(processId, k -> new ProcessStats());
+        return processStats.getOrCreate(processId);
     }
-}
\ No newline at end of file
+}
@@ -1,32 +1,66 @@
 import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
-import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.Map;
 
 public class VirtualMemoryGUI extends JFrame {
+    private static final long serialVersionUID = 1L;
+
     private VirtualMemory vm;
-    private JTextArea outputArea;
-    private JTextField pagesField, framesField, tlbSizeField;
-    private JButton initButton, stepButton, runAllButton, pauseButton;
+    private EventLogModel eventLog;
+    private JList<String> eventList;
+    private JTable tlbTable, frameTable, pageTable, processTable;
+    private TlbTableModel tlbModel;
+    private FrameTableModel frameModel;
+    private PageTableModel pageTableModel;
+    private ProcessTableModel processModel;
+    private JSpinner pageTableProcessSpinner;
+    private JTextField pagesField, framesField, tlbSizeField, tlbAssocField, pageSizesField;
+    private JTextField lowerTlbsField, walkCacheField;
+    private JComboBox<PolicyType> framePolicyBox, tlbPolicyBox;
+    private JComboBox<PrefetcherType> prefetcherBox;
+    private JComboBox<FrameAllocation> allocationBox;
+    private JCheckBox flushOnSwitchBox, loadControlBox;
+    private JButton initButton, stepButton, runAllButton, pauseButton, recordButton;
+    private TraceRecorder recorder;
     private JPanel statsPanel;
-    private Random random;
-    private int currentStep = 0;
+    // value label of each statistic shown so far, by its caption; rows are added the
+    // first time a statistic applies and updated in place after that
+    private final Map<String, JLabel> statLabels = new LinkedHashMap<>();
+    private AtomicInteger currentStep = new AtomicInteger(0);
     private static final int TOTAL_STEPS = 20;
-    private ExecutorService executor;
-    private AtomicBoolean isPaused;
+    private static final int EVENT_LOG_LINES = 5000;
+    private static final int GUI_PREFETCH_DEGREE = 4;
+    private Scheduler scheduler;
+    private SimulatedProcess[] processes;
     private AtomicBoolean isRunning;
-    private JSpinner processCountSpinner;
-    private JPanel processStatusPanel;
+    private JSpinner processCountSpinner, quantumSpinner;
+    private JComboBox<Scheduler.Policy> schedulingBox;
+    private JComboBox<String> workloadBox;
+    private static final String[] WORKLOAD_PRESETS = {
+        "uniform", "zipf:0.99", "hotspot:0.1:0.9", "scan", "loop:64:1",
+        "phased:500:zipf:0.99/hotspot:0.05:0.95", "mix:0.8*zipf:0.99/0.2*scan"
+    };
+    // carrier threads append here; the refresh timer moves it to the event log
+    private final List<String> pendingOutput = new ArrayList<>();
+    private volatile boolean statsDirty = false;
+    private Timer refreshTimer;
+    private final MetricsExporter metricsExporter = new MetricsExporter("gui");
 
     public VirtualMemoryGUI() {
         setTitle("Virtual Memory Simulator");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        executor = Executors.newSingleThreadExecutor();
-        isPaused = new AtomicBoolean(false);
         isRunning = new AtomicBoolean(false);
+        refreshTimer = new Timer(100, e -> refreshView());
         setupUI();
         setSize(1200, 800);
         
@@ -37,7 +71,7 @@ public class VirtualMemoryGUI extends JFrame {
         setLayout(new BorderLayout(10, 10));
         
         // Input Panel
-        JPanel inputPanel = new JPanel(new GridLayout(4, 2, 5, 5));
+        JPanel inputPanel = new JPanel(new GridLayout(14, 2, 5, 5));
         inputPanel.setBorder(BorderFactory.createTitledBorder("Configuration"));
         
         inputPanel.add(new JLabel("Number of Pages:"));
@@ -52,6 +86,49 @@ public class VirtualMemoryGUI extends JFrame {
         tlbSizeField = new JTextField("");
         inputPanel.add(tlbSizeField);
         
+        inputPanel.add(new JLabel("TLB Associativity (blank = fully):"));
+        tlbAssocField = new JTextField("");
+        inputPanel.add(tlbAssocField);
+        
+        inputPanel.add(new JLabel("Lower TLB Levels (size:assoc:ns,...):"));
+        lowerTlbsField = new JTextField("");
+        inputPanel.add(lowerTlbsField);
+        
+        inputPanel.add(new JLabel("Page-Walk Cache Entries (blank = none):"));
+        walkCacheField = new JTextField("");
+        inputPanel.add(walkCacheField);
+        
+        inputPanel.add(new JLabel("Page Sizes (base first, e.g. 4K,2M):"));
+        pageSizesField = new JTextField(String.valueOf(VirtualMemory.PAGE_SIZE));
+        inputPanel.add(pageSizesField);
+        
+        // OPT needs the full reference stream in advance, so it is headless-only
+        PolicyType[] onlinePolicies = { PolicyType.FIFO, PolicyType.LRU, PolicyType.CLOCK,
+                                        PolicyType.LFU, PolicyType.ARC };
+        inputPanel.add(new JLabel("Page Replacement:"));
+        framePolicyBox = new JComboBox<>(onlinePolicies);
+        inputPanel.add(framePolicyBox);
+        
+        inputPanel.add(new JLabel("TLB Replacement:"));
+        tlbPolicyBox = new JComboBox<>(onlinePolicies);
+        inputPanel.add(tlbPolicyBox);
+        
+        inputPanel.add(new JLabel("TLB Tagging:"));
+        flushOnSwitchBox = new JCheckBox("Flush on context switch (no ASIDs)");
+        inputPanel.add(flushOnSwitchBox);
+        
+        inputPanel.add(new JLabel("Prefetch (4 pages per fault):"));
+        prefetcherBox = new JComboBox<>(PrefetcherType.values());
+        inputPanel.add(prefetcherBox);
+        
+        inputPanel.add(new JLabel("Frame Allocation:"));
+        allocationBox = new JComboBox<>(FrameAllocation.values());
+        inputPanel.add(allocationBox);
+        
+        inputPanel.add(new JLabel("Load Control:"));
+        loadControlBox = new JCheckBox("Suspend a process while thrashing");
+        inputPanel.add(loadControlBox);
+        
         initButton = new JButton("Initialize");
         inputPanel.add(initButton);
         
@@ -66,16 +143,44 @@ public class VirtualMemoryGUI extends JFrame {
         buttonPanel.add(stepButton);
         buttonPanel.add(runAllButton);
         buttonPanel.add(pauseButton);
+        recordButton = new JButton("Record...");
+        recordButton.setEnabled(false);
+        buttonPanel.add(recordButton);
+        
+        // Output: a bounded event log plus table views of the TLB, the frames and
+        // one process's page table. Tables only render the rows on screen.
+        eventLog = new EventLogModel(EVENT_LOG_LINES);
+        eventList = new JList<>(eventLog);
+        eventList.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        eventList.setPrototypeCellValue("P00000 #000000: page 000000000 -> frame 000000  (logical 0000000000 => physical 0000000000)");
+        
+        tlbTable = createStateTable();
+        frameTable = createStateTable();
+        pageTable = createStateTable();
         
-        // Output Area
-        outputArea = new JTextArea(20, 50);
-        outputArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        outputArea.setEditable(false);
+        pageTableProcessSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 100000, 1));
+        pageTableProcessSpinner.addChangeListener(e -> {
+            if (pageTableModel != null) {
+                pageTableModel.setProcessId((Integer) pageTableProcessSpinner.getValue());
+                refreshPageTable();
+            }
+        });
+        JPanel pageTablePanel = new JPanel(new BorderLayout());
+        JPanel pageTableHeader = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        pageTableHeader.add(new JLabel("Process:"));
+        pageTableHeader.add(pageTableProcessSpinner);
+        pageTablePanel.add(pageTableHeader, BorderLayout.NORTH);
+        JScrollPane pageTableScroll = new JScrollPane(pageTable);
+        pageTableScroll.getViewport().addChangeListener(e -> refreshPageTable());
+        pageTablePanel.add(pageTableScroll, BorderLayout.CENTER);
         
-        // scroll pane with minimum size
-        JScrollPane scrollPane = new JScrollPane(outputArea);
-        scrollPane.setMinimumSize(new Dimension(400, 300));
-        scrollPane.setPreferredSize(new Dimension(400, 300));
+        JTabbedPane outputTabs = new JTabbedPane();
+        outputTabs.addTab("Event Log", new JScrollPane(eventList));
+        outputTabs.addTab("TLB", new JScrollPane(tlbTable));
+        outputTabs.addTab("Frames", new JScrollPane(frameTable));
+        outputTabs.addTab("Page Table", pageTablePanel);
+        outputTabs.setMinimumSize(new Dimension(400, 300));
+        outputTabs.setPreferredSize(new Dimension(400, 300));
         
         // Stats Panel - Modified
         statsPanel = new JPanel();
@@ -88,24 +193,36 @@ public class VirtualMemoryGUI extends JFrame {
         statsScrollPane.setMinimumSize(new Dimension(250, 400));
         
         // Process Control Panel
-        JPanel processPanel = new JPanel(new GridLayout(2, 2, 5, 5));
+        JPanel processPanel = new JPanel(new GridLayout(4, 2, 5, 5));
         processPanel.setBorder(BorderFactory.createTitledBorder("Process Control"));
         
-        processCountSpinner = new JSpinner(new SpinnerNumberModel(1, 1, 10, 1));
+        processCountSpinner = new JSpinner(new SpinnerNumberModel(1, 1, 100000, 1));
         processPanel.add(new JLabel("Number of Processes:"));
         processPanel.add(processCountSpinner);
         
-        // Add Process Status Panel
-        processStatusPanel = new JPanel();
-        processStatusPanel.setLayout(new BoxLayout(processStatusPanel, BoxLayout.Y_AXIS));
-        processStatusPanel.setBorder(BorderFactory.createTitledBorder("Process Status"));
+        schedulingBox = new JComboBox<>(Scheduler.Policy.values());
+        processPanel.add(new JLabel("Scheduling:"));
+        processPanel.add(schedulingBox);
+        
+        quantumSpinner = new JSpinner(new SpinnerNumberModel(1, 1, 1000, 1));
+        processPanel.add(new JLabel("Quantum (references):"));
+        processPanel.add(quantumSpinner);
+        
+        // editable: any Workload spec, ';'-separated specs are dealt out to processes
+        workloadBox = new JComboBox<>(WORKLOAD_PRESETS);
+        workloadBox.setEditable(true);
+        processPanel.add(new JLabel("Workload:"));
+        processPanel.add(workloadBox);
         
-        JScrollPane statusScrollPane = new JScrollPane(processStatusPanel);
-        statusScrollPane.setPreferredSize(new Dimension(200, 150));
+        // Process status: one table row per process, rendered only while on screen
+        processTable = createStateTable();
+        JScrollPane statusScrollPane = new JScrollPane(processTable);
+        statusScrollPane.setBorder(BorderFactory.createTitledBorder("Process Status"));
+        statusScrollPane.setPreferredSize(new Dimension(360, 150));
         
         // Add components to frame
         add(inputPanel, BorderLayout.NORTH);
-        add(scrollPane, BorderLayout.CENTER);
+        add(outputTabs, BorderLayout.CENTER);
         add(buttonPanel, BorderLayout.SOUTH);
         add(statsScrollPane, BorderLayout.EAST);
         JPanel westPanel = new JPanel(new BorderLayout());
@@ -120,32 +237,89 @@ public class VirtualMemoryGUI extends JFrame {
         initButton.addActionListener(e -> initializeSimulation());
         
         stepButton.addActionListener(e -> {
-            if (!isRunning.get()) {
-                int processCount = (Integer) processCountSpinner.getValue();
-                if (processCount > 0) {
-                    isRunning.set(true);
-                    int processId = currentStep % processCount;
-                    performSingleStep(processId, new Random(100 + processId));
-                    isRunning.set(false);
+            if (!isRunning.get() && processes != null) {
+                SimulatedProcess process = nextUnfinishedProcess();
+                if (process != null) {
+                    performSingleStep(process, process.nextPage());
+                    if (process.isFinished()) {
+                        process.getStats().setStatus("FINISHED");
+                    }
                 }
+                stepButton.setEnabled(nextUnfinishedProcess() != null);
+                refreshView();
             }
         });
         
         runAllButton.addActionListener(e -> {
             if (!isRunning.get()) {
-                runAllButton.setEnabled(false);
-                stepButton.setEnabled(false);
-                pauseButton.setEnabled(true);
                 runSimulation();
             }
         });
         
         pauseButton.addActionListener(e -> {
-            isPaused.set(!isPaused.get());
-            pauseButton.setText(isPaused.get() ? "Resume" : "Pause");
+            if (scheduler == null) {
+                return;
+            }
+            if (scheduler.isPaused()) {
+                scheduler.resume();
+                pauseButton.setText("Pause");
+            } else {
+                scheduler.pause();
+                pauseButton.setText("Resume");
+            }
+            statsDirty = true;
+        });
+        
+        recordButton.addActionListener(e -> {
+            if (recorder == null) {
+                startRecording();
+            } else {
+                stopRecording();
+            }
+        });
+        
+        // a recording in progress still has its last block buffered
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                stopRecording();
+            }
         });
     }
 
+    // Captures every reference the simulator translates into a binary trace file
+    private void startRecording() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            recorder = new TraceRecorder(chooser.getSelectedFile().toPath());
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Cannot record: " + ex.getMessage(),
+                                          "Recording Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        vm.setRecorder(recorder);
+        recordButton.setText("Stop Recording");
+    }
+
+    private void stopRecording() {
+        if (recorder == null) {
+            return;
+        }
+        vm.setRecorder(null);   // waits for any translation that is still writing to it
+        try {
+            recorder.close();
+            eventLog.add("Recorded " + recorder.getRecords() + " references");
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Recording failed: " + ex.getMessage(),
+                                          "Recording Error", JOptionPane.ERROR_MESSAGE);
+        }
+        recorder = null;
+        recordButton.setText("Record...");
+    }
+
     private void runSimulation() {
         if (vm == null) {
             JOptionPane.showMessageDialog(this, 
@@ -155,135 +329,149 @@ public class VirtualMemoryGUI extends JFrame {
             return;
         }
 
-        currentStep = 0;
-        int processCount = (Integer) processCountSpinner.getValue();
-        
-        // Reset simulation state
+        SimulatedProcess[] created;
+        try {
+            created = createProcesses();
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        currentStep.set(0);
         isRunning.set(true);
-        isPaused.set(false);
         
-        // Initialize all processes
-        for (int i = 0; i < processCount; i++) {
-            VirtualMemory.ProcessStats stats = vm.getOrCreateProcessStats(i);
-            stats.setStatus("SLEEPING");
+        // Every process is a plain state object; a single carrier thread keeps
+        // the interleaving reproducible, since translations serialise on vm anyway
+        scheduler = new Scheduler(vm, (Scheduler.Policy) schedulingBox.getSelectedItem(),
+                                  (Integer) quantumSpinner.getValue(), 1);
+        scheduler.setTimingModel(TimingModel.DEFAULT);
+        processes = created;
+        for (SimulatedProcess process : processes) {
+            scheduler.add(process);
         }
+        scheduler.setListener(new Scheduler.Listener() {
+            @Override
+            public void onStep(SimulatedProcess process, long pageNumber, int frameNumber) {
+                appendStep(process.getProcessId(), pageNumber, frameNumber);
+            }
+
+            @Override
+            public void onAllFinished() {
+                SwingUtilities.invokeLater(() -> finishRun());
+            }
+        });
         
         // Update UI state
         pauseButton.setEnabled(true);
+        pauseButton.setText("Pause");
         stepButton.setEnabled(false);
         runAllButton.setEnabled(false);
-        updateProcessStatus();
+        statsDirty = true;
+        scheduler.start();
+    }
+
+    private void finishRun() {
+        isRunning.set(false);
+        refreshView();
+        stepButton.setEnabled(nextUnfinishedProcess() != null);
+        runAllButton.setEnabled(true);
+        pauseButton.setEnabled(false);
+        pauseButton.setText("Pause");
         
-        // Create and submit tasks for each process
+        // Show completion message
+        JOptionPane.showMessageDialog(this,
+            "Simulation completed successfully!",
+            "Simulation Complete",
+            JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    // Process i draws pages from the selected workload, seeded per process, and gets priority i % 4
+    private SimulatedProcess[] createProcesses() {
+        int processCount = (Integer) processCountSpinner.getValue();
+        String spec = String.valueOf(workloadBox.getSelectedItem());
+        SimulatedProcess[] created = new SimulatedProcess[processCount];
         for (int i = 0; i < processCount; i++) {
-            final int processId = i;
-            executor.execute(() -> {
-                Random processRandom = new Random(100 + processId);
-                try {
-                    VirtualMemory.ProcessStats stats = vm.getOrCreateProcessStats(processId);
-                    
-                    for (int step = 0; step < TOTAL_STEPS && isRunning.get(); step++) {
-                        if (isPaused.get()) {
-                            synchronized(vm) {
-                                stats.setStatus("PAUSED");
-                                SwingUtilities.invokeLater(this::updateProcessStatus);
-                            }
-                            while (isPaused.get() && isRunning.get()) {
-                                Thread.sleep(100);
-                            }
-                            if (!isRunning.get()) break;
-                        }
-                        
-                        synchronized(vm) {
-                            stats.setStatus("RUNNING");
-                            SwingUtilities.invokeLater(this::updateProcessStatus);
-                            performSingleStep(processId, processRandom);
-                            Thread.sleep(200);
-                        }
-                    }
-                    
-                    synchronized(vm) {
-                        stats.setStatus("FINISHED");
-                        SwingUtilities.invokeLater(this::updateProcessStatus);
-                    }
-                    
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            });
+            Workload workload = Workload.forProcess(spec, vm.getNumPages(), i, 100);
+            created[i] = new SimulatedProcess(i, i % 4, TOTAL_STEPS, workload);
+            created[i].setStats(vm.getOrCreateProcessStats(i));
         }
-        
-        // Monitor completion in separate thread
-        executor.execute(this::monitorCompletion);
+        return created;
     }
 
-    // New method to handle completion monitoring
-    private void monitorCompletion() {
-        try {
-            while (isRunning.get()) {
-                Thread.sleep(100);
-                synchronized(vm) {
-                    boolean allFinished = vm.getProcessStats().values().stream()
-                        .allMatch(stats -> "FINISHED".equals(stats.getStatus()));
-                    
-                    if (allFinished) {
-                        isRunning.set(false);
-                        SwingUtilities.invokeLater(() -> {
-                            stepButton.setEnabled(true);
-                            runAllButton.setEnabled(true);
-                            pauseButton.setEnabled(false);
-                            pauseButton.setText("Pause");
-                            
-                            // Show completion message
-                            JOptionPane.showMessageDialog(this,
-                                "Simulation completed successfully!",
-                                "Simulation Complete",
-                                JOptionPane.INFORMATION_MESSAGE);
-                        });
-                        break;
-                    }
-                }
+    // round robin from the current step over the processes that still have references, like Scheduler
+    private SimulatedProcess nextUnfinishedProcess() {
+        for (int i = 0; i < processes.length; i++) {
+            SimulatedProcess process = processes[(currentStep.get() + i) % processes.length];
+            if (!process.isFinished()) {
+                return process;
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
         }
+        return null;
     }
 
-    private void performSingleStep(int processId, Random processRandom) {
-        // Add bounds checking and ensure ProcessStats exists
-        if (processId < 0) {
-            return;
+    private void performSingleStep(SimulatedProcess process, long pageNumber) {
+        int frameNumber;
+        long nanos;
+        synchronized (vm) {
+            frameNumber = vm.searchPageTable(pageNumber, process.getProcessId(), process.isWrite());
+            nanos = TimingModel.DEFAULT.serviceNanos(vm);
         }
+        process.getStats().addAccessTime(1, nanos);
+        vm.getMetrics().addAccessTime(1, nanos);
+        appendStep(process.getProcessId(), pageNumber, frameNumber);
+    }
+
+    private void appendStep(int processId, long pageNumber, int frameNumber) {
+        int pageSize = vm.getPageSize();
+        int offset = ThreadLocalRandom.current().nextInt(pageSize);
+        long logicalAddress = pageNumber * pageSize + offset;
+        long physicalAddress = (long) frameNumber * pageSize + offset;
         
-        synchronized(vm) {
-            if (vm != null) {
-                VirtualMemory.ProcessStats stats = vm.getOrCreateProcessStats(processId);
-                
-                int pageNumber = processRandom.nextInt(vm.getNumPages());
-                int offset = processRandom.nextInt(VirtualMemory.PAGE_SIZE);
-                int logicalAddress = pageNumber * VirtualMemory.PAGE_SIZE + offset;
-                
-                int frameNumber = vm.searchPageTable(pageNumber, processId);
-                int physicalAddress = frameNumber * VirtualMemory.PAGE_SIZE + offset;
-                
-                StringBuilder output = new StringBuilder();
-                output.append("\n------ Process ").append(processId)
-                      .append(" - Step ").append(currentStep + 1)
-                      .append(" ------\n");
-                output.append("Page ").append(pageNumber).append(" requested. ");
-                output.append("Logical address: ").append(logicalAddress);
-                output.append(" => Physical address: ").append(physicalAddress).append("\n\n");
-                
-                output.append(vm.getStateAsString());
-                
-                final String outputText = output.toString();
-                SwingUtilities.invokeLater(() -> {
-                    outputArea.append(outputText);
-                    outputArea.setCaretPosition(outputArea.getDocument().getLength());
-                    updateStats();
-                    currentStep++;
-                });
-            }
+        String line = "P" + processId + " #" + currentStep.incrementAndGet()
+                    + ": page " + pageNumber + " -> frame " + frameNumber
+                    + "  (logical " + logicalAddress + " => physical " + physicalAddress + ")";
+        synchronized (pendingOutput) {
+            pendingOutput.add(line);
+        }
+        statsDirty = true;
+    }
+
+    private JTable createStateTable() {
+        JTable table = new JTable();
+        table.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        table.setFillsViewportHeight(true);
+        return table;
+    }
+
+    private void refreshPageTable() {
+        if (pageTableModel == null) {
+            return;
+        }
+        Rectangle visible = pageTable.getVisibleRect();
+        int first = pageTable.rowAtPoint(visible.getLocation());
+        int last = pageTable.rowAtPoint(new Point(0, visible.y + visible.height - 1));
+        if (last < 0) {
+            last = pageTableModel.getRowCount() - 1;
+        }
+        pageTableModel.refresh(Math.max(first, 0), last);
+    }
+
+    // Runs on the EDT from the refresh timer, so carriers never wait for Swing
+    private void refreshView() {
+        List<String> output;
+        synchronized (pendingOutput) {
+            output = new ArrayList<>(pendingOutput);
+            pendingOutput.clear();
+        }
+        if (!output.isEmpty()) {
+            eventLog.addAll(output);
+            eventList.ensureIndexIsVisible(eventLog.getSize() - 1);
+        }
+        if (statsDirty && vm != null) {
+            statsDirty = false;
+            updateStats();
+            tlbModel.refresh();
+            frameModel.refresh();
+            refreshPageTable();
         }
     }
 
@@ -292,99 +480,162 @@ public class VirtualMemoryGUI extends JFrame {
             int pages = Integer.parseInt(pagesField.getText());
             int frames = Integer.parseInt(framesField.getText());
             int tlbSize = Integer.parseInt(tlbSizeField.getText());
+            String assocText = tlbAssocField.getText().trim();
+            int tlbAssociativity = assocText.isEmpty() ? tlbSize : Integer.parseInt(assocText);
             
-            vm = new VirtualMemory(pages, frames, tlbSize);
-            currentStep = 0;
+            PolicyType framePolicy = (PolicyType) framePolicyBox.getSelectedItem();
+            PolicyType tlbPolicy = (PolicyType) tlbPolicyBox.getSelectedItem();
+            
+            stopRecording();
+            vm = new VirtualMemory(pages, frames, tlbSize, tlbAssociativity,
+                                   framePolicy, tlbPolicy, null);
+            vm.setPageSizes(TraceReplay.parsePageSizes(pageSizesField.getText()));
+            for (String level : lowerTlbsField.getText().trim().isEmpty() ? new String[0]
+                                : lowerTlbsField.getText().trim().split(",")) {
+                String[] spec = level.trim().split(":");
+                int size = Integer.parseInt(spec[0]);
+                vm.addTlbLevel(size, spec.length > 1 ? Integer.parseInt(spec[1]) : size, tlbPolicy,
+                               spec.length > 2 ? Long.parseLong(spec[2]) : 5);
+            }
+            if (!walkCacheField.getText().trim().isEmpty()) {
+                vm.setPageWalkCache(Integer.parseInt(walkCacheField.getText().trim()), 2);
+            }
+            vm.setFlushTlbOnContextSwitch(flushOnSwitchBox.isSelected());
+            vm.setPrefetcher(((PrefetcherType) prefetcherBox.getSelectedItem()).create(), GUI_PREFETCH_DEGREE);
+            vm.setFrameAllocation((FrameAllocation) allocationBox.getSelectedItem());
+            vm.setLoadControl(loadControlBox.isSelected(), 0.3, 0.1);
+            metricsExporter.unregisterAll();
+            vm.exportMetrics(metricsExporter);
+            if (scheduler != null) {
+                scheduler.stop();
+                scheduler = null;
+            }
+            currentStep.set(0);
             isRunning.set(false);
-            isPaused.set(false);
+            synchronized (pendingOutput) {
+                pendingOutput.clear();
+            }
             
             // Initialize process stats
-            int processCount = (Integer) processCountSpinner.getValue();
-            synchronized(vm) {
-                vm.getProcessStats().clear();
-                for (int i = 0; i < processCount; i++) {
-                    vm.getProcessStats().put(i, new VirtualMemory.ProcessStats());
-                }
-            }
+            processes = createProcesses();
+            
+            tlbModel = new TlbTableModel(vm);
+            frameModel = new FrameTableModel(vm);
+            pageTableModel = new PageTableModel(vm);
+            pageTableModel.setProcessId((Integer) pageTableProcessSpinner.getValue());
+            tlbTable.setModel(tlbModel);
+            frameTable.setModel(frameModel);
+            pageTable.setModel(pageTableModel);
+            processModel = new ProcessTableModel(vm);
+            processTable.setModel(processModel);
+            processTable.getColumnModel().getColumn(1).setCellRenderer(new StatusRenderer());
+            statLabels.clear();
+            statsPanel.removeAll();
+            statsPanel.repaint();
             
-            outputArea.setText("Simulation initialized\n");
+            eventLog.clear();
+            eventLog.add("Simulation initialized");
             stepButton.setEnabled(true);
             runAllButton.setEnabled(true);
             pauseButton.setEnabled(false);
+            recordButton.setEnabled(true);
             updateStats();
-            updateProcessStatus();
+            refreshTimer.start();
             
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, 
                 "Please enter valid numbers", 
                 "Input Error", 
                 JOptionPane.ERROR_MESSAGE);
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, 
+                ex.getMessage(), 
+                "Input Error", 
+                JOptionPane.ERROR_MESSAGE);
         }
     }
 
     private void updateStats() {
-        statsPanel.removeAll();
-        
-        addStatRow("Total References:", vm.getTotalPageReferences());
-        addStatRow("TLB Miss Ratio:", String.format("%.2f", vm.getTlbMissRatio()));
-        addStatRow("Page Fault Ratio:", String.format("%.2f", vm.getPageFaultRatio()));
-        
-        Map<Integer, VirtualMemory.ProcessStats> processStats = vm.getProcessStats();
-        for (Map.Entry<Integer, VirtualMemory.ProcessStats> entry : processStats.entrySet()) {
-            addStatRow("Process " + entry.getKey() + " References:", 
-                      entry.getValue().getPageReferences());
-            addStatRow("Process " + entry.getKey() + " TLB Miss Ratio:", 
-                      String.format("%.2f", entry.getValue().getTlbMissRatio()));
-            addStatRow("Process " + entry.getKey() + " Page Fault Ratio:", 
-                      String.format("%.2f", entry.getValue().getPageFaultRatio()));
+        setStat("Total References:", vm.getTotalPageReferences());
+        setStat("TLB Miss Ratio:", String.format("%.2f", vm.getTlbMissRatio()));
+        setStat("Page Fault Ratio:", String.format("%.2f", vm.getPageFaultRatio()));
+        setStat("Context Switches:", vm.getContextSwitches());
+        setStat("TLB Flushes:", vm.getTlbFlushes());
+        setStat("Walk Accesses / Miss:", String.format("%.2f", vm.getAverageWalkAccesses()));
+        setStat("Evictions:", vm.getEvictions());
+        LatencyHistogram latency = vm.getMetrics().getLatency();
+        setStat("Translation p50 / p99:", latency.getPercentile(50) + " / " + latency.getPercentile(99) + " ns");
+        setStat("Effective Access Time:", String.format("%.1f ns", vm.getMetrics().getEffectiveAccessNanos()));
+        if (vm.getPrefetches() > 0) {
+            setStat("Prefetched Pages:", vm.getPrefetches());
+            setStat("Prefetch Accuracy / Coverage:",
+                    String.format("%.2f / %.2f", vm.getPrefetchAccuracy(), vm.getPrefetchCoverage()));
+            setStat("Prefetch Pollution:", String.format("%.2f", vm.getPrefetchPollution()));
         }
-        
-        statsPanel.revalidate();
-        statsPanel.repaint();
+        if (vm.getTlbLevels() > 1) {
+            for (int level = 0; level < vm.getTlbLevels(); level++) {
+                setStat("L" + (level + 1) + " TLB Hits / Misses:",
+                        vm.getTlbLevelHits(level) + " / " + vm.getTlbLevelMisses(level));
+            }
+        }
+        if (vm.getPageWalkCacheSize() > 0) {
+            setStat("Walk Cache Hits / Misses:", vm.getPageWalkCacheHits() + " / " + vm.getPageWalkCacheMisses());
+        }
+        if (vm.getPageSizeClasses() > 1) {
+            setStat("Promotions / Demotions:", vm.getPromotions() + " / " + vm.getDemotions());
+            for (int c = 0; c < vm.getPageSizeClasses(); c++) {
+                String size = TraceReplay.formatSize(vm.getPageSizeBytes(c));
+                setStat(size + " TLB Miss Ratio / Reach:", String.format("%.2f / %s", vm.getTlbMissRatio(c),
+                        TraceReplay.formatSize(vm.getTlbReachBytes(c))));
+            }
+        }
+        setStat("Processes in Memory:", vm.getMultiprogrammingLevel());
+        setStat("Thrashing Episodes:", vm.getThrashingEpisodes());
+        if (vm.getSuspensions() > 0) {
+            setStat("Suspensions / Resumes:", vm.getSuspensions() + " / " + vm.getResumes());
+        }
+        processModel.refresh(vm.getProcessStats());
     }
 
-    private void addStatRow(String label, Object value) {
-        // Modified to use horizontal panel for each row
-        JPanel row = new JPanel(new FlowLayout(FlowLayout.LEFT));
-        row.add(new JLabel(label));
-        row.add(new JLabel(value.toString()));
-        row.setMaximumSize(new Dimension(Integer.MAX_VALUE, row.getPreferredSize().height));
-        statsPanel.add(row);
+    private void setStat(String label, Object value) {
+        JLabel valueLabel = statLabels.get(label);
+        if (valueLabel == null) {
+            valueLabel = new JLabel();
+            JPanel row = new JPanel(new FlowLayout(FlowLayout.LEFT));
+            row.add(new JLabel(label));
+            row.add(valueLabel);
+            row.setMaximumSize(new Dimension(Integer.MAX_VALUE, row.getPreferredSize().height));
+            statsPanel.add(row);
+            statsPanel.revalidate();
+            statLabels.put(label, valueLabel);
+        }
+        valueLabel.setText(value.toString());
     }
 
-    private void updateProcessStatus() {
-        processStatusPanel.removeAll();
-        
-        Map<Integer, VirtualMemory.ProcessStats> processStats = vm.getProcessStats();
-        for (Map.Entry<Integer, VirtualMemory.ProcessStats> entry : processStats.entrySet()) {
-            JPanel processRow = new JPanel(new FlowLayout(FlowLayout.LEFT));
-            JLabel statusLabel = new JLabel(String.format("Process %d: %s", 
-                entry.getKey(), entry.getValue().getStatus()));
-            
-            // Add color coding based on status
-            switch (entry.getValue().getStatus()) {
+    // colours the status column by process state
+    private static final class StatusRenderer extends DefaultTableCellRenderer {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void setValue(Object value) {
+            super.setValue(value);
+            switch (String.valueOf(value)) {
                 case "RUNNING":
-                    statusLabel.setForeground(Color.GREEN);
+                    setForeground(Color.GREEN);
                     break;
                 case "SLEEPING":
-                    statusLabel.setForeground(Color.ORANGE);
+                    setForeground(Color.ORANGE);
                     break;
                 case "PAUSED":
-                    statusLabel.setForeground(Color.RED);
+                    setForeground(Color.RED);
                     break;
                 case "FINISHED":
-                    statusLabel.setForeground(Color.GRAY);
+                    setForeground(Color.GRAY);
                     break;
                 default:
-                    statusLabel.setForeground(Color.BLACK);
+                    setForeground(Color.BLACK);
             }
-            
-            processRow.add(statusLabel);
-            processStatusPanel.add(processRow);
         }
-        
-        processStatusPanel.revalidate();
-        processStatusPanel.repaint();
     }
 
     public static void main(String[] args) {
@@ -395,7 +646,10 @@ public class VirtualMemoryGUI extends JFrame {
     
     @Override
     public void dispose() {
-        executor.shutdown();
+        refreshTimer.stop();
+        if (scheduler != null) {
+            scheduler.stop();
+        }
         super.dispose();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,172 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+// A seeded, reproducible source of page references. Generators keep their own
+// SplitMix64 state instead of sharing java.util.Random, so drawing a page is a
+// few arithmetic operations with no locking, boxing or allocation.
+//
+// Specs (see parse):
+//   uniform                         every page equally likely
+//   zipf[:s]                        Zipf-distributed popularity with exponent s (default 0.99)
+//   hotspot[:fraction[:p]]          working set of fraction*pages hit with probability p
+//   scan                            sequential pass over the whole address space
+//   loop[:length[:stride]]          repeated strided walk over `length` pages
+//   phased:<refs>:<spec>/<spec>...  switches to the next spec every <refs> references
+//   mix:<w>*<spec>/<w>*<spec>...    picks a spec per reference with the given weights
+// Several specs separated by ';' are handed to processes in turn.
+public abstract class Workload implements LongSupplier {
+    private long state;
+
+    protected Workload(long seed) {
+        this.state = seed;
+    }
+
+    protected final long nextLong() {
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // uniform in [0, 1)
+    protected final double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    // uniform in [0, bound); bound is at most 2^40 so 53 bits of precision suffice
+    protected final long nextLong(long bound) {
+        return (long) (nextDouble() * bound);
+    }
+
+    public static Workload parse(String spec, long numPages, long seed) {
+        String[] parts = spec.trim().split(":", 2);
+        String name = parts[0].toLowerCase();
+        String[] args = parts.length > 1 ? parts[1].split(":") : new String[0];
+        switch (name) {
+            case "uniform":
+                return new UniformWorkload(numPages, seed);
+            case "zipf":
+                return new ZipfWorkload(numPages, arg(args, 0, 0.99), seed);
+            case "hotspot":
+                return new HotspotWorkload(numPages, arg(args, 0, 0.1), arg(args, 1, 0.9), seed);
+            case "scan":
+                return new SequentialWorkload(0, numPages, 1);
+            case "loop":
+                return new SequentialWorkload(0, Math.min(numPages, (long) arg(args, 0, 64)),
+                                              (long) arg(args, 1, 1));
+            case "phased":
+            case "mix":
+                return parseComposite(name, parts.length > 1 ? parts[1] : "", numPages, seed);
+            default:
+                throw new IllegalArgumentException("Unknown workload: " + spec);
+        }
+    }
+
+    private static Workload parseComposite(String name, String body, long numPages, long seed) {
+        if (name.equals("phased")) {
+            int colon = body.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Expected phased:<refs>:<spec>/<spec>...");
+            }
+            String[] specs = body.substring(colon + 1).split("/");
+            Workload[] phases = new Workload[specs.length];
+            for (int i = 0; i < specs.length; i++) {
+                phases[i] = parse(specs[i], numPages, seed + i);
+            }
+            return new PhasedWorkload(Long.parseLong(body.substring(0, colon)), phases);
+        }
+        String[] specs = body.split("/");
+        Workload[] parts = new Workload[specs.length];
+        double[] weights = new double[specs.length];
+        for (int i = 0; i < specs.length; i++) {
+            int star = specs[i].indexOf('*');
+            if (star < 0) {
+                throw new IllegalArgumentException("Expected mix:<weight>*<spec>/...");
+            }
+            weights[i] = Double.parseDouble(specs[i].substring(0, star));
+            parts[i] = parse(specs[i].substring(star + 1), numPages, seed + i + 1);
+        }
+        return new MixedWorkload(parts, weights, seed);
+    }
+
+    private static double arg(String[] args, int index, double defaultValue) {
+        return index < args.length && !args[index].isEmpty() ? Double.parseDouble(args[index]) : defaultValue;
+    }
+
+    // the generator for one process of a ';'-separated spec list, seeded per process
+    public static Workload forProcess(String specs, long numPages, int processId, long seed) {
+        String[] list = specs.split(";");
+        return parse(list[processId % list.length], numPages, seed + 0x9E3779B97F4A7C15L * processId);
+    }
+
+    // Feeds `references` references from `processes` processes, interleaved round
+    // robin `quantum` references at a time, into the sink.
+    // A share `writeRatio` of them, chosen by a separate seeded stream, are writes.
+    public static void generate(String specs, long numPages, int processes, long references,
+                                int quantum, long seed, double writeRatio, TraceReplay.Sink sink) {
+        Workload[] workloads = new Workload[processes];
+        for (int pid = 0; pid < processes; pid++) {
+            workloads[pid] = forProcess(specs, numPages, pid, seed);
+        }
+        UniformWorkload writeChoice = new UniformWorkload(1L << 53, ~seed);
+        long writeThreshold = (long) (writeRatio * (1L << 53));
+        int pid = 0;
+        long issued = 0;
+        while (issued < references) {
+            Workload workload = workloads[pid];
+            for (int i = 0; i < quantum && issued < references; i++, issued++) {
+                boolean write = writeThreshold > 0 && writeChoice.getAsLong() < writeThreshold;
+                sink.reference(workload.getAsLong(), pid, write);
+            }
+            pid = pid + 1 == processes ? 0 : pid + 1;
+        }
+    }
+
+    // Writes a generated trace in the text format TraceReplay reads
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: java Workload <spec> <numPages> <references> [--processes=N] [--quantum=Q]"
+                + " [--seed=S] [--write-ratio=W]");
+            System.err.println("Specs: uniform | zipf[:s] | hotspot[:fraction[:p]] | scan | loop[:length[:stride]]"
+                + " | phased:<refs>:<spec>/<spec>... | mix:<w>*<spec>/<w>*<spec>...; ';' assigns specs to processes in turn");
+            System.exit(1);
+        }
+        Map<String, String> options = TraceReplay.parseOptions(args, 3);
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+        StringBuilder line = new StringBuilder();
+        try {
+            generate(args[0], Long.parseLong(args[1]), Integer.parseInt(options.getOrDefault("processes", "1")),
+                     Long.parseLong(args[2]), Integer.parseInt(options.getOrDefault("quantum", "1")),
+                     Long.parseLong(options.getOrDefault("seed", "1")),
+                     Double.parseDouble(options.getOrDefault("write-ratio", "0")),
+                     new TraceReplay.Sink() {
+                         @Override
+                         public void reference(long page, int pid) {
+                             reference(page, pid, false);
+                         }
+
+                         @Override
+                         public void reference(long page, int pid, boolean write) {
+                             line.setLength(0);
+                             line.append(page).append(' ').append(pid);
+                             if (write) {
+                                 line.append(" 1");
+                             }
+                             line.append('\n');
+                             try {
+                                 out.append(line);
+                             } catch (IOException e) {
+                                 throw new UncheckedIOException(e);
+                             }
+                         }
+                     });
+        } finally {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+// Zipf-distributed page popularity: page k (0-based) is referenced with probability
+// proportional to 1 / (k + 1)^s. Sampled by rejection-inversion (Hormann and
+// Derflinger), which needs no table, so it works for any address-space size.
+public class ZipfWorkload extends Workload {
+    private final long numPages;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double threshold;
+
+    public ZipfWorkload(long numPages, double exponent, long seed) {
+        super(seed);
+        if (exponent <= 0) {
+            throw new IllegalArgumentException("Zipf exponent must be positive");
+        }
+        this.numPages = numPages;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralN = hIntegral(numPages + 0.5);
+        this.threshold = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    @Override
+    public long getAsLong() {
+        while (true) {
+            double u = hIntegralN + nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            long k = Math.max(1, Math.min(numPages, (long) (x + 0.5)));
+            if (k - x <= threshold || u >= hIntegral(k + 0.5) - h(k)) {
+                return k - 1;
+            }
+        }
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return expm1OverX((1 - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = Math.max(-1, x * (1 - exponent));
+        return Math.exp(log1pOverX(t) * x);
+    }
+
+    // expm1(x) / x and log1p(x) / x, with their series near zero (exponent == 1)
+    private static double expm1OverX(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x / 2 * (1 + x / 3 * (1 + x / 4));
+    }
+
+    private static double log1pOverX(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+}
@@ -0,0 +1,49 @@
+import benchmarks.BatchTranslator;
+import benchmarks.Translator;
+
+// Default-package bridge that hands simulator operations to the benchmarks.
+public final class SimulatorHooks {
+    private SimulatorHooks() { }
+
+    public static Translator virtualMemory(long numPages, int numFrames, int tlbSize,
+                                           String framePolicy, String tlbPolicy) {
+        VirtualMemory vm = new VirtualMemory(numPages, numFrames, tlbSize, tlbSize,
+                                             PolicyType.parse(framePolicy), PolicyType.parse(tlbPolicy), null);
+        return (pageNumber, cpu) -> vm.searchPageTable(pageNumber, cpu);
+    }
+
+    public static Translator concurrentVirtualMemory(long numPages, int numFrames, int tlbSize, int cpus) {
+        ConcurrentVirtualMemory vm = new ConcurrentVirtualMemory(numPages, numFrames, tlbSize, tlbSize,
+                                                                 PolicyType.FIFO, cpus);
+        return (pageNumber, cpu) -> vm.translate(cpu, pageNumber, cpu);
+    }
+
+    // { single, batch } over one VirtualMemory; the cpu argument doubles as the process id
+    public static Object[] virtualMemoryWithBatch(long numPages, int numFrames, int tlbSize,
+                                                  String framePolicy, String tlbPolicy) {
+        VirtualMemory vm = new VirtualMemory(numPages, numFrames, tlbSize, tlbSize,
+                                             PolicyType.parse(framePolicy), PolicyType.parse(tlbPolicy), null);
+        Translator single = (pageNumber, cpu) -> vm.searchPageTable(pageNumber, cpu);
+        BatchTranslator batch = (pages, frames, count, cpu) -> vm.searchPageTable(cpu, pages, frames, count);
+        return new Object[] { single, batch };
+    }
+
+    public static Object[] concurrentVirtualMemoryWithBatch(long numPages, int numFrames, int tlbSize, int cpus) {
+        ConcurrentVirtualMemory vm = new ConcurrentVirtualMemory(numPages, numFrames, tlbSize, tlbSize,
+                                                                 PolicyType.FIFO, cpus);
+        Translator single = (pageNumber, cpu) -> vm.translate(cpu, pageNumber, cpu);
+        BatchTranslator batch = (pages, frames, count, cpu) -> vm.translate(cpu, cpu, pages, frames, count);
+        return new Object[] { single, batch };
+    }
+
+    // { lookup, insert } over one TLB; the cpu argument doubles as the ASID
+    public static Translator[] tlb(int size, int associativity, String policy) {
+        TLB tlb = new TLB(size, associativity, PolicyType.parse(policy), null);
+        Translator lookup = (pageNumber, asid) -> tlb.lookup(asid, pageNumber);
+        Translator insert = (pageNumber, asid) -> {
+            tlb.insert(asid, pageNumber, (int) pageNumber);
+            return 0;
+        };
+        return new Translator[] { lookup, insert };
+    }
+}
@@ -0,0 +1,31 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+
+// Reference streams shared by the benchmarks, precomputed so that generating
+// page numbers is not part of the measured work.
+public enum AccessPattern {
+    UNIFORM, SEQUENTIAL, HOTSET;
+
+    public static final int LENGTH = 1 << 16;
+
+    public long[] generate(long numPages, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] pages = new long[LENGTH];
+        long hotPages = Math.max(1, numPages / 10);
+        for (int i = 0; i < LENGTH; i++) {
+            switch (this) {
+                case SEQUENTIAL:
+                    pages[i] = i % numPages;
+                    break;
+                case HOTSET:
+                    // 90% of references go to 10% of the pages
+                    pages[i] = random.nextInt(10) < 9 ? random.nextLong(hotPages) : random.nextLong(numPages);
+                    break;
+                default:
+                    pages[i] = random.nextLong(numPages);
+            }
+        }
+        return pages;
+    }
+}
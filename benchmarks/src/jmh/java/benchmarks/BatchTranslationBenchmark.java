@@ -0,0 +1,93 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// The same reference stream translated one call per reference and in batches of
+// BATCH, on both engines; scores are references per second.
+@State(Scope.Thread)
+public class BatchTranslationBenchmark {
+    private static final int BATCH = 256;
+
+    @Param({"65536"})
+    public long numPages;
+
+    @Param({"4096"})
+    public int numFrames;
+
+    @Param({"64"})
+    public int tlbSize;
+
+    @Param({"SEQUENTIAL", "HOTSET"})
+    public AccessPattern pattern;
+
+    private Translator vm;
+    private BatchTranslator vmBatch;
+    private Translator concurrentVm;
+    private BatchTranslator concurrentVmBatch;
+    private long[] pages;
+    private final long[] batchPages = new long[BATCH];
+    private final int[] batchFrames = new int[BATCH];
+    private int next;
+
+    @Setup
+    public void setup() {
+        Object[] vms = (Object[]) Hooks.call("virtualMemoryWithBatch", numPages, numFrames, tlbSize, "LRU", "FIFO");
+        vm = (Translator) vms[0];
+        vmBatch = (BatchTranslator) vms[1];
+        Object[] concurrent = (Object[]) Hooks.call("concurrentVirtualMemoryWithBatch", numPages, numFrames, tlbSize, 1);
+        concurrentVm = (Translator) concurrent[0];
+        concurrentVmBatch = (BatchTranslator) concurrent[1];
+        pages = pattern.generate(numPages, 42);
+        for (long page : pages) {
+            vm.translate(page, 0);
+            concurrentVm.translate(page, 0);
+        }
+    }
+
+    private int fillBatch() {
+        System.arraycopy(pages, next, batchPages, 0, BATCH);
+        next = (next + BATCH) & (AccessPattern.LENGTH - 1);
+        return batchFrames[0];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int single() {
+        int sum = fillBatch();
+        for (int i = 0; i < BATCH; i++) {
+            sum += vm.translate(batchPages[i], 0);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int batch() {
+        int sum = fillBatch();
+        vmBatch.translate(batchPages, batchFrames, BATCH, 0);
+        return sum + batchFrames[BATCH - 1];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int concurrentSingle() {
+        int sum = fillBatch();
+        for (int i = 0; i < BATCH; i++) {
+            sum += concurrentVm.translate(batchPages[i], 0);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int concurrentBatch() {
+        int sum = fillBatch();
+        concurrentVmBatch.translate(batchPages, batchFrames, BATCH, 0);
+        return sum + batchFrames[BATCH - 1];
+    }
+}
@@ -0,0 +1,6 @@
+package benchmarks;
+
+// Batched counterpart of Translator: translates pages[0..count) of one process.
+public interface BatchTranslator {
+    void translate(long[] pages, int[] frames, int count, int cpu);
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+// Multi-threaded translation: the monitor-guarded VirtualMemory against the
+// striped ConcurrentVirtualMemory, each thread acting as one CPU and process.
+@State(Scope.Benchmark)
+@Threads(Threads.MAX)
+public class ContentionBenchmark {
+    private static final int MAX_CPUS = 256;
+
+    @Param({"65536"})
+    public long numPages;
+
+    @Param({"4096", "65536"})
+    public int numFrames;
+
+    @Param({"64"})
+    public int tlbSize;
+
+    @Param({"UNIFORM", "HOTSET"})
+    public AccessPattern pattern;
+
+    private Translator vm;
+    private Translator concurrentVm;
+    private final AtomicInteger nextCpu = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Cpu {
+        int id;
+        long[] pages;
+        int next;
+
+        @Setup
+        public void setup(ContentionBenchmark shared) {
+            id = shared.nextCpu.getAndIncrement() % MAX_CPUS;
+            pages = shared.pattern.generate(shared.numPages, id);
+        }
+
+        long nextPage() {
+            long page = pages[next];
+            next = (next + 1) & (AccessPattern.LENGTH - 1);
+            return page;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        vm = (Translator) Hooks.call("virtualMemory", numPages, numFrames, tlbSize, "FIFO", "FIFO");
+        concurrentVm = (Translator) Hooks.call("concurrentVirtualMemory", numPages, numFrames, tlbSize, MAX_CPUS);
+    }
+
+    @Benchmark
+    public int synchronizedTranslate(Cpu cpu) {
+        return vm.translate(cpu.nextPage(), cpu.id);
+    }
+
+    @Benchmark
+    public int stripedTranslate(Cpu cpu) {
+        return concurrentVm.translate(cpu.nextPage(), cpu.id);
+    }
+}
@@ -0,0 +1,22 @@
+package benchmarks;
+
+import java.lang.reflect.Method;
+
+// Looks up SimulatorHooks factories once, during benchmark setup.
+final class Hooks {
+    private Hooks() { }
+
+    static Object call(String name, Object... args) {
+        try {
+            Class<?> hooks = Class.forName("SimulatorHooks");
+            for (Method method : hooks.getMethods()) {
+                if (method.getName().equals(name) && method.getParameterCount() == args.length) {
+                    return method.invoke(null, args);
+                }
+            }
+            throw new IllegalArgumentException("No simulator hook named " + name);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot reach simulator hook " + name, e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Fault-with-eviction path: a sequential scan over more pages than frames
+// makes every reference fault once memory is full.
+@State(Scope.Thread)
+public class PageFaultBenchmark {
+    @Param({"256", "4096", "65536"})
+    public int numFrames;
+
+    @Param({"64"})
+    public int tlbSize;
+
+    @Param({"FIFO", "LRU", "CLOCK", "LFU", "ARC"})
+    public String policy;
+
+    private Translator vm;
+    private long numPages;
+    private long next;
+
+    @Setup
+    public void setup() {
+        numPages = 4L * numFrames;
+        vm = (Translator) Hooks.call("virtualMemory", numPages, numFrames, tlbSize, policy, "FIFO");
+        for (long page = 0; page < numFrames; page++) {
+            vm.translate(page, 0);
+        }
+        next = numFrames;
+    }
+
+    @Benchmark
+    public int faultAndEvict() {
+        long page = next;
+        next = next + 1 == numPages ? 0 : next + 1;
+        return vm.translate(page, 0);
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// TLB hit, miss and refill paths in isolation, across sizes and associativities.
+@State(Scope.Thread)
+public class TlbBenchmark {
+    @Param({"16", "64", "1536"})
+    public int tlbSize;
+
+    // ways per set; 0 means fully associative
+    @Param({"1", "4", "0"})
+    public int associativity;
+
+    @Param({"FIFO", "LRU"})
+    public String policy;
+
+    private Translator lookup;
+    private Translator insert;
+    private int next;
+
+    @Setup
+    public void setup() {
+        int ways = associativity == 0 ? tlbSize : associativity;
+        Translator[] tlb = (Translator[]) Hooks.call("tlb", tlbSize, ways, policy);
+        lookup = tlb[0];
+        insert = tlb[1];
+        for (int page = 0; page < tlbSize; page++) {
+            insert.translate(page, 0);
+        }
+    }
+
+    @Benchmark
+    public int hit() {
+        next = (next + 1) % tlbSize;
+        return lookup.translate(next, 0);
+    }
+
+    @Benchmark
+    public int miss() {
+        next = (next + 1) % tlbSize;
+        return lookup.translate(next, 1);
+    }
+
+    @Benchmark
+    public int refill() {
+        // pages beyond tlbSize always evict a victim from their set
+        next++;
+        return insert.translate(tlbSize + (next & 0xFFFF), 0);
+    }
+}
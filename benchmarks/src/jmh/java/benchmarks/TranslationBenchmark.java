@@ -0,0 +1,48 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Single-reference translation through VirtualMemory.searchPageTable across a
+// grid of memory shapes and access patterns.
+@State(Scope.Thread)
+public class TranslationBenchmark {
+    @Param({"1024", "65536"})
+    public long numPages;
+
+    @Param({"256", "4096"})
+    public int numFrames;
+
+    @Param({"16", "64", "1536"})
+    public int tlbSize;
+
+    @Param({"UNIFORM", "SEQUENTIAL", "HOTSET"})
+    public AccessPattern pattern;
+
+    @Param({"FIFO", "LRU"})
+    public String policy;
+
+    private Translator vm;
+    private long[] pages;
+    private int next;
+
+    @Setup
+    public void setup() {
+        vm = (Translator) Hooks.call("virtualMemory", numPages, numFrames, tlbSize, policy, policy);
+        pages = pattern.generate(numPages, 42);
+        // warm the TLB and frames so the steady state is measured
+        for (long page : pages) {
+            vm.translate(page, 0);
+        }
+    }
+
+    @Benchmark
+    public int translate() {
+        long page = pages[next];
+        next = (next + 1) & (AccessPattern.LENGTH - 1);
+        return vm.translate(page, 0);
+    }
+}
@@ -0,0 +1,8 @@
+package benchmarks;
+
+// One measured operation on the simulator. JMH refuses benchmarks in the default
+// package and named packages cannot see the simulator's default-package classes,
+// so SimulatorHooks (default package) implements this interface for them.
+public interface Translator {
+    int translate(long pageNumber, int cpu);
+}
@@ -0,0 +1,94 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+// Translating a run of one process's references with one batched call must give
+// the same frames and counters as translating them one at a time.
+class BatchTranslationTest {
+    private static final long PAGES = 2048;
+
+    private static DecodedTrace trace(String spec) {
+        DecodedTrace trace = new DecodedTrace();
+        Workload.generate(spec, PAGES, 4, 50_000, 37, 9, 0, trace);
+        return trace;
+    }
+
+    // end of the run of references of one process starting at `from`
+    private static int runEnd(DecodedTrace trace, int from) {
+        int to = from + 1;
+        while (to < trace.size() && trace.getProcessId(to) == trace.getProcessId(from)) {
+            to++;
+        }
+        return to;
+    }
+
+    private static long[] counters(VirtualMemory vm) {
+        return new long[] {
+            vm.getTotalPageReferences(), vm.getTlbMisses(), vm.getPageFaults(), vm.getEvictions(),
+            vm.getDiskAccesses(), vm.getPageWalkAccesses(), vm.getContextSwitches(),
+        };
+    }
+
+    @Test
+    void batchedMatchesSingleReferences() {
+        for (String spec : new String[] { "zipf", "hotspot", "loop:300", "scan" }) {
+            DecodedTrace trace = trace(spec);
+            for (PolicyType policy : new PolicyType[] { PolicyType.FIFO, PolicyType.LRU, PolicyType.CLOCK,
+                                                        PolicyType.LFU, PolicyType.ARC }) {
+                VirtualMemory single = new VirtualMemory(PAGES, 128, 16, 4, policy, PolicyType.LRU, null);
+                VirtualMemory batched = new VirtualMemory(PAGES, 128, 16, 4, policy, PolicyType.LRU, null);
+                long[] pages = new long[trace.size()];
+                int[] expected = new int[trace.size()];
+                int[] actual = new int[trace.size()];
+                for (int from = 0; from < trace.size(); ) {
+                    int to = runEnd(trace, from);
+                    int count = to - from;
+                    for (int i = 0; i < count; i++) {
+                        pages[i] = trace.getPage(from + i);
+                        expected[i] = single.searchPageTable(pages[i], trace.getProcessId(from));
+                    }
+                    batched.searchPageTable(trace.getProcessId(from), pages, actual, count);
+                    for (int i = 0; i < count; i++) {
+                        assertEquals(expected[i], actual[i], spec + " " + policy + " reference " + (from + i));
+                    }
+                    from = to;
+                }
+                assertArrayEquals(counters(single), counters(batched), spec + " " + policy);
+            }
+        }
+    }
+
+    @Test
+    void batchedRejectsOutOfRangePages() {
+        VirtualMemory vm = new VirtualMemory(PAGES, 16, 4);
+        long[] pages = { 1, -1, PAGES, 2 };
+        int[] frames = new int[pages.length];
+        vm.searchPageTable(0, pages, frames, pages.length);
+        assertEquals(-1, frames[1]);
+        assertEquals(-1, frames[2]);
+        assertEquals(2, vm.getTotalPageReferences());
+    }
+
+    @Test
+    void concurrentBatchedMatchesSingleReferences() {
+        DecodedTrace trace = trace("zipf");
+        ConcurrentVirtualMemory single = new ConcurrentVirtualMemory(PAGES, 128, 16, 4, PolicyType.LRU, 1);
+        ConcurrentVirtualMemory batched = new ConcurrentVirtualMemory(PAGES, 128, 16, 4, PolicyType.LRU, 1);
+        long[] pages = new long[trace.size()];
+        int[] frames = new int[trace.size()];
+        for (int from = 0; from < trace.size(); ) {
+            int to = runEnd(trace, from);
+            for (int i = from; i < to; i++) {
+                pages[i - from] = trace.getPage(i);
+                single.translate(0, trace.getPage(i), trace.getProcessId(i));
+            }
+            batched.translate(0, trace.getProcessId(from), pages, frames, to - from);
+            from = to;
+        }
+        assertArrayEquals(new long[] { single.getTotalPageReferences(), single.getTlbMisses(),
+                                       single.getPageFaults(), single.getEvictions() },
+                          new long[] { batched.getTotalPageReferences(), batched.getTlbMisses(),
+                                       batched.getPageFaults(), batched.getEvictions() });
+    }
+}
@@ -0,0 +1,110 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BinaryTraceTest {
+    @TempDir
+    Path directory;
+
+    private static DecodedTrace read(Path file) throws IOException {
+        DecodedTrace decoded = new DecodedTrace();
+        new BinaryTrace().replay(file, decoded);
+        return decoded;
+    }
+
+    private static void assertSameTrace(DecodedTrace expected, DecodedTrace actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getPage(i), actual.getPage(i), "page of reference " + i);
+            assertEquals(expected.getProcessId(i), actual.getProcessId(i), "process of reference " + i);
+            assertEquals(expected.isWrite(i), actual.isWrite(i), "write flag of reference " + i);
+        }
+    }
+
+    @Test
+    void roundTripsAGeneratedTrace() throws IOException {
+        // more references than one block holds, so delta state restarts mid-trace
+        DecodedTrace original = new DecodedTrace();
+        Workload.generate("zipf;scan;loop:100:7;uniform", 1L << 36, 5, 300_000, 3, 42, 0.25, original);
+        Path file = directory.resolve("trace.bin");
+        try (TraceRecorder recorder = new TraceRecorder(file)) {
+            original.replay(recorder);
+        }
+        assertTrue(BinaryTrace.isBinary(file));
+        assertSameTrace(original, read(file));
+    }
+
+    @Test
+    void roundTripsExtremePagesAndProcessIds() throws IOException {
+        DecodedTrace original = new DecodedTrace();
+        long maxPage = (1L << VirtualMemory.MAX_PAGE_BITS) - 1;
+        original.reference(maxPage, 0, true);
+        original.reference(0, 0, false);
+        original.reference(maxPage, VirtualMemory.SHARED_PAGES - 1, false);
+        original.reference(1, 300, true);
+        original.reference(maxPage, VirtualMemory.SHARED_PAGES - 1, true);
+        Path file = directory.resolve("extremes.bin");
+        try (TraceRecorder recorder = new TraceRecorder(file)) {
+            original.replay(recorder);
+        }
+        assertSameTrace(original, read(file));
+    }
+
+    @Test
+    void textTracesAreNotBinary() throws IOException {
+        Path file = directory.resolve("trace.txt");
+        Files.writeString(file, "1 0\n2 0\n");
+        assertFalse(BinaryTrace.isBinary(file));
+        assertThrows(IOException.class, () -> read(file));
+    }
+
+    private Path withBlock(int records, int... raw) throws IOException {
+        byte[] bytes = new byte[raw.length];
+        for (int i = 0; i < raw.length; i++) {
+            bytes[i] = (byte) raw[i];
+        }
+        Deflater deflater = new Deflater();
+        deflater.setInput(bytes);
+        deflater.finish();
+        byte[] compressed = new byte[1024];
+        int length = deflater.deflate(compressed);
+        deflater.end();
+        Path file = Files.createTempFile(directory, "block", ".bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.write(BinaryTrace.MAGIC);
+            out.writeInt(records);
+            out.writeInt(bytes.length);
+            out.writeInt(length);
+            out.write(compressed, 0, length);
+        }
+        return file;
+    }
+
+    @Test
+    void rejectsMalformedBlocks() throws IOException {
+        // header varint running past the payload
+        Path unterminated = withBlock(1, 0x81);
+        // pid varints that overflow an int and that pass the process id limit
+        Path overflow = withBlock(1, 3, 0xFF, 0xFF, 0xFF, 0xFF, 0x0F);
+        Path huge = withBlock(1, 3, 0x80, 0x80, 0x80, 0x04, 1);
+        // a byte left after the last record
+        Path trailing = withBlock(2, 3, 1, 4, 9);
+        // header varint longer than ten bytes
+        Path overlong = withBlock(1, 0x81, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 1, 1);
+        // first record without a process id
+        Path noProcess = withBlock(1, 4);
+        for (Path file : new Path[] { unterminated, overflow, huge, trailing, overlong, noProcess }) {
+            assertThrows(IOException.class, () -> read(file), file.toString());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// A replay split at a checkpoint must end with the same counters as one that ran
+// straight through.
+class CheckpointTest {
+    private static final long PAGES = 4096;
+
+    @TempDir
+    Path directory;
+
+    private static DecodedTrace trace() {
+        DecodedTrace trace = new DecodedTrace();
+        Workload.generate("zipf;hotspot;phased:4000:loop:300/scan", PAGES, 4, 80_000, 5, 3, 0.2, trace);
+        return trace;
+    }
+
+    private static void replay(VirtualMemory vm, DecodedTrace trace, int from, int to) {
+        for (int i = from; i < to; i++) {
+            vm.searchPageTable(trace.getPage(i), trace.getProcessId(i), trace.isWrite(i));
+        }
+    }
+
+    private static long[] counters(VirtualMemory vm) {
+        long[] counters = {
+            vm.getTotalPageReferences(), vm.getTlbMisses(), vm.getPageFaults(), vm.getEvictions(),
+            vm.getDiskAccesses(), vm.getWrites(), vm.getWriteBacks(), vm.getPageWalkAccesses(),
+            vm.getPromotions(), vm.getDemotions(), vm.getPrefetches(), vm.getUsefulPrefetches(),
+            vm.getSuspensions(), vm.getResumes(), vm.getCopyOnWriteFaults(), vm.getCompressedFaults(),
+        };
+        long[] perProcess = new long[8 * 3];
+        vm.getProcessStats().forEach((pid, stats) -> {
+            perProcess[pid * 3] = stats.getPageReferences();
+            perProcess[pid * 3 + 1] = stats.getTlbMisses();
+            perProcess[pid * 3 + 2] = stats.getPageFaults();
+        });
+        long[] all = new long[counters.length + perProcess.length];
+        System.arraycopy(counters, 0, all, 0, counters.length);
+        System.arraycopy(perProcess, 0, all, counters.length, perProcess.length);
+        return all;
+    }
+
+    private void assertSplitMatchesStraightRun(String name, Supplier<VirtualMemory> factory) throws IOException {
+        assertSplitMatchesStraightRun(name, factory, vm -> { });
+    }
+
+    // `event` runs a tenth of the way in, before the checkpoint is taken
+    private void assertSplitMatchesStraightRun(String name, Supplier<VirtualMemory> factory,
+                                               Consumer<VirtualMemory> event) throws IOException {
+        DecodedTrace trace = trace();
+        int eventAt = trace.size() / 10;
+        int split = trace.size() / 3;
+
+        VirtualMemory straight = factory.get();
+        replay(straight, trace, 0, eventAt);
+        event.accept(straight);
+        replay(straight, trace, eventAt, trace.size());
+
+        VirtualMemory first = factory.get();
+        replay(first, trace, 0, eventAt);
+        event.accept(first);
+        replay(first, trace, eventAt, split);
+        Path file = directory.resolve(name + ".ckpt");
+        first.saveCheckpoint(file, split);
+
+        VirtualMemory resumed = factory.get();
+        assertEquals(split, resumed.restoreCheckpoint(file));
+        replay(resumed, trace, split, trace.size());
+
+        assertArrayEquals(counters(straight), counters(resumed), name);
+    }
+
+    @Test
+    void roundTripsEveryPolicy() throws IOException {
+        for (PolicyType policy : PolicyType.values()) {
+            if (policy == PolicyType.OPT) {
+                continue;   // not checkpointable
+            }
+            assertSplitMatchesStraightRun(policy.name(),
+                () -> new VirtualMemory(PAGES, 96, 16, 4, policy, policy, null));
+        }
+    }
+
+    @Test
+    void roundTripsAllocationAndPrefetching() throws IOException {
+        assertSplitMatchesStraightRun("ws", () -> {
+            VirtualMemory vm = new VirtualMemory(PAGES, 96, 16, 4, PolicyType.LRU, PolicyType.FIFO, null);
+            vm.setFrameAllocation(FrameAllocation.WORKING_SET);
+            vm.setWorkingSetWindow(2000);
+            vm.setPrefetcher(PrefetcherType.STRIDE.create(), 2);
+            return vm;
+        });
+        assertSplitMatchesStraightRun("pff", () -> {
+            VirtualMemory vm = new VirtualMemory(PAGES, 96, 16, 4, PolicyType.CLOCK, PolicyType.LRU, null);
+            vm.setFrameAllocation(FrameAllocation.PFF);
+            vm.setPrefetcher(PrefetcherType.HISTORY.create(), 1);
+            return vm;
+        });
+    }
+
+    @Test
+    void roundTripsLoadControlAndCompressedSwap() throws IOException {
+        assertSplitMatchesStraightRun("load", () -> {
+            VirtualMemory vm = new VirtualMemory(PAGES, 64, 16, 4, PolicyType.LRU, PolicyType.LRU, null);
+            vm.setFrameAllocation(FrameAllocation.PFF);
+            vm.setLoadControl(true, 0.2, 0.05);
+            vm.enableCompressedSwap(4096, CompressedSwap.Eviction.OLDEST, 3);
+            return vm;
+        });
+    }
+
+    @Test
+    void roundTripsHugePagesAndTlbLevels() throws IOException {
+        assertSplitMatchesStraightRun("huge", () -> {
+            VirtualMemory vm = new VirtualMemory(PAGES, 256, 16, 4, PolicyType.FIFO, PolicyType.LRU, null);
+            vm.setPageSizes(VirtualMemory.PAGE_SIZE, VirtualMemory.PAGE_SIZE * 16L);
+            vm.setPromotionThreshold(0.5);
+            vm.addTlbLevel(64, 8, PolicyType.LRU, 3);
+            vm.setPageWalkCache(8, 2);
+            return vm;
+        });
+    }
+
+    @Test
+    void roundTripsSharedPages() throws IOException {
+        assertSplitMatchesStraightRun("fork",
+            () -> new VirtualMemory(PAGES, 128, 16, 4, PolicyType.LRU, PolicyType.LRU, null),
+            vm -> {
+                vm.fork(0, 4);   // the parent's writes now copy its pages
+                vm.mapShared(2, 0, 5, 100, 64);
+            });
+    }
+
+    @Test
+    void truncatedCheckpointLeavesSimulatorUnusable() throws IOException {
+        DecodedTrace trace = trace();
+        VirtualMemory first = new VirtualMemory(PAGES, 96, 16, 4, PolicyType.LRU, PolicyType.LRU, null);
+        replay(first, trace, 0, trace.size() / 3);
+        Path file = directory.resolve("truncated.ckpt");
+        first.saveCheckpoint(file, trace.size() / 3);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+
+        // a mismatched checkpoint is rejected before anything changes
+        VirtualMemory other = new VirtualMemory(PAGES, 64, 16, 4, PolicyType.LRU, PolicyType.LRU, null);
+        assertThrows(IllegalArgumentException.class, () -> other.restoreCheckpoint(file));
+        other.searchPageTable(1, 0);
+
+        VirtualMemory resumed = new VirtualMemory(PAGES, 96, 16, 4, PolicyType.LRU, PolicyType.LRU, null);
+        assertThrows(IOException.class, () -> resumed.restoreCheckpoint(file));
+        assertThrows(IllegalStateException.class, () -> resumed.searchPageTable(1, 0));
+        assertThrows(IllegalStateException.class, () -> resumed.saveCheckpoint(directory.resolve("again.ckpt"), 0));
+    }
+}
@@ -0,0 +1,64 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+// An unsampled curve is exact: for every frame count it must predict as many
+// faults as a full LRU simulation with that many frames.
+class MissRatioCurveTest {
+    private static final long PAGES = 512;
+
+    private static DecodedTrace trace(String spec) {
+        DecodedTrace trace = new DecodedTrace();
+        Workload.generate(spec, PAGES, 3, 60_000, 7, 11, 0, trace);
+        return trace;
+    }
+
+    private static long lruFaults(DecodedTrace trace, int frames) {
+        VirtualMemory vm = new VirtualMemory(PAGES, frames, 4, 4, PolicyType.LRU, PolicyType.LRU, null);
+        for (int i = 0; i < trace.size(); i++) {
+            vm.searchPageTable(trace.getPage(i), trace.getProcessId(i));
+        }
+        return vm.getPageFaults();
+    }
+
+    @Test
+    void curveMatchesLruRunsAtEverySize() {
+        for (String spec : new String[] { "zipf", "hotspot", "loop:200", "phased:5000:zipf/scan" }) {
+            DecodedTrace trace = trace(spec);
+            MissRatioCurve curve = new MissRatioCurve(1, PAGES);
+            trace.replay(curve);
+            double[] misses = curve.misses(1024);
+            for (int frames : new int[] { 1, 3, 16, 64, 100, 256, 1024 }) {
+                assertEquals(lruFaults(trace, frames), (long) misses[frames], spec + " with " + frames + " frames");
+            }
+        }
+    }
+
+    @Test
+    void curveMatchesFullyAssociativeLruTlb() {
+        DecodedTrace trace = trace("zipf:0.8");
+        MissRatioCurve curve = new MissRatioCurve(1, PAGES);
+        trace.replay(curve);
+        for (int size : new int[] { 1, 8, 32, 128 }) {
+            // enough frames that no eviction shoots entries out of the TLB
+            VirtualMemory vm = new VirtualMemory(PAGES, (int) (3 * PAGES), size, size,
+                                                 PolicyType.LRU, PolicyType.LRU, null);
+            for (int i = 0; i < trace.size(); i++) {
+                vm.searchPageTable(trace.getPage(i), trace.getProcessId(i));
+            }
+            assertEquals(vm.getTlbMisses(), (long) curve.misses(size)[size], "TLB of " + size);
+        }
+    }
+
+    @Test
+    void outOfRangeReferencesAreLeftOut() {
+        MissRatioCurve curve = new MissRatioCurve(1, PAGES);
+        curve.reference(3, 0);
+        curve.reference(PAGES, 0);
+        curve.reference(-1, 0);
+        curve.reference(3, 0);
+        assertEquals(2, curve.getReferences());
+        assertEquals(2, curve.getRejected());
+        assertEquals(1, (long) curve.misses(1)[1]);
+    }
+}
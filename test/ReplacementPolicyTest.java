@@ -0,0 +1,76 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// Drives every policy as a cache of `capacity` slots over a random reference
+// stream, with occasional invalidations, and checks that peekVictim always names
+// the slot the following selectVictim evicts. Extra peeks between references
+// check that peeking leaves no trace on later decisions.
+class ReplacementPolicyTest {
+    private static final int REFERENCES = 20_000;
+
+    private static void assertPeekMatchesSelect(PolicyType type, int capacity, long seed) {
+        Random random = new Random(seed);
+        int universe = capacity * 3 + 1;
+        long[] stream = new long[REFERENCES];
+        for (int i = 0; i < REFERENCES; i++) {
+            stream[i] = random.nextInt(universe);
+        }
+        ReplacementPolicy policy = type.create(capacity, new OptimalPolicy.Lookahead(stream, REFERENCES));
+
+        long[] keyOf = new long[capacity];
+        Arrays.fill(keyOf, -1);
+        LongIntHashMap slotOf = new LongIntHashMap(capacity);
+        int occupied = 0;
+        for (int i = 0; i < REFERENCES; i++) {
+            long key = stream[i];
+            if (occupied == capacity && random.nextInt(3) == 0) {
+                policy.peekVictim(key);
+            }
+            int slot = slotOf.get(key);
+            if (slot != -1) {
+                policy.recordAccess(slot, key);
+            } else if (occupied < capacity) {
+                slot = 0;
+                while (keyOf[slot] != -1) {
+                    slot++;
+                }
+                keyOf[slot] = key;
+                slotOf.put(key, slot);
+                occupied++;
+                policy.recordInsert(slot, key);
+            } else {
+                int peeked = policy.peekVictim(key);
+                int victim = policy.selectVictim(key);
+                assertEquals(victim, peeked, type + " capacity " + capacity + " reference " + i);
+                assertTrue(victim >= 0 && victim < capacity, type + " returned slot " + victim);
+                slotOf.remove(keyOf[victim]);
+                keyOf[victim] = key;
+                slotOf.put(key, victim);
+                policy.recordInsert(victim, key);
+            }
+            if (occupied > 0 && random.nextInt(50) == 0) {
+                int removed = random.nextInt(capacity);
+                if (keyOf[removed] != -1) {
+                    slotOf.remove(keyOf[removed]);
+                    keyOf[removed] = -1;
+                    occupied--;
+                    policy.recordRemove(removed);
+                }
+            }
+        }
+    }
+
+    @Test
+    void peekVictimMatchesSelectVictim() {
+        for (PolicyType type : PolicyType.values()) {
+            for (int capacity = 1; capacity <= 64; capacity = capacity < 8 ? capacity + 1 : capacity * 2) {
+                assertPeekMatchesSelect(type, capacity, 31L * capacity + type.ordinal());
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// The indexed TLB must hit and miss exactly like a TLB that scans its set linearly
+// and evicts by timestamp.
+class TLBTest {
+    // Reference model: every slot is scanned on each lookup. FIFO evicts the
+    // entry inserted first, LRU the one used least recently.
+    private static final class LinearTlb {
+        private final int associativity;
+        private final int numSets;
+        private final boolean lru;
+        private final int[] asids;
+        private final long[] pages;
+        private final int[] frames;
+        private final long[] stamps;
+        private long clock = 0;
+
+        LinearTlb(int size, int associativity, boolean lru) {
+            this.associativity = associativity;
+            this.numSets = size / associativity;
+            this.lru = lru;
+            this.asids = new int[size];
+            this.pages = new long[size];
+            this.frames = new int[size];
+            this.stamps = new long[size];
+            Arrays.fill(frames, -1);
+        }
+
+        int lookup(int asid, long page) {
+            int set = (int) (page % numSets);
+            for (int slot = set * associativity; slot < (set + 1) * associativity; slot++) {
+                if (frames[slot] != -1 && asids[slot] == asid && pages[slot] == page) {
+                    if (lru) {
+                        stamps[slot] = ++clock;
+                    }
+                    return frames[slot];
+                }
+            }
+            return -1;
+        }
+
+        void insert(int asid, long page, int frame) {
+            int set = (int) (page % numSets);
+            int victim = -1;
+            for (int slot = set * associativity; slot < (set + 1) * associativity; slot++) {
+                if (frames[slot] == -1) {
+                    victim = slot;
+                    break;
+                }
+                if (victim == -1 || stamps[slot] < stamps[victim]) {
+                    victim = slot;
+                }
+            }
+            asids[victim] = asid;
+            pages[victim] = page;
+            frames[victim] = frame;
+            stamps[victim] = ++clock;
+        }
+
+        void invalidate(int asid, long page) {
+            int set = (int) (page % numSets);
+            for (int slot = set * associativity; slot < (set + 1) * associativity; slot++) {
+                if (frames[slot] != -1 && asids[slot] == asid && pages[slot] == page) {
+                    frames[slot] = -1;
+                }
+            }
+        }
+    }
+
+    private static void assertMatchesLinearScan(int size, int associativity, PolicyType policy, long seed) {
+        TLB tlb = new TLB(size, associativity, policy, null);
+        LinearTlb reference = new LinearTlb(size, associativity, policy == PolicyType.LRU);
+        Random random = new Random(seed);
+        for (int i = 0; i < 200_000; i++) {
+            int asid = random.nextInt(3);
+            long page = random.nextInt(4 * size);
+            if (random.nextInt(20) == 0) {
+                tlb.invalidate(asid, page);
+                reference.invalidate(asid, page);
+                continue;
+            }
+            int expected = reference.lookup(asid, page);
+            assertEquals(expected, tlb.lookup(asid, page),
+                         size + "/" + associativity + " " + policy + ": lookup " + i);
+            if (expected == -1) {
+                int frame = random.nextInt(1 << 20);
+                tlb.insert(asid, page, frame);
+                reference.insert(asid, page, frame);
+            }
+        }
+    }
+
+    @Test
+    void fullyAssociativeMatchesLinearScan() {
+        for (PolicyType policy : new PolicyType[] { PolicyType.FIFO, PolicyType.LRU }) {
+            assertMatchesLinearScan(16, 16, policy, 1);
+            assertMatchesLinearScan(64, 64, policy, 2);
+        }
+    }
+
+    @Test
+    void setAssociativeMatchesLinearScan() {
+        for (PolicyType policy : new PolicyType[] { PolicyType.FIFO, PolicyType.LRU }) {
+            assertMatchesLinearScan(64, 4, policy, 3);
+            assertMatchesLinearScan(48, 8, policy, 4);   // six sets: not a power of two
+            assertMatchesLinearScan(32, 1, policy, 5);   // direct mapped
+        }
+    }
+
+    @Test
+    void flushDropsEveryEntry() {
+        TLB tlb = new TLB(8, 2);
+        for (int page = 0; page < 8; page++) {
+            tlb.insert(0, page, page);
+        }
+        tlb.flush();
+        for (int page = 0; page < 8; page++) {
+            assertEquals(-1, tlb.lookup(0, page));
+        }
+    }
+}